@@ -0,0 +1,10 @@
+package org.epn.api;
+
+public interface DoubleEvent extends Event<Double> {
+  double getDouble();
+
+  @Override
+  default Double get() {
+    return getDouble();
+  }
+}
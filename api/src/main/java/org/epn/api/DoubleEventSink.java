@@ -0,0 +1,15 @@
+package org.epn.api;
+
+/**
+ * {@link EventSink} that can receive double values without boxing.
+ */
+public interface DoubleEventSink extends EventSink<Double> {
+
+  void onNextDouble(double value);
+
+  @Override
+  default void onNext(Event<Double> e) {
+    onNextDouble((e instanceof DoubleEvent) ? ((DoubleEvent) e).getDouble() : e.get());
+  }
+
+}
@@ -1,7 +1,46 @@
 package org.epn.api;
 
+import java.util.Collections;
+import java.util.Map;
+
 public interface Event<T> {
+
+  /** Timestamp of events that were not stamped. */
+  long NO_TIMESTAMP = Long.MIN_VALUE;
+
+  /** Sequence number of events that were not numbered. */
+  long NO_SEQUENCE = -1;
+
   T get();
-  
-  // TODO access to meta data
+
+  /**
+   * @return the time in milliseconds since the epoch at which the event entered
+   *         the network, or {@link #NO_TIMESTAMP}
+   */
+  default long getTimestamp() {
+    return NO_TIMESTAMP;
+  }
+
+  /**
+   * @return the number of the event in the sequence of its source, or
+   *         {@link #NO_SEQUENCE}
+   */
+  default long getSequence() {
+    return NO_SEQUENCE;
+  }
+
+  /**
+   * @return the value of the given header, or null
+   */
+  default String getHeader(final String name) {
+    return getHeaders().get(name);
+  }
+
+  /**
+   * @return all headers, never null and not modifiable
+   */
+  default Map<String, String> getHeaders() {
+    return Collections.emptyMap();
+  }
+
 }
@@ -14,4 +14,23 @@ public interface EventSink<E> extends Subscriber<Event<E>> {
   @Override
   default void onComplete() {}
 
+  /**
+   * Receives the first {@code count} events of {@code events} in one call. Only
+   * invoked if enough demand was requested for all of them, and equivalent to
+   * calling {@link #onNext(Object)} for each. The array is owned by the caller
+   * and must not be kept or modified.
+   */
+  default void onNextBatch(Event<E>[] events, int count) {
+    for (int i = 0; i < count; i++) {
+      onNext(events[i]);
+    }
+  }
+
+  /**
+   * Receives a watermark: no more events with a timestamp at or before
+   * {@code watermark} are expected from upstream. Watermarks are delivered in
+   * order with events and only ever increase.
+   */
+  default void onWatermark(long watermark) {}
+
 }
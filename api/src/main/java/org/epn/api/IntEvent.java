@@ -0,0 +1,10 @@
+package org.epn.api;
+
+public interface IntEvent extends Event<Integer> {
+  int getInt();
+
+  @Override
+  default Integer get() {
+    return getInt();
+  }
+}
@@ -0,0 +1,15 @@
+package org.epn.api;
+
+/**
+ * {@link EventSink} that can receive int values without boxing.
+ */
+public interface IntEventSink extends EventSink<Integer> {
+
+  void onNextInt(int value);
+
+  @Override
+  default void onNext(Event<Integer> e) {
+    onNextInt((e instanceof IntEvent) ? ((IntEvent) e).getInt() : e.get());
+  }
+
+}
@@ -0,0 +1,10 @@
+package org.epn.api;
+
+public interface LongEvent extends Event<Long> {
+  long getLong();
+
+  @Override
+  default Long get() {
+    return getLong();
+  }
+}
@@ -0,0 +1,15 @@
+package org.epn.api;
+
+/**
+ * {@link EventSink} that can receive long values without boxing.
+ */
+public interface LongEventSink extends EventSink<Long> {
+
+  void onNextLong(long value);
+
+  @Override
+  default void onNext(Event<Long> e) {
+    onNextLong((e instanceof LongEvent) ? ((LongEvent) e).getLong() : e.get());
+  }
+
+}
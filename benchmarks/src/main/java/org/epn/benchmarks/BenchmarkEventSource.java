@@ -0,0 +1,31 @@
+package org.epn.benchmarks;
+
+import org.epn.api.Event;
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSource;
+
+/**
+ * Source driven by the benchmark thread: {@link #start()} does nothing, events
+ * are pushed with {@link #emit(Event[])} or {@link #emitBatch(Event[])}.
+ */
+public class BenchmarkEventSource extends BasicEventSource<Integer> {
+
+  public void emit(final Event<Integer>[] events) {
+    for (final Event<Integer> e : events) {
+      notifySubscribers(e);
+    }
+  }
+
+  public void emitBatch(final Event<Integer>[] events) {
+    notifySubscribers(events, events.length);
+  }
+
+  public static Event<Integer>[] events(final int n) {
+    final Event<Integer>[] events = newBatch(n);
+    for (int i = 0; i < n; i++) {
+      events[i] = new BasicEvent<Integer>(i);
+    }
+    return events;
+  }
+
+}
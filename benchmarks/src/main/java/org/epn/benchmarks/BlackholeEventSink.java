@@ -0,0 +1,26 @@
+package org.epn.benchmarks;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscription;
+
+public class BlackholeEventSink<T> implements EventSink<T> {
+
+  private final Blackhole bh;
+
+  public BlackholeEventSink(final Blackhole bh) {
+    this.bh = bh;
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    s.request(Long.MAX_VALUE);
+  }
+
+  @Override
+  public void onNext(final Event<T> t) {
+    bh.consume(t);
+  }
+
+}
@@ -0,0 +1,74 @@
+package org.epn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.epn.api.Event;
+import org.epn.core.net.Epn;
+import org.epn.core.net.EventNetwork.EpnNode;
+import org.epn.core.net.EventNetwork.TerminalEpnNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-event cost of a chain of alternating filters and transformers of
+ * increasing depth, with and without operator fusion. All filters pass every
+ * event, so each event travels the whole chain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChainBenchmark {
+
+  private static final int EVENTS = 1024;
+
+  @Param({ "1", "2", "4", "8" })
+  public int depth;
+
+  @Param({ "false", "true" })
+  public boolean fusion;
+
+  private BenchmarkEventSource source;
+  private Event<Integer>[] events;
+
+  @Setup
+  public void setup(final Blackhole bh) {
+    source = new BenchmarkEventSource();
+    events = BenchmarkEventSource.events(EVENTS);
+
+    EpnNode<Integer, TerminalEpnNode<Integer>> node = Epn
+        .named("Chain")
+        .withOperatorFusion(fusion)
+        .fromSource(source);
+    for (int i = 0; i < depth; i++) {
+      node = (i % 2 == 0) ? node.filter(v -> v >= 0) : node.transform(v -> v + 1);
+    }
+    node.consumedBy(new BlackholeEventSink<>(bh)).start();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void perEvent() {
+    source.emit(events);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void batched() {
+    source.emitBatch(events);
+  }
+
+}
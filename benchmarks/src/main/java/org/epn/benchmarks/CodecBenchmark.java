@@ -0,0 +1,94 @@
+package org.epn.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.epn.core.codec.RecordCodec;
+import org.epn.core.codec.RecordView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-event cost of selecting records by one field, by decoding each record
+ * or by testing the field in place.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+  private static final int EVENTS = 1024;
+
+  private RecordCodec<Trade> codec;
+  private Predicate<ByteBuffer> expensive;
+  private RecordView view;
+  private ByteBuffer buffer;
+
+  @Setup
+  public void setup() {
+    codec = RecordCodec
+        .of(r -> new Trade(r.getString(0), r.getDouble(1), r.getLong(2)))
+        .withString(t -> t.symbol)
+        .withDouble(t -> t.price)
+        .withLong(t -> t.quantity);
+    expensive = codec.where(r -> r.getDouble(1) > 90);
+    view = codec.view();
+    buffer = ByteBuffer.allocateDirect(EVENTS * 64);
+    for (int i = 0; i < EVENTS; i++) {
+      codec.encode(new Trade("SYM" + (i % 16), i % 100, i), buffer);
+    }
+    buffer.flip();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void decode(final Blackhole bh) {
+    final ByteBuffer b = buffer.duplicate();
+    while (b.hasRemaining()) {
+      final Trade t = codec.decode(b);
+      if (t.price > 90) {
+        bh.consume(t);
+      }
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void flyweight(final Blackhole bh) {
+    final ByteBuffer b = buffer.duplicate();
+    while (b.hasRemaining()) {
+      if (expensive.test(b)) {
+        bh.consume(codec.decode(b));
+      } else {
+        b.position(b.position() + view.wrap(b, b.position()).length());
+      }
+    }
+  }
+
+  static class Trade {
+    final String symbol;
+    final double price;
+    final long quantity;
+
+    Trade(final String symbol, final double price, final long quantity) {
+      this.symbol = symbol;
+      this.price = price;
+      this.quantity = quantity;
+    }
+  }
+
+}
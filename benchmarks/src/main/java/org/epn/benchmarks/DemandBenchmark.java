@@ -0,0 +1,72 @@
+package org.epn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.epn.api.Event;
+import org.epn.core.net.Epn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-event cost of a source -> filter -> transform -> filter -> sink chain
+ * (unfused, so every stage does its own demand bookkeeping) depending on the
+ * demand batch size and on whether events are emitted one by one or as a
+ * batch. A batch size of 1 is the request(1)-per-event protocol.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DemandBenchmark {
+
+  private static final int EVENTS = 1024;
+
+  @Param({ "1", "256" })
+  public int demandBatchSize;
+
+  private BenchmarkEventSource source;
+  private Event<Integer>[] events;
+
+  @Setup
+  public void setup(final Blackhole bh) {
+    source = new BenchmarkEventSource();
+    events = BenchmarkEventSource.events(EVENTS);
+
+    Epn
+      .named("Demand")
+      .withDemandBatchSize(demandBatchSize)
+      .withOperatorFusion(false)
+      .fromSource(source)
+      .filter(i -> (i & 1) == 0)
+      .transform(i -> i + 1)
+      .filter(i -> i > 0)
+      .consumedBy(new BlackholeEventSink<>(bh))
+      .start();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void perEvent() {
+    source.emit(events);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void batched() {
+    source.emitBatch(events);
+  }
+
+}
@@ -0,0 +1,91 @@
+package org.epn.benchmarks;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.epn.api.Event;
+import org.epn.core.net.Epn;
+import org.epn.core.net.EventNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-event cost of a filter followed by two transformers that each do some
+ * arithmetic, run synchronously on the emitting thread ({@code threads = 0})
+ * or pipelined across a pool of {@code threads} workers. Each invocation waits
+ * until the network is idle, so the pooled results include the hand-off.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorBenchmark {
+
+  private static final int EVENTS = 4096;
+  private static final int WORK = 200;
+
+  @Param({ "0", "2", "4" })
+  public int threads;
+
+  private BenchmarkEventSource source;
+  private Event<Integer>[] events;
+  private ExecutorService executor;
+  private EventNetwork network;
+
+  @Setup
+  public void setup(final Blackhole bh) {
+    source = new BenchmarkEventSource();
+    events = BenchmarkEventSource.events(EVENTS);
+
+    network = Epn.named("Executor");
+    if (threads > 0) {
+      executor = Executors.newFixedThreadPool(threads);
+      network.withExecutor(executor);
+    }
+    network
+      .fromSource(source)
+      .filter(v -> work(v) != 0)
+      .transform(ExecutorBenchmark::work)
+      .transform(ExecutorBenchmark::work)
+      .consumedBy(new BlackholeEventSink<>(bh))
+      .start();
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void chain() throws InterruptedException {
+    source.emit(events);
+    network.awaitIdle(1, TimeUnit.MINUTES);
+  }
+
+  private static int work(final int v) {
+    int x = v | 1;
+    for (int i = 0; i < WORK; i++) {
+      x = x * 31 + i;
+    }
+    return x | 1;
+  }
+
+}
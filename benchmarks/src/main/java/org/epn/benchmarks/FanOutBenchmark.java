@@ -0,0 +1,61 @@
+package org.epn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.epn.api.Event;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of a {@link org.epn.core.BasicEventSource} notifying a growing number
+ * of subscribers, one operation being one event emitted to all of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FanOutBenchmark {
+
+  private static final int EVENTS = 1024;
+
+  @Param({ "1", "4", "16" })
+  public int subscribers;
+
+  private BenchmarkEventSource source;
+  private Event<Integer>[] events;
+
+  @Setup
+  public void setup(final Blackhole bh) {
+    source = new BenchmarkEventSource();
+    events = BenchmarkEventSource.events(EVENTS);
+    for (int i = 0; i < subscribers; i++) {
+      source.subscribe(new BlackholeEventSink<>(bh));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void perEvent() {
+    source.emit(events);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void batched() {
+    source.emitBatch(events);
+  }
+
+}
@@ -0,0 +1,72 @@
+package org.epn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.epn.api.Event;
+import org.epn.core.net.Epn;
+import org.epn.core.net.EventNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-pair cost of {@code join()}: both sources emit the same events, so every
+ * event is paired with its counterpart from the other source, which is either
+ * forwarded as is (no combiner) or combined into a new event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JoinBenchmark {
+
+  private static final int EVENTS = 1024;
+
+  @Param({ "false", "true" })
+  public boolean combiner;
+
+  private BenchmarkEventSource top;
+  private BenchmarkEventSource bottom;
+  private Event<Integer>[] events;
+
+  @Setup
+  public void setup(final Blackhole bh) {
+    top = new BenchmarkEventSource();
+    bottom = new BenchmarkEventSource();
+    events = BenchmarkEventSource.events(EVENTS);
+
+    final EventNetwork network = Epn.named("Join");
+    (combiner
+        ? network.join(Epn.create().fromSource(top), Epn.create().fromSource(bottom), (a, b) -> a + b)
+        : network.join(top, bottom))
+      .consumedBy(new BlackholeEventSink<>(bh))
+      .start();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void perEvent() {
+    top.emit(events);
+    bottom.emit(events);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void batched() {
+    top.emitBatch(events);
+    bottom.emitBatch(events);
+  }
+
+}
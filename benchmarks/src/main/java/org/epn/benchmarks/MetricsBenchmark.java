@@ -0,0 +1,69 @@
+package org.epn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.epn.api.Event;
+import org.epn.core.net.Epn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-event cost of a filter and a transformer with and without per-node
+ * metrics.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+  private static final int EVENTS = 1024;
+
+  @Param({ "false", "true" })
+  public boolean metrics;
+
+  private BenchmarkEventSource source;
+  private Event<Integer>[] events;
+
+  @Setup
+  public void setup(final Blackhole bh) {
+    source = new BenchmarkEventSource();
+    events = BenchmarkEventSource.events(EVENTS);
+
+    Epn
+      .named("Metrics")
+      .withMetrics(metrics)
+      .withOperatorFusion(false)
+      .fromSource(source)
+      .filter(v -> v >= 0)
+      .transform(v -> v + 1)
+      .consumedBy(new BlackholeEventSink<>(bh))
+      .start();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void perEvent() {
+    source.emit(events);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void batched() {
+    source.emitBatch(events);
+  }
+
+}
@@ -0,0 +1,89 @@
+package org.epn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.epn.api.Event;
+import org.epn.api.EventSource;
+import org.epn.core.BasicFanOutEventProcessor;
+import org.epn.core.BasicFanOutEventProcessor.Outlet;
+import org.epn.core.BasicRouterEventProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-event cost of routing each event to one of {@code outlets} sinks, either
+ * by a single router or by a tree of two-way splits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteBenchmark {
+
+  private static final int EVENTS = 1024;
+
+  @Param({ "router", "splitTree" })
+  public String mode;
+
+  @Param({ "2", "16" })
+  public int outlets;
+
+  private BenchmarkEventSource source;
+  private Event<Integer>[] events;
+
+  @Setup
+  public void setup(final Blackhole bh) {
+    source = new BenchmarkEventSource();
+    events = BenchmarkEventSource.events(EVENTS);
+
+    if ("router".equals(mode)) {
+      final BasicRouterEventProcessor<Integer> router = new BasicRouterEventProcessor<>(i -> i & (outlets - 1),
+          outlets);
+      source.subscribe(router);
+      router.getOutlets().forEach(o -> o.subscribe(new BlackholeEventSink<>(bh)));
+    } else {
+      splitTree(source, 1, bh);
+    }
+  }
+
+  /**
+   * Splits on the bit {@code bit} of the event, down to {@code outlets} leaves.
+   */
+  private void splitTree(final EventSource<Integer> upstream, final int bit, final Blackhole bh) {
+    if (bit >= outlets) {
+      upstream.subscribe(new BlackholeEventSink<>(bh));
+      return;
+    }
+    final BasicFanOutEventProcessor<Integer> split = new BasicFanOutEventProcessor<>(
+        i -> (i & bit) == 0 ? Outlet.TOP : Outlet.BOTTOM);
+    upstream.subscribe(split);
+    splitTree(split.getTop(), bit << 1, bh);
+    splitTree(split.getBottom(), bit << 1, bh);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void perEvent() {
+    source.emit(events);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void batched() {
+    source.emitBatch(events);
+  }
+
+}
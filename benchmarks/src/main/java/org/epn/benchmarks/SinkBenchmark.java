@@ -0,0 +1,61 @@
+package org.epn.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.epn.api.Event;
+import org.epn.core.BasicEventSink;
+import org.epn.core.net.Epn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-event cost of collecting events in a {@link BasicEventSink}. The
+ * collected data is cleared after each invocation to keep the heap flat.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SinkBenchmark {
+
+  private static final int EVENTS = 1024;
+
+  private BenchmarkEventSource source;
+  private Event<Integer>[] events;
+  private List<Integer> data;
+
+  @Setup
+  public void setup() {
+    final BasicEventSink<Integer> sink = new BasicEventSink<>();
+    source = new BenchmarkEventSource();
+    events = BenchmarkEventSource.events(EVENTS);
+    data = sink.getData();
+
+    Epn
+      .named("Sink")
+      .fromSource(source)
+      .consumedBy(sink)
+      .start();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public List<Integer> collect() {
+    source.emit(events);
+    data.clear();
+    return data;
+  }
+
+}
@@ -0,0 +1,172 @@
+package org.epn.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.epn.api.Event;
+import org.epn.api.EventProcessor;
+import org.epn.core.pool.PooledEvent;
+import org.reactivestreams.Subscription;
+
+/**
+ * Hand-off stage that decouples its upstream from its subscribers: events are
+ * put into a bounded queue on the calling thread and delivered to subscribers
+ * on the given {@link Executor}. Delivery is serialized, so subscribers are
+ * never called concurrently and see events in arrival order.
+ * <p>
+ * If the queue is full the producer helps draining it when no worker currently
+ * does, and otherwise blocks until the active worker frees space. This keeps a
+ * pipeline of stages deadlock free even if the executor has fewer threads than
+ * there are stages. Stages that own a thread of their executor can turn this
+ * off, so their subscribers are only ever called on that thread. A producer
+ * interrupted while blocked discards the event.
+ */
+public class BasicAsyncEventProcessor<E> extends BasicEventSource<E> implements EventProcessor<E, E> {
+
+  public static final int DEFAULT_CAPACITY = 1024;
+  private static final int DRAIN_BATCH_SIZE = 64;
+
+  private final Executor executor;
+  private final boolean producerDrains;
+  private final BlockingQueue<Event<E>> queue;
+  private final Event<E>[] batch = newBatch(DRAIN_BATCH_SIZE);
+  private final ReentrantLock drainLock = new ReentrantLock();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final Runnable drainTask = () -> {
+    scheduled.set(false);
+    drain();
+  };
+
+  // events and markers taken, and those whose subscribers have returned
+  private final AtomicLong accepted = new AtomicLong();
+  private volatile long handled;
+  private volatile long delivered;
+
+  public BasicAsyncEventProcessor(final Executor executor) {
+    this(executor, DEFAULT_CAPACITY);
+  }
+
+  public BasicAsyncEventProcessor(final Executor executor, final int capacity) {
+    this(executor, capacity, true);
+  }
+
+  public BasicAsyncEventProcessor(final Executor executor, final int capacity, final boolean producerDrains) {
+    this.executor = executor;
+    this.producerDrains = producerDrains;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    s.request(Long.MAX_VALUE);
+  }
+
+  @Override
+  public void onNext(final Event<E> e) {
+    PooledEvent.retain(e);
+    accepted.incrementAndGet();
+    while (!queue.offer(e)) {
+      if (producerDrains && drain()) {
+        continue;
+      }
+      // the active worker drains until the queue is empty
+      try {
+        queue.put(e);
+        break;
+      } catch (final InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        accepted.decrementAndGet();
+        PooledEvent.release(e);
+        return;
+      }
+    }
+    schedule();
+  }
+
+  @Override
+  public void onWatermark(final long watermark) {
+    onNext(WatermarkEvent.of(watermark));
+  }
+
+  @Override
+  public void onComplete() {
+    onNext(WatermarkEvent.complete());
+  }
+
+  /**
+   * @return whether every event and watermark taken so far has been
+   *         delivered, and the subscribers have returned
+   */
+  public boolean isIdle() {
+    return handled == accepted.get();
+  }
+
+  /**
+   * @return the number of events and watermarks taken so far
+   */
+  public long getAccepted() {
+    return accepted.get();
+  }
+
+  public long getDelivered() {
+    return delivered;
+  }
+
+  /**
+   * @return the number of events waiting to be delivered
+   */
+  public int getQueued() {
+    return queue.size();
+  }
+
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true)) {
+      executor.execute(drainTask);
+    }
+  }
+
+  private boolean drain() {
+    if (!drainLock.tryLock()) {
+      return false;
+    }
+    try {
+      int n;
+      Event<E> watermark;
+      do {
+        n = 0;
+        watermark = null;
+        Event<E> e;
+        while (n < batch.length && (e = queue.poll()) != null) {
+          if (e instanceof WatermarkEvent) {
+            watermark = e;
+            break;
+          }
+          batch[n++] = e;
+        }
+        notifySubscribers(batch, n);
+        for (int i = 0; i < n; i++) {
+          PooledEvent.release(batch[i]);
+          batch[i] = null;
+        }
+        delivered += n;
+        if (WatermarkEvent.isComplete(watermark)) {
+          notifyComplete();
+        } else if (watermark != null) {
+          notifyWatermark(watermark.getTimestamp());
+        }
+        handled += (watermark == null) ? n : n + 1;
+      } while (n > 0 || watermark != null);
+    } finally {
+      drainLock.unlock();
+    }
+    if (!queue.isEmpty()) {
+      schedule();
+    }
+    return true;
+  }
+
+}
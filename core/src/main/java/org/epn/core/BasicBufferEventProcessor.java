@@ -0,0 +1,35 @@
+package org.epn.core;
+
+import org.epn.api.Event;
+import org.epn.api.EventProcessor;
+import org.reactivestreams.Subscription;
+
+/**
+ * Passes events on unchanged, but requests all events from upstream and keeps
+ * those its subscribers have no demand for in their buffers, see
+ * {@link BasicEventSource#BasicEventSource(int, OverflowStrategy)}. Lets a
+ * subscriber that requests a bounded number of events consume a source that
+ * does not wait for demand, e.g. one that emits all events in {@code start()}.
+ */
+public class BasicBufferEventProcessor<E> extends BasicEventSource<E> implements EventProcessor<E, E> {
+
+  public BasicBufferEventProcessor(final int bufferSize, final OverflowStrategy overflowStrategy) {
+    super(bufferSize, overflowStrategy);
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    s.request(Long.MAX_VALUE);
+  }
+
+  @Override
+  public void onNext(final Event<E> e) {
+    notifySubscribers(e);
+  }
+
+  @Override
+  public void onNextBatch(final Event<E>[] events, final int count) {
+    notifySubscribers(events, count);
+  }
+
+}
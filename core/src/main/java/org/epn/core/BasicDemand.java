@@ -0,0 +1,57 @@
+package org.epn.core;
+
+import org.reactivestreams.Subscription;
+
+/**
+ * Requests events from an upstream {@link Subscription} in chunks instead of
+ * one by one. The initial request is {@code batchSize} events, and consumed
+ * events are requested again once the outstanding demand drops to a quarter
+ * of the batch size. A batch size of 1 requests after every event.
+ * <p>
+ * Not thread-safe: {@link #consumed(int)} has to be called from one thread at
+ * a time, usually the subscriber's {@code onNext}.
+ */
+public class BasicDemand {
+
+  public static final int DEFAULT_BATCH_SIZE = 256;
+
+  private final int batchSize;
+  private final int limit;
+  private Subscription s;
+  private int consumed;
+
+  public BasicDemand() {
+    this(DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicDemand(final int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+    }
+    this.batchSize = batchSize;
+    this.limit = batchSize - (batchSize >> 2);
+  }
+
+  public void onSubscribe(final Subscription s) {
+    this.s = s;
+    s.request(batchSize);
+  }
+
+  public void consumed() {
+    consumed(1);
+  }
+
+  public void consumed(final int n) {
+    consumed += n;
+    if (consumed >= limit) {
+      final int c = consumed;
+      consumed = 0;
+      s.request(c);
+    }
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+}
@@ -1,13 +1,43 @@
 package org.epn.core;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.epn.api.Event;
 
+/**
+ * Immutable event. Metadata costs two long fields, headers are only allocated
+ * once the first one is added, and events derived from another event share
+ * its header map.
+ */
 public class BasicEvent<T> implements Event<T> {
 
   private final T data;
+  private final long timestamp;
+  private final long sequence;
+  private final Map<String, String> headers;
 
   public BasicEvent(final T data) {
+    this(data, NO_TIMESTAMP, NO_SEQUENCE, null);
+  }
+
+  public BasicEvent(final T data, final long timestamp, final long sequence) {
+    this(data, timestamp, sequence, null);
+  }
+
+  /**
+   * Creates an event carrying the metadata of {@code metadata}.
+   */
+  public BasicEvent(final T data, final Event<?> metadata) {
+    this(data, metadata.getTimestamp(), metadata.getSequence(), headersOf(metadata));
+  }
+
+  private BasicEvent(final T data, final long timestamp, final long sequence, final Map<String, String> headers) {
     this.data = data;
+    this.timestamp = timestamp;
+    this.sequence = sequence;
+    this.headers = headers;
   }
 
   @Override
@@ -15,6 +45,50 @@ public class BasicEvent<T> implements Event<T> {
     return data;
   }
 
+  @Override
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  @Override
+  public long getSequence() {
+    return sequence;
+  }
+
+  @Override
+  public String getHeader(final String name) {
+    return (headers == null) ? null : headers.get(name);
+  }
+
+  @Override
+  public Map<String, String> getHeaders() {
+    return (headers == null) ? Collections.emptyMap() : headers;
+  }
+
+  /**
+   * @return a copy of this event with the given header added
+   */
+  public BasicEvent<T> withHeader(final String name, final String value) {
+    final Map<String, String> copy = (headers == null) ? new HashMap<>(4) : new HashMap<>(headers);
+    copy.put(name, value);
+    return new BasicEvent<>(data, timestamp, sequence, Collections.unmodifiableMap(copy));
+  }
+
+  /**
+   * @return a copy of this event with the given timestamp
+   */
+  public BasicEvent<T> withTimestamp(final long timestamp) {
+    return new BasicEvent<>(data, timestamp, sequence, headers);
+  }
+
+  private static Map<String, String> headersOf(final Event<?> e) {
+    if (e instanceof BasicEvent) {
+      return ((BasicEvent<?>) e).headers;
+    }
+    final Map<String, String> headers = e.getHeaders();
+    return headers.isEmpty() ? null : headers;
+  }
+
   @Override
   public String toString() {
     return "Event [data=" + data + "]";
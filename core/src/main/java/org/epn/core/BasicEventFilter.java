@@ -1,5 +1,6 @@
 package org.epn.core;
 
+import java.util.Arrays;
 import java.util.function.Predicate;
 
 import org.epn.api.Event;
@@ -9,10 +10,16 @@ import org.reactivestreams.Subscription;
 public class BasicEventFilter<I> extends BasicEventSource<I> implements EventProcessor<I, I> {
 
   private final Predicate<I> p;
-  private Subscription s;
+  private final BasicDemand demand;
+  private Event<I>[] batch = newBatch(0);
 
   public BasicEventFilter(final Predicate<I> p) {
+    this(p, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicEventFilter(final Predicate<I> p, final int batchSize) {
     this.p = p;
+    this.demand = new BasicDemand(batchSize);
   }
 
   @Override
@@ -20,13 +27,28 @@ public class BasicEventFilter<I> extends BasicEventSource<I> implements EventPro
     if (p.test(t.get())) {
       notifySubscribers(t);
     }
-    s.request(1);
+    demand.consumed();
+  }
+
+  @Override
+  public void onNextBatch(final Event<I>[] events, final int count) {
+    if (batch.length < count) {
+      batch = newBatch(count);
+    }
+    int n = 0;
+    for (int i = 0; i < count; i++) {
+      if (p.test(events[i].get())) {
+        batch[n++] = events[i];
+      }
+    }
+    notifySubscribers(batch, n);
+    Arrays.fill(batch, 0, n, null);
+    demand.consumed(count);
   }
 
   @Override
   public void onSubscribe(final Subscription s) {
-    this.s = s;
-    s.request(1);
+    demand.onSubscribe(s);
   }
 
 }
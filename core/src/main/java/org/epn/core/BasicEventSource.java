@@ -1,33 +1,137 @@
 package org.epn.core;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.epn.api.Event;
+import org.epn.api.EventSink;
 import org.epn.api.EventSource;
+import org.epn.core.metrics.Meter;
+import org.epn.core.pool.PooledEvent;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+/**
+ * Base class of all sources and processors. Subscriptions are kept in an
+ * array that is replaced as a whole on subscribe and cancel, so emitting an
+ * event is a plain loop over the current array.
+ */
 public class BasicEventSource<E> implements EventSource<E> {
 
-  protected final Map<Subscriber<? super Event<E>>, AtomicLong> subscribers = new ConcurrentHashMap<>();
+  /**
+   * What to do with an event for a subscriber that has no outstanding demand
+   * and a full buffer.
+   */
+  public enum OverflowStrategy {
+    /**
+     * Block the emitting thread until the subscriber requests more. The
+     * request has to come from another thread: a subscriber that requests
+     * only once the emitting thread delivers demand from further downstream
+     * blocks it forever.
+     */
+    BLOCK,
+    /** Evict the oldest buffered event. */
+    DROP_OLDEST,
+    /** Discard the new event. */
+    DROP_NEWEST,
+    /** Cancel the subscription and signal an error to the subscriber. */
+    FAIL,
+    /** Move the event to an unbounded overflow queue drained after the buffer. */
+    SPILL;
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static final BasicEventSubscription[] NO_SUBSCRIPTIONS = new BasicEventSubscription[0];
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<BasicEventSource, BasicEventSubscription[]> SUBSCRIPTIONS =
+      AtomicReferenceFieldUpdater.newUpdater(BasicEventSource.class, BasicEventSubscription[].class, "subscriptions");
+
+  @SuppressWarnings("unchecked")
+  private volatile BasicEventSubscription<E>[] subscriptions = NO_SUBSCRIPTIONS;
+
+  private final int bufferSize;
+  private final OverflowStrategy overflowStrategy;
+  private final LongAdder dropped = new LongAdder();
+  private Meter meter;
+
+  public BasicEventSource() {
+    this(0, OverflowStrategy.DROP_NEWEST);
+  }
+
+  /**
+   * @param bufferSize
+   *          number of events buffered per subscriber while it has no demand,
+   *          0 to drop them right away
+   * @param overflowStrategy
+   *          applied once a subscriber's buffer is full
+   */
+  public BasicEventSource(final int bufferSize, final OverflowStrategy overflowStrategy) {
+    this.bufferSize = bufferSize;
+    this.overflowStrategy = overflowStrategy;
+  }
 
   @Override
   public void subscribe(final Subscriber<? super Event<E>> s) {
-    subscribers.put(s, new AtomicLong());
-    final Subscription subscription = new Subscription() {
-      @Override
-      public void request(final long n) {
-        subscribers.get(s).addAndGet(n);
+    final BasicEventSubscription<E> subscription = new BasicEventSubscription<>(this, s);
+    add(subscription);
+    onNewSubscription(s, subscription);
+  }
+
+  /**
+   * @return the current subscriptions, to be iterated but never modified
+   */
+  protected BasicEventSubscription<E>[] getSubscriptions() {
+    return subscriptions;
+  }
+
+  /**
+   * Cancels all subscriptions of {@code subscriber}, as if it had cancelled
+   * them itself.
+   */
+  public void unsubscribe(final Subscriber<?> subscriber) {
+    for (final BasicEventSubscription<E> subscription : subscriptions) {
+      if (subscription.getSubscriber() == subscriber) {
+        subscription.cancel();
       }
+    }
+  }
 
-      @Override
-      public void cancel() {
-        subscribers.remove(s);
+  private void add(final BasicEventSubscription<E> subscription) {
+    BasicEventSubscription<E>[] current, next;
+    do {
+      current = subscriptions;
+      next = Arrays.copyOf(current, current.length + 1);
+      next[current.length] = subscription;
+    } while (!SUBSCRIPTIONS.compareAndSet(this, current, next));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void remove(final BasicEventSubscription<E> subscription) {
+    BasicEventSubscription<E>[] current, next;
+    do {
+      current = subscriptions;
+      int i = 0;
+      while (i < current.length && current[i] != subscription) {
+        i++;
       }
-    };
-    onNewSubscription(s, subscription);
+      if (i == current.length) {
+        return;
+      }
+      if (current.length == 1) {
+        next = NO_SUBSCRIPTIONS;
+      } else {
+        next = Arrays.copyOf(current, current.length - 1);
+        System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+      }
+    } while (!SUBSCRIPTIONS.compareAndSet(this, current, next));
   }
 
   protected void onNewSubscription(final Subscriber<? super Event<E>> subscriber, final Subscription subscription) {
@@ -35,19 +139,456 @@ public class BasicEventSource<E> implements EventSource<E> {
   }
 
   protected void notifySubscribers(final Event<E> data) {
-    subscribers.forEach((s, d) -> notifySubscriber(s, d, data));
+    final BasicEventSubscription<E>[] subscriptions = this.subscriptions;
+    if (subscriptions.length > 1) {
+      PooledEvent.share(data);
+    }
+    if (meter == null) {
+      for (final BasicEventSubscription<E> subscription : subscriptions) {
+        subscription.onNext(data);
+      }
+      return;
+    }
+    final long start = meter.emitting(1);
+    for (final BasicEventSubscription<E> subscription : subscriptions) {
+      subscription.onNext(data);
+    }
+    meter.emitted(start);
+  }
+
+  /**
+   * Notifies subscribers of the first {@code count} events of {@code events}.
+   * Subscribers that are {@link EventSink}s and have enough demand receive
+   * them in one {@link EventSink#onNextBatch(Event[], int)} call.
+   */
+  protected void notifySubscribers(final Event<E>[] events, final int count) {
+    if (count > 0) {
+      final BasicEventSubscription<E>[] subscriptions = this.subscriptions;
+      if (subscriptions.length > 1) {
+        for (int i = 0; i < count; i++) {
+          PooledEvent.share(events[i]);
+        }
+      }
+      final long start = (meter == null) ? 0 : meter.emitting(count);
+      for (final BasicEventSubscription<E> subscription : subscriptions) {
+        subscription.onNextBatch(events, count);
+      }
+      if (meter != null) {
+        meter.emitted(start);
+      }
+    }
+  }
+
+  /**
+   * Forwards a watermark to all subscribers that are {@link EventSink}s, after
+   * the events notified before it. Processors inherit this as their
+   * {@link EventSink#onWatermark(long)}, so they pass watermarks on unless
+   * they override it.
+   */
+  public void onWatermark(final long watermark) {
+    notifyWatermark(watermark);
   }
 
-  protected void notifySubscriber(final Subscriber<? super Event<E>> subscriber, final AtomicLong demand,
-      final Event<E> data) {
-    if (demand.get() > 0) {
-      subscriber.onNext(data);
-      decreaseDemand(subscriber);
+  protected void notifyWatermark(final long watermark) {
+    for (final BasicEventSubscription<E> subscription : subscriptions) {
+      subscription.onWatermark(watermark);
     }
   }
 
-  protected void decreaseDemand(final Subscriber<? super Event<E>> s) {
-    subscribers.get(s).decrementAndGet();
+  /**
+   * Signals all subscribers that no more events follow, after the events
+   * notified before. Processors inherit this as their
+   * {@link Subscriber#onComplete()}, so they pass completion on unless they
+   * override it.
+   */
+  public void onComplete() {
+    notifyComplete();
+  }
+
+  protected void notifyComplete() {
+    for (final BasicEventSubscription<E> subscription : subscriptions) {
+      subscription.onComplete();
+    }
+  }
+
+  /**
+   * Counts the events this source emits with {@code meter}. Must be set
+   * before events are emitted; without a meter nothing is counted.
+   */
+  public void setMeter(final Meter meter) {
+    this.meter = meter;
+  }
+
+  protected Meter getMeter() {
+    return meter;
+  }
+
+  @SuppressWarnings("unchecked")
+  protected static <T> Event<T>[] newBatch(final int size) {
+    return (Event<T>[]) new Event<?>[size];
+  }
+
+  /**
+   * @return the number of events currently buffered for all subscribers
+   */
+  public long getBuffered() {
+    return Arrays.stream(subscriptions).mapToLong(BasicEventSubscription::getBuffered).sum();
+  }
+
+  /**
+   * @return the number of events dropped for any subscriber since creation
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * Per subscriber demand and buffer. Events are delivered directly while the
+   * subscriber has demand and nothing is buffered, and otherwise queued and
+   * drained when {@link #request(long)} arrives. Delivery is serialized, so
+   * requests from other threads never lead to concurrent {@code onNext} calls.
+   * Completion is signalled once the buffer is drained.
+   */
+  protected static class BasicEventSubscription<E> implements Subscription {
+
+    private final BasicEventSource<E> source;
+    private final Subscriber<? super Event<E>> subscriber;
+    private final EventSink<E> batchSubscriber;
+    // written by the emitting and the requesting thread
+    private final PaddedAtomicLong demand = new PaddedAtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final BlockingQueue<Event<E>> buffer;
+    private final Queue<Event<E>> spill;
+    private final AtomicLong dropped = new AtomicLong();
+    // a watermark that found the buffer full, delivered once it is drained
+    private final AtomicLong pendingWatermark = new AtomicLong(Long.MIN_VALUE);
+
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+    private volatile boolean complete;
+
+    protected BasicEventSubscription(final BasicEventSource<E> source, final Subscriber<? super Event<E>> subscriber) {
+      this.source = source;
+      this.subscriber = subscriber;
+      this.batchSubscriber = asEventSink(subscriber);
+      this.buffer = (source.bufferSize > 0) ? new ArrayBlockingQueue<>(source.bufferSize) : null;
+      this.spill = (source.overflowStrategy == OverflowStrategy.SPILL) ? new ConcurrentLinkedQueue<>() : null;
+    }
+
+    @Override
+    public void request(final long n) {
+      if (n <= 0) {
+        source.remove(this);
+        error = new IllegalArgumentException("Non-positive request: " + n);
+        drain();
+        return;
+      }
+
+      long current, next;
+      do {
+        current = demand.get();
+        next = current + n;
+        if (next < 0) {
+          next = Long.MAX_VALUE;
+        }
+      } while (!demand.compareAndSet(current, next));
+
+      if (buffer != null) {
+        drain();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      source.remove(this);
+    }
+
+    public Subscriber<? super Event<E>> getSubscriber() {
+      return subscriber;
+    }
+
+    /**
+     * @return the number of events the subscriber has requested but not yet
+     *         received
+     */
+    public long getDemand() {
+      return demand.get();
+    }
+
+    public long getBuffered() {
+      return (buffer == null) ? 0 : buffer.size() + ((spill == null) ? 0 : spill.size());
+    }
+
+    public long getDropped() {
+      return dropped.get();
+    }
+
+    public void onNext(final Event<E> e) {
+      if (buffer == null) {
+        if (demand.get() > 0) {
+          deliver(e);
+        } else {
+          drop();
+        }
+        return;
+      }
+
+      if (isBufferEmpty() && wip.compareAndSet(0, 1)) {
+        if (demand.get() > 0) {
+          deliver(e);
+        } else {
+          PooledEvent.retain(e);
+          buffer.offer(e);
+        }
+        drainLoop(wip.decrementAndGet());
+        return;
+      }
+
+      enqueue(e);
+      drain();
+    }
+
+    public void onNextBatch(final Event<E>[] events, final int count) {
+      if (batchSubscriber != null) {
+        if (buffer == null) {
+          if (tryConsume(count)) {
+            batchSubscriber.onNextBatch(events, count);
+            return;
+          }
+        } else if (isBufferEmpty() && wip.compareAndSet(0, 1)) {
+          final boolean consumed = tryConsume(count);
+          if (consumed) {
+            batchSubscriber.onNextBatch(events, count);
+          }
+          drainLoop(wip.decrementAndGet());
+          if (consumed) {
+            return;
+          }
+        }
+      }
+
+      for (int i = 0; i < count; i++) {
+        onNext(events[i]);
+      }
+    }
+
+    public void onWatermark(final long watermark) {
+      if (batchSubscriber == null) {
+        return;
+      }
+      if (buffer == null) {
+        batchSubscriber.onWatermark(watermark);
+        return;
+      }
+
+      // replaces a watermark still waiting for room
+      pendingWatermark.set(Long.MIN_VALUE);
+      if (isBufferEmpty() && wip.compareAndSet(0, 1)) {
+        batchSubscriber.onWatermark(watermark);
+        drainLoop(wip.decrementAndGet());
+        return;
+      }
+
+      final Event<E> marker = WatermarkEvent.of(watermark);
+      if (spill != null && (!spill.isEmpty() || !buffer.offer(marker))) {
+        spill.offer(marker);
+      } else if (spill == null && !buffer.offer(marker)) {
+        // waits until the buffer is drained, delivering it late is safe
+        pendingWatermark.set(watermark);
+      }
+      drain();
+    }
+
+    public void onComplete() {
+      if (buffer == null) {
+        if (!cancelled) {
+          subscriber.onComplete();
+        }
+        return;
+      }
+      complete = true;
+      drain();
+    }
+
+    /**
+     * Claims one unit of demand so that the caller can deliver an event
+     * directly, e.g. through a primitive channel. Fails if the subscription is
+     * buffered, as buffered events have to be delivered in order, or if there
+     * is no demand.
+     */
+    public boolean tryClaim() {
+      return buffer == null && tryConsume(1);
+    }
+
+    /**
+     * Counts an event as dropped without it being created, if the
+     * subscription would drop it anyway because it is unbuffered and has no
+     * demand.
+     */
+    public boolean tryDrop() {
+      if (buffer != null || demand.get() > 0) {
+        return false;
+      }
+      drop();
+      return true;
+    }
+
+    private boolean tryConsume(final int n) {
+      for (;;) {
+        final long current = demand.get();
+        if (current == Long.MAX_VALUE) {
+          return true;
+        }
+        if (current < n) {
+          return false;
+        }
+        if (demand.compareAndSet(current, current - n)) {
+          return true;
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> EventSink<E> asEventSink(final Subscriber<? super Event<E>> subscriber) {
+      return (subscriber instanceof EventSink) ? (EventSink<E>) (Subscriber<?>) subscriber : null;
+    }
+
+    private void enqueue(final Event<E> e) {
+      PooledEvent.retain(e);
+      if (spill != null && !spill.isEmpty()) {
+        spill.offer(e);
+        return;
+      }
+
+      if (buffer.offer(e)) {
+        return;
+      }
+
+      switch (source.overflowStrategy) {
+      case BLOCK:
+        try {
+          buffer.put(e);
+        } catch (final InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          drop(e);
+        }
+        break;
+      case DROP_OLDEST:
+        do {
+          final Event<E> oldest = buffer.poll();
+          if (oldest instanceof WatermarkEvent) {
+            // delivering it once the buffer is drained is safe
+            pendingWatermark.accumulateAndGet(oldest.getTimestamp(), Math::max);
+          } else if (oldest != null) {
+            drop(oldest);
+          }
+        } while (!buffer.offer(e));
+        break;
+      case DROP_NEWEST:
+        drop(e);
+        break;
+      case FAIL:
+        drop(e);
+        source.remove(this);
+        error = new IllegalStateException("Buffer of " + source.bufferSize + " events exceeded for " + subscriber);
+        break;
+      case SPILL:
+        spill.offer(e);
+        break;
+      }
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() == 0) {
+        drainLoop(1);
+      }
+    }
+
+    private void drainLoop(int missed) {
+      while (missed != 0) {
+        if (error != null) {
+          discardBuffer();
+          if (!cancelled) {
+            cancelled = true;
+            subscriber.onError(error);
+          }
+        } else {
+          // watermarks take no demand, only events ahead of them hold them back
+          while (!cancelled) {
+            final Event<E> e = peek();
+            if (e == null) {
+              final long watermark = pendingWatermark.getAndSet(Long.MIN_VALUE);
+              if (watermark != Long.MIN_VALUE) {
+                batchSubscriber.onWatermark(watermark);
+              }
+              break;
+            }
+            if (e instanceof WatermarkEvent) {
+              poll();
+              batchSubscriber.onWatermark(e.getTimestamp());
+            } else if (demand.get() > 0) {
+              poll();
+              deliver(e);
+              PooledEvent.release(e);
+            } else {
+              break;
+            }
+          }
+          if (complete && !cancelled && isBufferEmpty() && pendingWatermark.get() == Long.MIN_VALUE) {
+            cancelled = true;
+            subscriber.onComplete();
+          }
+        }
+        missed = wip.addAndGet(-missed);
+      }
+    }
+
+    private Event<E> poll() {
+      if (buffer == null) {
+        return null;
+      }
+      final Event<E> e = buffer.poll();
+      return (e != null || spill == null) ? e : spill.poll();
+    }
+
+    private Event<E> peek() {
+      if (buffer == null) {
+        return null;
+      }
+      final Event<E> e = buffer.peek();
+      return (e != null || spill == null) ? e : spill.peek();
+    }
+
+    private boolean isBufferEmpty() {
+      return buffer.isEmpty() && (spill == null || spill.isEmpty());
+    }
+
+    private void discardBuffer() {
+      Event<E> e;
+      while ((e = poll()) != null) {
+        if (!(e instanceof WatermarkEvent)) {
+          drop(e);
+        }
+      }
+    }
+
+    private void deliver(final Event<E> e) {
+      if (demand.get() != Long.MAX_VALUE) {
+        demand.decrementAndGet();
+      }
+      subscriber.onNext(e);
+    }
+
+    private void drop() {
+      dropped.incrementAndGet();
+      source.dropped.increment();
+    }
+
+    private void drop(final Event<E> buffered) {
+      PooledEvent.release(buffered);
+      drop();
+    }
   }
 
 }
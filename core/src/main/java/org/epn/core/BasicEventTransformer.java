@@ -1,31 +1,59 @@
 package org.epn.core;
 
+import java.util.Arrays;
 import java.util.function.Function;
 
 import org.epn.api.Event;
 import org.epn.api.EventProcessor;
+import org.epn.core.pool.PooledEvent;
 import org.reactivestreams.Subscription;
 
 public class BasicEventTransformer<I, O> extends BasicEventSource<O> implements EventProcessor<I, O> {
 
   private final Function<Event<I>, Event<O>> f;
-  private Subscription s;
+  private final BasicDemand demand;
+  private Event<O>[] batch = newBatch(0);
+
+  /**
+   * @return a function that maps the data of an event and keeps its metadata,
+   *         see {@link PooledEvent#derive(Event, Object)}
+   */
+  public static <I, O> Function<Event<I>, Event<O>> mapping(final Function<I, O> f) {
+    return e -> PooledEvent.derive(e, f.apply(e.get()));
+  }
 
   public BasicEventTransformer(final Function<Event<I>, Event<O>> f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicEventTransformer(final Function<Event<I>, Event<O>> f, final int batchSize) {
     this.f = f;
+    this.demand = new BasicDemand(batchSize);
   }
 
   @Override
   public void onNext(final Event<I> e) {
     final Event<O> o = f.apply(e);
     notifySubscribers(o);
-    s.request(1);
+    demand.consumed();
+  }
+
+  @Override
+  public void onNextBatch(final Event<I>[] events, final int count) {
+    if (batch.length < count) {
+      batch = newBatch(count);
+    }
+    for (int i = 0; i < count; i++) {
+      batch[i] = f.apply(events[i]);
+    }
+    notifySubscribers(batch, count);
+    Arrays.fill(batch, 0, count, null);
+    demand.consumed(count);
   }
 
   @Override
   public void onSubscribe(final Subscription s) {
-    this.s = s;
-    s.request(1);
+    demand.onSubscribe(s);
   }
 
 }
@@ -1,21 +1,35 @@
 package org.epn.core;
 
-import java.util.LinkedList;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 import org.epn.api.Event;
 import org.epn.api.EventSink;
 import org.epn.api.EventSource;
 import org.epn.api.FanInEventProcessor;
+import org.epn.core.pool.PooledEvent;
 import org.reactivestreams.Subscription;
 
+/**
+ * Pairs the n-th event of the top input with the n-th event of the bottom
+ * input. Each input is buffered in a bounded {@link SpscRingBuffer} and only
+ * as many events are requested from it as fit into its buffer, so a faster
+ * input is held back by backpressure instead of being buffered without bound.
+ * Inputs may emit from different threads; pairs are emitted by one thread at a
+ * time. The fan-in completes once both inputs have.
+ */
 public class BasicFanInEventProcessor<E> extends BasicEventSource<E> implements FanInEventProcessor<E> {
 
-  private final LinkedList<E> dataTop = new LinkedList<>();
-  private final LinkedList<E> dataBottom = new LinkedList<>();
+  private final Input top;
+  private final Input bottom;
   private final Optional<BiFunction<E, E, E>> combiner;
+  private final AtomicInteger wip = new AtomicInteger();
+  private long watermark = Long.MIN_VALUE;
+  private boolean complete;
 
   public BasicFanInEventProcessor(final EventSource<E> top, final EventSource<E> bottom) {
     this(top, bottom, Optional.empty());
@@ -30,55 +44,202 @@ public class BasicFanInEventProcessor<E> extends BasicEventSource<E> implements
   public BasicFanInEventProcessor(final EventSource<E> top, final EventSource<E> bottom,
       final Optional<BiFunction<E, E, E>> combiner) {
 
-    top.subscribe(new FanInEventSink<>(e -> {
-      dataTop.add(e);
-      onNext();
-    }));
+    this(top, bottom, combiner, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
 
-    bottom.subscribe(new FanInEventSink<>(e -> {
-      dataBottom.add(e);
-      onNext();
-    }));
+  /**
+   * @param batchSize
+   *          capacity of the buffer of each input, rounded up to a power of two
+   */
+  public BasicFanInEventProcessor(final EventSource<E> top, final EventSource<E> bottom,
+      final Optional<BiFunction<E, E, E>> combiner, final int batchSize) {
 
     this.combiner = combiner;
+    this.top = new Input(batchSize);
+    this.bottom = new Input(batchSize);
+    top.subscribe(this.top);
+    bottom.subscribe(this.bottom);
+  }
+
+  /**
+   * @return the number of events buffered for both inputs
+   */
+  public long getPending() {
+    return top.buffer.size() + bottom.buffer.size();
   }
 
-  private void onNext() {
-    if (!dataTop.isEmpty() && !dataBottom.isEmpty()) {
-      final E topEvent = dataTop.poll();
-      final E bottomEvent = dataBottom.poll();
-      final Optional<E> combined = combiner.map(c -> {
-        return c.apply(topEvent, bottomEvent);
-      });
-
-      combined.ifPresent(e -> notifySubscribers(new BasicEvent<E>(e)));
-      if (!combined.isPresent()) {
-        notifySubscribers(new BasicEvent<E>(topEvent));
-        notifySubscribers(new BasicEvent<E>(bottomEvent));
+  private void drain() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      int paired = 0;
+      while (!top.buffer.isEmpty() && !bottom.buffer.isEmpty()) {
+        emit(top.buffer.poll(), bottom.buffer.poll());
+        paired++;
+      }
+      if (paired > 0) {
+        top.demand.consumed(paired);
+        bottom.demand.consumed(paired);
+      }
+      forwardWatermark();
+      if (!complete && top.complete && bottom.complete) {
+        complete = true;
+        // events left unpaired are never emitted, so they hold back no watermark
+        top.releaseWatermark();
+        bottom.releaseWatermark();
+        forwardWatermark();
+        notifyComplete();
       }
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  /**
+   * A combined event carries the metadata of the later of the two events, or
+   * of the top event if both have the same timestamp. Without a combiner both
+   * events are forwarded as they are. Pooled events are retained while they
+   * are buffered, and a pooled later event takes the combined value in place.
+   */
+  private void emit(final Event<E> topEvent, final Event<E> bottomEvent) {
+    if (combiner.isPresent()) {
+      final Event<E> later = (bottomEvent.getTimestamp() > topEvent.getTimestamp()) ? bottomEvent : topEvent;
+      notifySubscribers(PooledEvent.derive(later, combiner.get().apply(topEvent.get(), bottomEvent.get())));
+    } else {
+      notifySubscribers(topEvent);
+      notifySubscribers(bottomEvent);
+    }
+    PooledEvent.release(topEvent);
+    PooledEvent.release(bottomEvent);
+  }
+
+  /**
+   * Forwards the minimum of the watermarks of both inputs, each taking effect
+   * once the events received before it have been paired.
+   */
+  private void forwardWatermark() {
+    final long min = Math.min(top.watermark(), bottom.watermark());
+    if (min > watermark) {
+      watermark = min;
+      notifyWatermark(min);
+    }
+  }
+
+  private final class Input implements EventSink<E> {
+
+    private final SpscRingBuffer<Event<E>> buffer;
+    private final BasicDemand demand;
+    private final AtomicReference<PendingWatermark> pending = new AtomicReference<>();
+    private long watermark = Long.MIN_VALUE;
+    private volatile boolean complete;
+
+    Input(final int batchSize) {
+      this.buffer = new SpscRingBuffer<>(batchSize);
+      this.demand = new BasicDemand(buffer.capacity());
+    }
+
+    @Override
+    public void onSubscribe(final Subscription s) {
+      demand.onSubscribe(s);
+    }
+
+    @Override
+    public void onNext(final Event<E> event) {
+      PooledEvent.retain(event);
+      if (!buffer.offer(event)) {
+        throw new IllegalStateException("Fan-in input received more events than requested");
+      }
+      drain();
+    }
+
+    @Override
+    public void onWatermark(final long next) {
+      pending.set(new PendingWatermark(buffer.getProduced(), next));
+      drain();
+    }
+
+    @Override
+    public void onComplete() {
+      complete = true;
+      drain();
+    }
+
+    /**
+     * Called from the draining thread only.
+     */
+    long watermark() {
+      final PendingWatermark p = pending.get();
+      if (p != null && buffer.getConsumed() >= p.position && p.value > watermark) {
+        watermark = p.value;
+        pending.compareAndSet(p, null);
+      }
+      return watermark;
+    }
+
+    /**
+     * Called from the draining thread only.
+     */
+    void releaseWatermark() {
+      final PendingWatermark p = pending.getAndSet(null);
+      if (p != null && p.value > watermark) {
+        watermark = p.value;
+      }
+    }
+  }
+
+  private static final class PendingWatermark {
+    final long position;
+    final long value;
+
+    PendingWatermark(final long position, final long value) {
+      this.position = position;
+      this.value = value;
     }
   }
 
   public static class FanInEventSink<E> implements EventSink<E> {
 
-    private Subscription s;
-    private final Consumer<E> consumer;
+    private final Consumer<Event<E>> consumer;
+    private final LongConsumer watermarks;
+    private final Runnable completion;
+    private final BasicDemand demand;
+
+    public FanInEventSink(final Consumer<Event<E>> consumer) {
+      this(consumer, w -> {}, BasicDemand.DEFAULT_BATCH_SIZE);
+    }
 
-    public FanInEventSink(final Consumer<E> consumer) {
+    public FanInEventSink(final Consumer<Event<E>> consumer, final LongConsumer watermarks, final int batchSize) {
+      this(consumer, watermarks, () -> {}, batchSize);
+    }
+
+    public FanInEventSink(final Consumer<Event<E>> consumer, final LongConsumer watermarks,
+        final Runnable completion, final int batchSize) {
       this.consumer = consumer;
+      this.watermarks = watermarks;
+      this.completion = completion;
+      this.demand = new BasicDemand(batchSize);
     }
 
     @Override
     public void onSubscribe(final Subscription s) {
-      this.s = s;
-      s.request(1);
-
+      demand.onSubscribe(s);
     }
 
     @Override
     public void onNext(final Event<E> event) {
-      consumer.accept(event.get());
-      s.request(1);
+      consumer.accept(event);
+      demand.consumed();
+    }
+
+    @Override
+    public void onWatermark(final long watermark) {
+      watermarks.accept(watermark);
+    }
+
+    @Override
+    public void onComplete() {
+      completion.run();
     }
 
   }
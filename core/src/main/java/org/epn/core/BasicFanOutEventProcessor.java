@@ -1,14 +1,18 @@
 package org.epn.core;
 
+import java.util.Arrays;
 import java.util.Optional;
 
 import org.epn.api.Event;
 import org.epn.api.FanOutEventProcessor;
+import org.epn.core.pool.PooledEvent;
 import org.reactivestreams.Subscription;
 
 public class BasicFanOutEventProcessor<E> extends BasicBiEventSource<E> implements FanOutEventProcessor<E> {
 
-  private Subscription subscription;
+  private final BasicDemand demand;
+  private Event<E>[] topBatch = BasicEventSource.newBatch(0);
+  private Event<E>[] bottomBatch = BasicEventSource.newBatch(0);
   
   public enum Outlet {
     TOP,
@@ -24,17 +28,35 @@ public class BasicFanOutEventProcessor<E> extends BasicBiEventSource<E> implemen
   private Optional<OutletSelector<E>> selector;
   
   public BasicFanOutEventProcessor() {
-    this.selector = Optional.empty();
+    this(BasicDemand.DEFAULT_BATCH_SIZE);
   }
   
   public BasicFanOutEventProcessor(OutletSelector<E> selector) {
-    this.selector =  Optional.of(selector);
+    this(selector, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicFanOutEventProcessor(final int batchSize) {
+    this.selector = Optional.empty();
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  public BasicFanOutEventProcessor(final OutletSelector<E> selector, final int batchSize) {
+    this.selector = Optional.of(selector);
+    this.demand = new BasicDemand(batchSize);
   }
   
+  /**
+   * @return the selector of outlets, or nothing if events go to both
+   */
+  public Optional<OutletSelector<E>> getSelector() {
+    return selector;
+  }
+
   @Override
   public void onNext(Event<E> event) {
     final Outlet outlet = selector.orElse(e -> Outlet.BOTH).select(event.get());
     if (outlet == Outlet.BOTH) {
+      PooledEvent.share(event);
       top.notifySubscribers(event);
       bottom.notifySubscribers(event);
     }
@@ -42,13 +64,61 @@ public class BasicFanOutEventProcessor<E> extends BasicBiEventSource<E> implemen
       final BasicEventSource<E> source = (outlet == Outlet.TOP) ? top : bottom; 
       source.notifySubscribers(event);
     }
-    subscription.request(1);
+    demand.consumed();
+  }
+
+  @Override
+  public void onNextBatch(final Event<E>[] events, final int count) {
+    if (!selector.isPresent()) {
+      for (int i = 0; i < count; i++) {
+        PooledEvent.share(events[i]);
+      }
+      top.notifySubscribers(events, count);
+      bottom.notifySubscribers(events, count);
+      demand.consumed(count);
+      return;
+    }
+
+    if (topBatch.length < count) {
+      topBatch = BasicEventSource.newBatch(count);
+      bottomBatch = BasicEventSource.newBatch(count);
+    }
+    int t = 0;
+    int b = 0;
+    for (int i = 0; i < count; i++) {
+      final Outlet outlet = selector.get().select(events[i].get());
+      if (outlet == Outlet.BOTH) {
+        PooledEvent.share(events[i]);
+      }
+      if (outlet != Outlet.BOTTOM) {
+        topBatch[t++] = events[i];
+      }
+      if (outlet != Outlet.TOP) {
+        bottomBatch[b++] = events[i];
+      }
+    }
+    top.notifySubscribers(topBatch, t);
+    bottom.notifySubscribers(bottomBatch, b);
+    Arrays.fill(topBatch, 0, t, null);
+    Arrays.fill(bottomBatch, 0, b, null);
+    demand.consumed(count);
   }
   
+  @Override
+  public void onWatermark(final long watermark) {
+    top.notifyWatermark(watermark);
+    bottom.notifyWatermark(watermark);
+  }
+
+  @Override
+  public void onComplete() {
+    top.notifyComplete();
+    bottom.notifyComplete();
+  }
+
   @Override
   public void onSubscribe(Subscription s) {
-    this.subscription = s;
-    s.request(1);
+    demand.onSubscribe(s);
   }
   
 }
@@ -0,0 +1,112 @@
+package org.epn.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.epn.api.Event;
+import org.epn.api.EventProcessor;
+import org.epn.core.pool.PooledEvent;
+import org.reactivestreams.Subscription;
+
+/**
+ * Applies a chain of filters and transformations in a single processor. The
+ * chain is composed into one function up front, and an {@link Event} is only
+ * created at the end of the chain, and only if it contains a transformation.
+ * It carries the metadata of the original event. A {@link PooledEvent} no
+ * other subscriber sees takes the result in place instead.
+ */
+public class BasicFusedEventProcessor<I, O> extends BasicEventSource<O> implements EventProcessor<I, O> {
+
+  private static final Object DROPPED = new Object();
+
+  private final Function<Object, Object> f;
+  private final boolean transforming;
+  private final BasicDemand demand;
+  private Event<O>[] batch = newBatch(0);
+
+  public BasicFusedEventProcessor(final List<Operator> operators) {
+    this(operators, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicFusedEventProcessor(final List<Operator> operators, final int batchSize) {
+    this.f = operators.stream().map(o -> o.f).reduce(BasicFusedEventProcessor::compose)
+        .orElse(Function.identity());
+    this.transforming = operators.stream().anyMatch(o -> o.transforming);
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNext(final Event<I> e) {
+    final Event<O> o = apply(e);
+    if (o != null) {
+      notifySubscribers(o);
+    }
+    demand.consumed();
+  }
+
+  @Override
+  public void onNextBatch(final Event<I>[] events, final int count) {
+    if (batch.length < count) {
+      batch = newBatch(count);
+    }
+    int n = 0;
+    for (int i = 0; i < count; i++) {
+      final Event<O> o = apply(events[i]);
+      if (o != null) {
+        batch[n++] = o;
+      }
+    }
+    notifySubscribers(batch, n);
+    Arrays.fill(batch, 0, n, null);
+    demand.consumed(count);
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Event<O> apply(final Event<I> e) {
+    final Object o = f.apply(e.get());
+    if (o == DROPPED) {
+      return null;
+    }
+    return transforming ? PooledEvent.derive(e, (O) o) : (Event<O>) e;
+  }
+
+  private static Function<Object, Object> compose(final Function<Object, Object> first,
+      final Function<Object, Object> second) {
+    return v -> {
+      final Object o = first.apply(v);
+      return (o == DROPPED) ? o : second.apply(o);
+    };
+  }
+
+  /**
+   * A filter or transformation that can be fused with its neighbours.
+   */
+  public static final class Operator {
+
+    private final Function<Object, Object> f;
+    private final boolean transforming;
+
+    private Operator(final Function<Object, Object> f, final boolean transforming) {
+      this.f = f;
+      this.transforming = transforming;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> Operator filter(final Predicate<E> p) {
+      return new Operator(v -> p.test((E) v) ? v : DROPPED, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <I, O> Operator transform(final Function<I, O> f) {
+      return new Operator(v -> f.apply((I) v), true);
+    }
+  }
+
+}
@@ -0,0 +1,211 @@
+package org.epn.core;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.epn.api.Event;
+import org.epn.api.EventSource;
+import org.epn.api.FanInEventProcessor;
+import org.epn.core.BasicFanInEventProcessor.FanInEventSink;
+import org.epn.core.pool.PooledEvent;
+
+/**
+ * Joins events of both inputs that have equal keys and timestamps at most a
+ * window apart. Each input is kept in a hash index by key, so an event is
+ * matched against the other input's events of the same key only. The events
+ * of an input are evicted once they are older than the window relative to the
+ * progress of the other input, i.e. the higher of its watermark and its highest
+ * timestamp, so an input may lag behind the other by any amount. An event that
+ * arrives more than a window behind the highest timestamp of its own input may
+ * miss matches. Once an input completes, the other's events are no longer
+ * kept. An input that sends nothing for the idle timeout no longer holds back
+ * the eviction of the other's events, which are then evicted relative to the
+ * progress of their own input. Events without a timestamp are stamped with
+ * their arrival time. The join completes once both inputs have.
+ */
+public class BasicKeyedJoinEventProcessor<E> extends BasicEventSource<E> implements FanInEventProcessor<E> {
+
+  private final Side<E> top;
+  private final Side<E> bottom;
+  private final long window;
+  private final Optional<BiFunction<E, E, E>> combiner;
+  private final LongSupplier clock;
+  private final long idleTimeout;
+
+  private long watermark = Long.MIN_VALUE;
+  private int incomplete = 2;
+
+  public BasicKeyedJoinEventProcessor(final EventSource<E> top, final EventSource<E> bottom,
+      final Function<E, ?> keyTop, final Function<E, ?> keyBottom, final long window,
+      final Optional<BiFunction<E, E, E>> combiner) {
+
+    this(top, bottom, keyTop, keyBottom, window, combiner, System::currentTimeMillis, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicKeyedJoinEventProcessor(final EventSource<E> top, final EventSource<E> bottom,
+      final Function<E, ?> keyTop, final Function<E, ?> keyBottom, final long window,
+      final Optional<BiFunction<E, E, E>> combiner, final LongSupplier clock, final int batchSize) {
+
+    this(top, bottom, keyTop, keyBottom, window, combiner, clock, Long.MAX_VALUE, batchSize);
+  }
+
+  /**
+   * @param idleTimeout time in milliseconds of the clock after which an input
+   *          that sends neither events nor watermarks is considered idle,
+   *          {@code Long.MAX_VALUE} to wait for its completion instead
+   */
+  public BasicKeyedJoinEventProcessor(final EventSource<E> top, final EventSource<E> bottom,
+      final Function<E, ?> keyTop, final Function<E, ?> keyBottom, final long window,
+      final Optional<BiFunction<E, E, E>> combiner, final LongSupplier clock, final long idleTimeout,
+      final int batchSize) {
+
+    this.top = new Side<>(keyTop);
+    this.bottom = new Side<>(keyBottom);
+    this.window = window;
+    this.combiner = combiner;
+    this.clock = clock;
+    this.idleTimeout = idleTimeout;
+    if (idleTimeout != Long.MAX_VALUE) {
+      this.top.lastActive = this.bottom.lastActive = clock.getAsLong();
+    }
+
+    top.subscribe(new FanInEventSink<>(e -> onNext(this.top, this.bottom, e), w -> onWatermark(this.top, w),
+        () -> onInputComplete(this.top), batchSize));
+    bottom.subscribe(new FanInEventSink<>(e -> onNext(this.bottom, this.top, e), w -> onWatermark(this.bottom, w),
+        () -> onInputComplete(this.bottom), batchSize));
+  }
+
+  /**
+   * @return the number of events currently kept for both inputs
+   */
+  public synchronized int getIndexed() {
+    return top.entries.size() + bottom.entries.size();
+  }
+
+  private synchronized void onNext(final Side<E> side, final Side<E> other, final Event<E> event) {
+    final long timestamp = (event.getTimestamp() == Event.NO_TIMESTAMP) ? clock.getAsLong() : event.getTimestamp();
+    final Entry<E> entry = new Entry<>(side.key.apply(event.get()), PooledEvent.copyOf(event), timestamp);
+
+    final ArrayDeque<Entry<E>> matches = other.index.get(entry.key);
+    if (matches != null) {
+      for (final Entry<E> match : matches) {
+        if (Math.abs(match.timestamp - timestamp) <= window) {
+          emit((side == top) ? entry : match, (side == top) ? match : entry);
+        }
+      }
+    }
+
+    if (!other.complete) {
+      side.add(entry);
+    }
+    side.maxTimestamp = Math.max(side.maxTimestamp, timestamp);
+    evict(side);
+  }
+
+  private synchronized void onWatermark(final Side<E> side, final long inputWatermark) {
+    side.watermark = inputWatermark;
+    evict(side);
+    final long min = Math.min(top.watermark, bottom.watermark);
+    if (min > watermark) {
+      watermark = min;
+      notifyWatermark(min);
+    }
+  }
+
+  private synchronized void onInputComplete(final Side<E> side) {
+    side.complete = true;
+    ((side == top) ? bottom : top).evictBefore(Long.MAX_VALUE);
+    if (--incomplete == 0) {
+      notifyComplete();
+    }
+  }
+
+  /**
+   * Evicts the events of the other input by the progress of the given one,
+   * and, once the other input is idle, its own events by their own progress.
+   */
+  private void evict(final Side<E> side) {
+    final Side<E> other = (side == top) ? bottom : top;
+    if (idleTimeout != Long.MAX_VALUE) {
+      final long now = clock.getAsLong();
+      side.lastActive = now;
+      if (!other.complete && now - other.lastActive >= idleTimeout) {
+        side.evictBefore(side.horizon(window));
+      }
+    }
+    other.evictBefore(side.horizon(window));
+  }
+
+  private void emit(final Entry<E> t, final Entry<E> b) {
+    if (combiner.isPresent()) {
+      final Event<E> later = (b.timestamp > t.timestamp) ? b.event : t.event;
+      notifySubscribers(new BasicEvent<E>(combiner.get().apply(t.event.get(), b.event.get()), later)
+          .withTimestamp(Math.max(t.timestamp, b.timestamp)));
+    } else {
+      notifySubscribers(t.event);
+      notifySubscribers(b.event);
+    }
+  }
+
+  private static final class Side<E> {
+    final Function<E, ?> key;
+    final Map<Object, ArrayDeque<Entry<E>>> index = new HashMap<>();
+    final ArrayDeque<Entry<E>> entries = new ArrayDeque<>();
+    long watermark = Long.MIN_VALUE;
+    long maxTimestamp = Long.MIN_VALUE;
+    long lastActive;
+    boolean complete;
+
+    Side(final Function<E, ?> key) {
+      this.key = key;
+    }
+
+    void add(final Entry<E> entry) {
+      index.computeIfAbsent(entry.key, k -> new ArrayDeque<>()).addLast(entry);
+      entries.addLast(entry);
+    }
+
+    /**
+     * @return the timestamp before which the other input's events can no
+     *         longer match an event of this input, {@code Long.MIN_VALUE} as
+     *         long as this input has made no progress
+     */
+    long horizon(final long window) {
+      final long progress = Math.max(watermark, maxTimestamp);
+      return (progress == Long.MIN_VALUE) ? Long.MIN_VALUE : progress - window;
+    }
+
+    /**
+     * Evicts in arrival order, so an out of order event may stay until all
+     * events that arrived before it are evicted.
+     */
+    void evictBefore(final long horizon) {
+      while (!entries.isEmpty() && entries.peekFirst().timestamp < horizon) {
+        final Entry<E> entry = entries.removeFirst();
+        final ArrayDeque<Entry<E>> bucket = index.get(entry.key);
+        bucket.removeFirstOccurrence(entry);
+        if (bucket.isEmpty()) {
+          index.remove(entry.key);
+        }
+      }
+    }
+  }
+
+  private static final class Entry<E> {
+    final Object key;
+    final Event<E> event;
+    final long timestamp;
+
+    Entry(final Object key, final Event<E> event, final long timestamp) {
+      this.key = key;
+      this.event = event;
+      this.timestamp = timestamp;
+    }
+  }
+
+}
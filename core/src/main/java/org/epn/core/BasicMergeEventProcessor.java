@@ -0,0 +1,97 @@
+package org.epn.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.epn.api.EventSource;
+import org.reactivestreams.Subscription;
+
+/**
+ * Merges any number of inputs, which may emit from different threads, into a
+ * single stream. Events of one input keep their order. The watermark is the
+ * minimum of the inputs' watermarks, and the merge completes once all inputs
+ * have.
+ */
+public class BasicMergeEventProcessor<E> extends BasicEventSource<E> {
+
+  private final long[] watermarks;
+  private long watermark = Long.MIN_VALUE;
+  private int incomplete;
+
+  public BasicMergeEventProcessor(final List<? extends EventSource<E>> inputs) {
+    this(inputs, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicMergeEventProcessor(final List<? extends EventSource<E>> inputs, final int batchSize) {
+    this.watermarks = new long[inputs.size()];
+    Arrays.fill(watermarks, Long.MIN_VALUE);
+    incomplete = inputs.size();
+    for (int i = 0; i < inputs.size(); i++) {
+      inputs.get(i).subscribe(new MergeEventSink(i, batchSize));
+    }
+  }
+
+  private synchronized void onWatermark(final int input, final long inputWatermark) {
+    watermarks[input] = inputWatermark;
+    long min = Long.MAX_VALUE;
+    for (final long w : watermarks) {
+      min = Math.min(min, w);
+    }
+    if (min > watermark) {
+      watermark = min;
+      notifyWatermark(min);
+    }
+  }
+
+  private synchronized void onInputComplete() {
+    if (--incomplete == 0) {
+      notifyComplete();
+    }
+  }
+
+  private class MergeEventSink implements EventSink<E> {
+
+    private final int input;
+    private final BasicDemand demand;
+
+    MergeEventSink(final int input, final int batchSize) {
+      this.input = input;
+      this.demand = new BasicDemand(batchSize);
+    }
+
+    @Override
+    public void onWatermark(final long watermark) {
+      BasicMergeEventProcessor.this.onWatermark(input, watermark);
+    }
+
+    @Override
+    public void onComplete() {
+      onInputComplete();
+    }
+
+    @Override
+    public void onSubscribe(final Subscription s) {
+      demand.onSubscribe(s);
+    }
+
+    @Override
+    public void onNext(final Event<E> event) {
+      synchronized (BasicMergeEventProcessor.this) {
+        notifySubscribers(event);
+      }
+      demand.consumed();
+    }
+
+    @Override
+    public void onNextBatch(final Event<E>[] events, final int count) {
+      synchronized (BasicMergeEventProcessor.this) {
+        notifySubscribers(events, count);
+      }
+      demand.consumed(count);
+    }
+
+  }
+
+}
@@ -0,0 +1,306 @@
+package org.epn.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.epn.api.EventSource;
+import org.epn.core.pool.PooledEvent;
+import org.reactivestreams.Subscription;
+
+/**
+ * Sends every event to each of n branches, which consume on threads of their
+ * own, so a slow branch holds up the others only once it falls a whole ring
+ * behind. Events are published once into a preallocated ring that all
+ * branches read. Each branch follows the ring with a cursor of its own and
+ * delivers what was published since it last looked as one batch, and the
+ * producer waits for the slowest cursor before it overwrites a slot. A
+ * branch delivers no more events than all of its subscribers have requested,
+ * so a branch whose subscribers lack demand holds up the producer just like a
+ * slow one instead of dropping events. Watermarks and completion go through
+ * the ring as well, so each branch forwards them after the events before
+ * them.
+ * <p>
+ * The branches start on the executor once this processor is subscribed, and
+ * each keeps a thread until it is interrupted, so the executor needs a thread
+ * per branch. A producer waiting for a full ring polls the branch cursors and
+ * stops waiting only once the branches catch up or are interrupted, which
+ * {@link #stop()} does; the events that follow are discarded.
+ */
+public class BasicMulticastEventProcessor<E> implements EventSink<E> {
+
+  public static final int DEFAULT_CAPACITY = 1024;
+  // a branch that finds nothing to deliver checks this often before it parks
+  private static final int SPINS = 100;
+  // requests do not wake a branch, so one waiting for demand checks this often
+  private static final long DEMAND_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+  private final Executor executor;
+  private final Branch[] branches;
+  private final Event<E>[] ring;
+  private final int mask;
+  private final int batchSize;
+  private final PaddedAtomicLong cursor = new PaddedAtomicLong();
+  private final AtomicBoolean started = new AtomicBoolean();
+  private volatile boolean stopped;
+
+  // written by the producer only
+  private long next;
+  private long gate = -1;
+
+  public BasicMulticastEventProcessor(final Executor executor, final int branches) {
+    this(executor, branches, DEFAULT_CAPACITY, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * @param capacity
+   *          number of slots of the ring, rounded up to a power of two
+   * @param batchSize
+   *          maximum number of events a branch delivers at once
+   */
+  @SuppressWarnings("unchecked")
+  public BasicMulticastEventProcessor(final Executor executor, final int branches, final int capacity,
+      final int batchSize) {
+    if (branches < 1) {
+      throw new IllegalArgumentException("Number of branches must be positive: " + branches);
+    }
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    final int size = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.executor = executor;
+    this.ring = BasicEventSource.newBatch(size);
+    this.mask = size - 1;
+    this.batchSize = batchSize;
+    this.branches = (Branch[]) new BasicMulticastEventProcessor<?>.Branch[branches];
+    for (int i = 0; i < branches; i++) {
+      this.branches[i] = new Branch();
+    }
+    cursor.set(-1);
+  }
+
+  public List<EventSource<E>> getBranches() {
+    return Collections.unmodifiableList(Arrays.asList(branches));
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    if (started.compareAndSet(false, true)) {
+      for (final Branch branch : branches) {
+        executor.execute(branch);
+      }
+    }
+    s.request(Long.MAX_VALUE);
+  }
+
+  @Override
+  public void onNext(final Event<E> e) {
+    put(e);
+    publish();
+  }
+
+  @Override
+  public void onNextBatch(final Event<E>[] events, final int count) {
+    for (int i = 0; i < count; i++) {
+      put(events[i]);
+    }
+    publish();
+  }
+
+  @Override
+  public void onWatermark(final long watermark) {
+    put(WatermarkEvent.of(watermark));
+    publish();
+  }
+
+  @Override
+  public void onComplete() {
+    put(WatermarkEvent.complete());
+    publish();
+  }
+
+  /**
+   * @return the number of events and watermarks published so far
+   */
+  public long getPublished() {
+    return cursor.get() + 1;
+  }
+
+  /**
+   * @return whether every branch has delivered everything published
+   */
+  public boolean isIdle() {
+    final long published = cursor.get();
+    for (final Branch branch : branches) {
+      if (branch.sequence.get() < published) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Interrupts the branches, and discards the events that follow instead of
+   * waiting for room in the ring.
+   */
+  public void stop() {
+    stopped = true;
+    for (final Branch branch : branches) {
+      final Thread thread = branch.thread;
+      if (thread != null) {
+        thread.interrupt();
+      }
+    }
+  }
+
+  /**
+   * Puts {@code e} into the next slot, once the slot is free, without
+   * publishing it yet.
+   */
+  private void put(final Event<E> e) {
+    final long wrap = next - ring.length;
+    if (wrap > gate) {
+      publish();
+      gate = awaitBranches(wrap);
+    }
+    if (stopped) {
+      return;
+    }
+    if (e instanceof PooledEvent) {
+      for (int i = 0; i < branches.length; i++) {
+        PooledEvent.retain(e);
+      }
+      if (branches.length > 1) {
+        PooledEvent.share(e);
+      }
+    }
+    ring[(int) next & mask] = e;
+    next++;
+  }
+
+  private void publish() {
+    if (cursor.get() != next - 1) {
+      cursor.set(next - 1);
+      for (final Branch branch : branches) {
+        if (branch.parked) {
+          LockSupport.unpark(branch.thread);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the sequence all branches have delivered, once it reaches
+   *         {@code sequence}
+   */
+  private long awaitBranches(final long sequence) {
+    for (;;) {
+      long min = Long.MAX_VALUE;
+      for (final Branch branch : branches) {
+        min = Math.min(min, branch.sequence.get());
+      }
+      if (min >= sequence || stopped) {
+        return min;
+      }
+      LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+    }
+  }
+
+  private final class Branch extends BasicEventSource<E> implements Runnable {
+
+    // the last sequence delivered
+    private final PaddedAtomicLong sequence = new PaddedAtomicLong();
+    private final Event<E>[] batch = newBatch(batchSize);
+    private volatile Thread thread;
+    private volatile boolean parked;
+
+    Branch() {
+      sequence.set(-1);
+    }
+
+    @Override
+    public void run() {
+      thread = Thread.currentThread();
+      try {
+        int idle = 0;
+        while (!thread.isInterrupted() && !stopped) {
+          final long available = cursor.get();
+          if (available > sequence.get()) {
+            if (!deliver(available)) {
+              LockSupport.parkNanos(this, DEMAND_WAIT_NANOS);
+            }
+            idle = 0;
+          } else if (++idle > SPINS) {
+            parked = true;
+            if (cursor.get() == available) {
+              LockSupport.park(this);
+            }
+            parked = false;
+          }
+        }
+      } finally {
+        // an interrupted branch no longer holds up the producer
+        sequence.set(Long.MAX_VALUE);
+      }
+    }
+
+    /**
+     * @return false if nothing could be delivered for lack of demand
+     */
+    private boolean deliver(final long available) {
+      final long start = sequence.get();
+      long s = start;
+      while (s < available) {
+        final long demand = demand();
+        int n = 0;
+        Event<E> watermark = null;
+        while (s < available && n < batch.length) {
+          final Event<E> e = ring[(int) (s + 1) & mask];
+          if (e instanceof WatermarkEvent) {
+            watermark = e;
+            s++;
+            break;
+          }
+          if (n >= demand) {
+            break;
+          }
+          batch[n++] = e;
+          s++;
+        }
+        if (n == 0 && watermark == null) {
+          break;
+        }
+        notifySubscribers(batch, n);
+        for (int i = 0; i < n; i++) {
+          PooledEvent.release(batch[i]);
+          batch[i] = null;
+        }
+        if (WatermarkEvent.isComplete(watermark)) {
+          notifyComplete();
+        } else if (watermark != null) {
+          notifyWatermark(watermark.getTimestamp());
+        }
+        sequence.lazySet(s);
+      }
+      return s > start;
+    }
+
+    /**
+     * @return the lowest demand of the subscribers of this branch
+     */
+    private long demand() {
+      long demand = Long.MAX_VALUE;
+      for (final BasicEventSubscription<E> subscription : getSubscriptions()) {
+        demand = Math.min(demand, subscription.getDemand());
+      }
+      return demand;
+    }
+  }
+
+}
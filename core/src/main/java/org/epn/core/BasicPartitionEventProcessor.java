@@ -0,0 +1,31 @@
+package org.epn.core;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.epn.api.EventSource;
+
+/**
+ * Routes each event to one of n partitions by the hash of its key, so all
+ * events with equal keys leave through the same partition, in order. Events
+ * with a null key leave through the first partition.
+ */
+public class BasicPartitionEventProcessor<E> extends BasicRouterEventProcessor<E> {
+
+  public BasicPartitionEventProcessor(final Function<E, ?> key, final int partitions) {
+    this(key, partitions, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicPartitionEventProcessor(final Function<E, ?> key, final int partitions, final int batchSize) {
+    super(hashing(key, partitions), partitions, batchSize);
+  }
+
+  public List<EventSource<E>> getPartitions() {
+    return getOutlets();
+  }
+
+  public int partitionOf(final E e) {
+    return outletOf(e);
+  }
+
+}
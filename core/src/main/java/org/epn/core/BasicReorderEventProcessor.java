@@ -0,0 +1,89 @@
+package org.epn.core;
+
+import java.util.PriorityQueue;
+
+import org.epn.api.Event;
+import org.epn.api.EventProcessor;
+import org.epn.api.EventSource;
+import org.epn.core.pool.PooledEvent;
+import org.reactivestreams.Subscription;
+
+/**
+ * Releases events in timestamp order once the watermark has passed them.
+ * Events that arrive with a timestamp at or before the current watermark are
+ * late and emitted on {@link #getLate()} instead.
+ */
+public class BasicReorderEventProcessor<E> extends BasicEventSource<E> implements EventProcessor<E, E> {
+
+  private final PriorityQueue<Pending<E>> pending = new PriorityQueue<>();
+  private final BasicEventSource<E> late = new BasicEventSource<>();
+  private final BasicDemand demand;
+  private long watermark = Long.MIN_VALUE;
+  private long arrivals;
+
+  public BasicReorderEventProcessor() {
+    this(BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicReorderEventProcessor(final int batchSize) {
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  public EventSource<E> getLate() {
+    return late;
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+  @Override
+  public void onNext(final Event<E> e) {
+    if (e.getTimestamp() <= watermark) {
+      late.notifySubscribers(e);
+    } else {
+      PooledEvent.retain(e);
+      pending.add(new Pending<>(e, arrivals++));
+    }
+    demand.consumed();
+  }
+
+  @Override
+  public void onWatermark(final long next) {
+    if (next <= watermark) {
+      return;
+    }
+    watermark = next;
+    while (!pending.isEmpty() && pending.peek().event.getTimestamp() <= next) {
+      final Event<E> e = pending.poll().event;
+      notifySubscribers(e);
+      PooledEvent.release(e);
+    }
+    notifyWatermark(next);
+  }
+
+  /**
+   * @return the number of events waiting for the watermark
+   */
+  public int getPending() {
+    return pending.size();
+  }
+
+  private static final class Pending<E> implements Comparable<Pending<E>> {
+    final Event<E> event;
+    final long arrival;
+
+    Pending(final Event<E> event, final long arrival) {
+      this.event = event;
+      this.arrival = arrival;
+    }
+
+    @Override
+    public int compareTo(final Pending<E> other) {
+      final int c = Long.compare(event.getTimestamp(), other.event.getTimestamp());
+      return (c != 0) ? c : Long.compare(arrival, other.arrival);
+    }
+  }
+
+}
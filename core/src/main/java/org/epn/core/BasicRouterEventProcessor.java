@@ -0,0 +1,122 @@
+package org.epn.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.epn.api.EventSource;
+import org.reactivestreams.Subscription;
+
+/**
+ * Routes each event to one of n outlets. The router returns the index of the
+ * outlet, so routing costs a single array lookup however many outlets there
+ * are. Events routed to a negative index are discarded, an index beyond the
+ * last outlet throws an {@link IndexOutOfBoundsException}.
+ */
+public class BasicRouterEventProcessor<E> implements EventSink<E> {
+
+  private final ToIntFunction<E> router;
+  private final BasicEventSource<E>[] outlets;
+  private final BasicDemand demand;
+  private final Event<E>[][] batches;
+  private final int[] counts;
+
+  public BasicRouterEventProcessor(final ToIntFunction<E> router, final int outlets) {
+    this(router, outlets, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  @SuppressWarnings("unchecked")
+  public BasicRouterEventProcessor(final ToIntFunction<E> router, final int outlets, final int batchSize) {
+    if (outlets < 1) {
+      throw new IllegalArgumentException("Number of outlets must be positive: " + outlets);
+    }
+    this.router = router;
+    this.outlets = (BasicEventSource<E>[]) new BasicEventSource<?>[outlets];
+    for (int i = 0; i < outlets; i++) {
+      this.outlets[i] = new BasicEventSource<E>();
+    }
+    this.demand = new BasicDemand(batchSize);
+    this.batches = (Event<E>[][]) new Event<?>[outlets][];
+    this.counts = new int[outlets];
+    Arrays.fill(batches, BasicEventSource.newBatch(0));
+  }
+
+  /**
+   * @return a router sending all events with equal keys to the same of
+   *         {@code outlets} outlets, and events with a null key to the first
+   */
+  public static <E> ToIntFunction<E> hashing(final Function<E, ?> key, final int outlets) {
+    return e -> {
+      final Object k = key.apply(e);
+      final int h = (k == null) ? 0 : k.hashCode();
+      return Math.floorMod(h ^ (h >>> 16), outlets);
+    };
+  }
+
+  public List<EventSource<E>> getOutlets() {
+    return Collections.unmodifiableList(Arrays.asList(outlets));
+  }
+
+  public int outletOf(final E e) {
+    final int o = router.applyAsInt(e);
+    if (o >= outlets.length) {
+      throw new IndexOutOfBoundsException("Routed to outlet " + o + " of " + outlets.length + ": " + e);
+    }
+    return o;
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+  @Override
+  public void onWatermark(final long watermark) {
+    for (final BasicEventSource<E> outlet : outlets) {
+      outlet.notifyWatermark(watermark);
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    for (final BasicEventSource<E> outlet : outlets) {
+      outlet.notifyComplete();
+    }
+  }
+
+  @Override
+  public void onNext(final Event<E> event) {
+    final int o = outletOf(event.get());
+    if (o >= 0) {
+      outlets[o].notifySubscribers(event);
+    }
+    demand.consumed();
+  }
+
+  @Override
+  public void onNextBatch(final Event<E>[] events, final int count) {
+    for (int i = 0; i < count; i++) {
+      final int o = outletOf(events[i].get());
+      if (o < 0) {
+        continue;
+      }
+      if (batches[o].length == counts[o]) {
+        batches[o] = Arrays.copyOf(batches[o], Math.max(count, 16));
+      }
+      batches[o][counts[o]++] = events[i];
+    }
+    for (int o = 0; o < counts.length; o++) {
+      if (counts[o] > 0) {
+        outlets[o].notifySubscribers(batches[o], counts[o]);
+        Arrays.fill(batches[o], 0, counts[o], null);
+        counts[o] = 0;
+      }
+    }
+    demand.consumed(count);
+  }
+
+}
@@ -0,0 +1,93 @@
+package org.epn.core;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+import org.epn.api.Event;
+import org.epn.api.EventProcessor;
+import org.reactivestreams.Subscription;
+
+/**
+ * Stamps events with their event time and generates watermarks for events
+ * that are out of order by at most a given bound: the watermark trails the
+ * highest timestamp seen by that bound. Watermarks are emitted with the first
+ * event after each interval of processing time, so an idle input does not
+ * advance its watermark. On completion the watermark advances to
+ * {@link Long#MAX_VALUE}.
+ */
+public class BasicTimestampAssigner<E> extends BasicEventSource<E> implements EventProcessor<E, E> {
+
+  public static final Duration DEFAULT_WATERMARK_INTERVAL = Duration.ofMillis(200);
+
+  private final ToLongFunction<E> timestamps;
+  private final long maxOutOfOrderness;
+  private final long interval;
+  private final LongSupplier clock;
+  private final BasicDemand demand;
+
+  private long maxTimestamp = Long.MIN_VALUE;
+  private long watermark = Long.MIN_VALUE;
+  private long lastEmission = Long.MIN_VALUE;
+
+  public BasicTimestampAssigner(final ToLongFunction<E> timestamps, final Duration maxOutOfOrderness) {
+    this(timestamps, maxOutOfOrderness, DEFAULT_WATERMARK_INTERVAL, System::currentTimeMillis,
+        BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * @param watermarkInterval
+   *          processing time between watermarks, zero to emit one after every
+   *          event that advances it
+   */
+  public BasicTimestampAssigner(final ToLongFunction<E> timestamps, final Duration maxOutOfOrderness,
+      final Duration watermarkInterval, final LongSupplier clock, final int batchSize) {
+    this.timestamps = timestamps;
+    this.maxOutOfOrderness = maxOutOfOrderness.toMillis();
+    this.interval = watermarkInterval.toMillis();
+    this.clock = clock;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void onNext(final Event<E> e) {
+    final long timestamp = timestamps.applyAsLong(e.get());
+    final BasicEvent<E> event = (e instanceof BasicEvent) ? (BasicEvent<E>) e : new BasicEvent<>(e.get(), e);
+    notifySubscribers(event.withTimestamp(timestamp));
+    maxTimestamp = Math.max(maxTimestamp, timestamp);
+
+    final long now = clock.getAsLong();
+    if (lastEmission == Long.MIN_VALUE || now - lastEmission >= interval) {
+      lastEmission = now;
+      emitWatermark(maxTimestamp - maxOutOfOrderness - 1);
+    }
+    demand.consumed();
+  }
+
+  /**
+   * Watermarks from upstream are replaced by the ones generated here.
+   */
+  @Override
+  public void onWatermark(final long watermark) {
+  }
+
+  @Override
+  public void onComplete() {
+    emitWatermark(Long.MAX_VALUE);
+    notifyComplete();
+  }
+
+  private void emitWatermark(final long next) {
+    if (next > watermark) {
+      watermark = next;
+      notifyWatermark(next);
+    }
+  }
+
+}
@@ -0,0 +1,54 @@
+package org.epn.core;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Atomic long on a cache line of its own, for counters written by different
+ * threads that would otherwise share a line with neighbouring fields or
+ * objects. The JVM lays out the fields of a superclass first, so the value
+ * sits between the padding of the class it extends and the padding of this
+ * class.
+ */
+final class PaddedAtomicLong extends PaddedAtomicLongValue {
+
+  private static final AtomicLongFieldUpdater<PaddedAtomicLongValue> VALUE =
+      AtomicLongFieldUpdater.newUpdater(PaddedAtomicLongValue.class, "value");
+
+  @SuppressWarnings("unused")
+  private long p9, p10, p11, p12, p13, p14, p15;
+
+  long get() {
+    return value;
+  }
+
+  void set(final long newValue) {
+    value = newValue;
+  }
+
+  void lazySet(final long newValue) {
+    VALUE.lazySet(this, newValue);
+  }
+
+  boolean compareAndSet(final long expect, final long update) {
+    return VALUE.compareAndSet(this, expect, update);
+  }
+
+  long decrementAndGet() {
+    return VALUE.decrementAndGet(this);
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(value);
+  }
+
+}
+
+@SuppressWarnings("unused")
+abstract class PaddedAtomicLongPadding {
+  private long p1, p2, p3, p4, p5, p6, p7;
+}
+
+abstract class PaddedAtomicLongValue extends PaddedAtomicLongPadding {
+  volatile long value;
+}
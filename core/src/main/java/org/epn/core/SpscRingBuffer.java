@@ -0,0 +1,89 @@
+package org.epn.core;
+
+/**
+ * Bounded lock-free queue for exactly one producer thread and one consumer
+ * thread at a time. The capacity is rounded up to a power of two.
+ */
+public final class SpscRingBuffer<E> {
+
+  private final Object[] buffer;
+  private final int mask;
+  private final PaddedAtomicLong head = new PaddedAtomicLong();
+  private final PaddedAtomicLong tail = new PaddedAtomicLong();
+
+  // producer's last read of head, to avoid reading it on every offer
+  private long headCache;
+
+  public SpscRingBuffer(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    final int size = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.buffer = new Object[size];
+    this.mask = size - 1;
+  }
+
+  public int capacity() {
+    return buffer.length;
+  }
+
+  /**
+   * Producer only.
+   *
+   * @return false if the buffer is full
+   */
+  public boolean offer(final E e) {
+    final long t = tail.get();
+    if (t - headCache >= buffer.length) {
+      headCache = head.get();
+      if (t - headCache >= buffer.length) {
+        return false;
+      }
+    }
+    buffer[(int) t & mask] = e;
+    tail.lazySet(t + 1);
+    return true;
+  }
+
+  /**
+   * Consumer only.
+   *
+   * @return the next element, or null if the buffer is empty
+   */
+  @SuppressWarnings("unchecked")
+  public E poll() {
+    final long h = head.get();
+    if (h >= tail.get()) {
+      return null;
+    }
+    final int i = (int) h & mask;
+    final E e = (E) buffer[i];
+    buffer[i] = null;
+    head.lazySet(h + 1);
+    return e;
+  }
+
+  public boolean isEmpty() {
+    return head.get() >= tail.get();
+  }
+
+  public int size() {
+    final long h = head.get();
+    return (int) (tail.get() - h);
+  }
+
+  /**
+   * @return the number of elements polled so far
+   */
+  public long getConsumed() {
+    return head.get();
+  }
+
+  /**
+   * @return the number of elements offered so far
+   */
+  public long getProduced() {
+    return tail.get();
+  }
+
+}
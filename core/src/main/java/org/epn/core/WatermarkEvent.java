@@ -0,0 +1,42 @@
+package org.epn.core;
+
+import org.epn.api.Event;
+
+/**
+ * Marks the position of a watermark, or of completion, in queues of events.
+ */
+public final class WatermarkEvent<T> implements Event<T> {
+
+  @SuppressWarnings("rawtypes")
+  private static final WatermarkEvent COMPLETE = new WatermarkEvent(Long.MAX_VALUE);
+
+  private final long watermark;
+
+  private WatermarkEvent(final long watermark) {
+    this.watermark = watermark;
+  }
+
+  public static <T> Event<T> of(final long watermark) {
+    return new WatermarkEvent<T>(watermark);
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> Event<T> complete() {
+    return COMPLETE;
+  }
+
+  public static boolean isComplete(final Event<?> e) {
+    return e == COMPLETE;
+  }
+
+  @Override
+  public T get() {
+    throw new UnsupportedOperationException("Watermarks carry no data");
+  }
+
+  @Override
+  public long getTimestamp() {
+    return watermark;
+  }
+
+}
@@ -0,0 +1,302 @@
+package org.epn.core.cep;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.epn.api.Event;
+import org.epn.api.EventProcessor;
+import org.epn.core.BasicDemand;
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSource;
+import org.epn.core.cep.Pattern.Contiguity;
+import org.epn.core.cep.Pattern.Stage;
+import org.epn.core.pool.PooledEvent;
+import org.reactivestreams.Subscription;
+
+/**
+ * Emits a {@link Match} for every sequence of events that matches a
+ * {@link Pattern}, carrying the metadata of its last event.
+ * <p>
+ * The pattern runs as a non-deterministic automaton with one state per stage.
+ * Each partial match is a state and a reference to its last matched event,
+ * which links back to the events before it, so partial matches that branch
+ * off share their common prefix instead of copying it. Partial matches are
+ * kept per key, and an event is tested against those of its key only, so the
+ * work per event is bounded by the partial matches of one key. Partial
+ * matches that exceed the pattern's window are pruned, relative to the
+ * watermark or else the highest timestamp seen. Events without a timestamp
+ * are stamped with their arrival time.
+ */
+public class BasicPatternEventProcessor<E> extends BasicEventSource<Match<E>> implements EventProcessor<E, Match<E>> {
+
+  // keys are swept for expired partial matches at most this often
+  private static final int MIN_SWEEP_INTERVAL = 1024;
+
+  private final Stage<E>[] stages;
+  private final Map<String, Integer> names;
+  private final Pattern<E> pattern;
+  private final LongSupplier clock;
+  private final BasicDemand demand;
+  private final Map<Object, List<Partial<E>>> partials = new HashMap<>();
+  private final List<Partial<E>> branched = new ArrayList<>();
+  private final PartialView view = new PartialView();
+
+  private long maxTimestamp = Long.MIN_VALUE;
+  private long watermark = Long.MIN_VALUE;
+  private int sinceSweep;
+
+  public BasicPatternEventProcessor(final Pattern<E> pattern) {
+    this(pattern, System::currentTimeMillis, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicPatternEventProcessor(final Pattern<E> pattern, final LongSupplier clock, final int batchSize) {
+    if (pattern.stages.isEmpty()) {
+      throw new IllegalArgumentException("Empty pattern");
+    }
+    this.stages = pattern.stages.toArray(newStages(pattern.stages.size()));
+    this.names = new HashMap<>(pattern.names);
+    this.pattern = pattern;
+    this.clock = clock;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+  @Override
+  public synchronized void onNext(final Event<E> e) {
+    // partial matches outlive the event
+    final Event<E> event = PooledEvent.copyOf(e);
+    final long timestamp = (event.getTimestamp() == Event.NO_TIMESTAMP) ? clock.getAsLong() : event.getTimestamp();
+    maxTimestamp = Math.max(maxTimestamp, timestamp);
+    final Object key = pattern.key.apply(event.get());
+    List<Partial<E>> list = partials.get(key);
+    if (list != null) {
+      advance(list, event);
+    }
+
+    if (stages[0].condition.test(view.of(null, 0), event.get())) {
+      final Node<E> node = new Node<>(event, null);
+      if (stages.length == 1) {
+        emit(node, 1);
+      } else {
+        if (list == null) {
+          list = new ArrayList<>();
+          partials.put(key, list);
+        }
+        list.add(new Partial<>(timestamp, 1, node));
+      }
+    }
+
+    if (list != null) {
+      final int excess = list.size() - pattern.maxPartialMatches;
+      if (excess > 0) {
+        list.subList(0, excess).clear();
+      }
+      if (list.isEmpty()) {
+        partials.remove(key);
+      }
+    }
+    if (++sinceSweep >= Math.max(MIN_SWEEP_INTERVAL, partials.size())) {
+      sweep();
+    }
+    demand.consumed();
+  }
+
+  @Override
+  public synchronized void onWatermark(final long watermark) {
+    this.watermark = watermark;
+    sweep();
+    notifyWatermark(watermark);
+  }
+
+  /**
+   * @return the number of partial matches currently kept for all keys
+   */
+  public synchronized int getPartialMatches() {
+    return partials.values().stream().mapToInt(List::size).sum();
+  }
+
+  /**
+   * Moves the partial matches of one key on with {@code event}, in a single
+   * pass that also drops the expired and failed ones.
+   */
+  private void advance(final List<Partial<E>> list, final Event<E> event) {
+    final long horizon = horizon();
+    int kept = 0;
+    for (int i = 0; i < list.size(); i++) {
+      final Partial<E> partial = list.get(i);
+      if (partial.start < horizon) {
+        continue;
+      }
+      final Stage<E> stage = stages[partial.matched];
+      if (!stage.condition.test(view.of(partial.last, partial.matched), event.get())) {
+        if (stage.contiguity != Contiguity.STRICT) {
+          list.set(kept++, partial);
+        }
+        continue;
+      }
+
+      final Node<E> node = new Node<>(event, partial.last);
+      if (partial.matched + 1 == stages.length) {
+        emit(node, stages.length);
+        if (stage.contiguity == Contiguity.ANY) {
+          list.set(kept++, partial);
+        }
+      } else if (stage.contiguity == Contiguity.ANY) {
+        list.set(kept++, partial);
+        branched.add(new Partial<>(partial.start, partial.matched + 1, node));
+      } else {
+        partial.matched++;
+        partial.last = node;
+        list.set(kept++, partial);
+      }
+    }
+    list.subList(kept, list.size()).clear();
+    list.addAll(branched);
+    branched.clear();
+  }
+
+  private void sweep() {
+    sinceSweep = 0;
+    final long horizon = horizon();
+    final Iterator<List<Partial<E>>> lists = partials.values().iterator();
+    while (lists.hasNext()) {
+      final List<Partial<E>> list = lists.next();
+      list.removeIf(p -> p.start < horizon);
+      if (list.isEmpty()) {
+        lists.remove();
+      }
+    }
+  }
+
+  /**
+   * @return the earliest start of a partial match that may still complete
+   */
+  private long horizon() {
+    final long progress = (watermark != Long.MIN_VALUE) ? Math.max(watermark, maxTimestamp) : maxTimestamp;
+    return (pattern.within == Long.MAX_VALUE) ? Long.MIN_VALUE : progress - pattern.within;
+  }
+
+  private void emit(final Node<E> last, final int size) {
+    final Event<E>[] events = newBatch(size);
+    Node<E> node = last;
+    for (int i = size - 1; i >= 0; i--) {
+      events[i] = node.event;
+      node = node.previous;
+    }
+    notifySubscribers(new BasicEvent<Match<E>>(new CompleteMatch<>(events, names), last.event));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> Stage<E>[] newStages(final int size) {
+    return (Stage<E>[]) new Stage<?>[size];
+  }
+
+  private static final class Node<E> {
+    final Event<E> event;
+    final Node<E> previous;
+
+    Node(final Event<E> event, final Node<E> previous) {
+      this.event = event;
+      this.previous = previous;
+    }
+  }
+
+  private static final class Partial<E> {
+    final long start;
+    int matched;
+    Node<E> last;
+
+    Partial(final long start, final int matched, final Node<E> last) {
+      this.start = start;
+      this.matched = matched;
+      this.last = last;
+    }
+  }
+
+  /**
+   * A partial match as seen by a condition, reused for every test.
+   */
+  private final class PartialView implements Match<E> {
+    private Node<E> last;
+    private int size;
+
+    PartialView of(final Node<E> last, final int size) {
+      this.last = last;
+      this.size = size;
+      return this;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Event<E> getEvent(final int stage) {
+      if (stage < 0 || stage >= size) {
+        throw new IndexOutOfBoundsException("Stage " + stage + " of " + size + " matched");
+      }
+      Node<E> node = last;
+      for (int i = size - 1; i > stage; i--) {
+        node = node.previous;
+      }
+      return node.event;
+    }
+
+    @Override
+    public Event<E> getEvent(final String name) {
+      return getEvent(indexOf(names, name));
+    }
+  }
+
+  private static final class CompleteMatch<E> implements Match<E> {
+    private final Event<E>[] events;
+    private final Map<String, Integer> names;
+
+    CompleteMatch(final Event<E>[] events, final Map<String, Integer> names) {
+      this.events = events;
+      this.names = names;
+    }
+
+    @Override
+    public int size() {
+      return events.length;
+    }
+
+    @Override
+    public Event<E> getEvent(final int stage) {
+      return events[stage];
+    }
+
+    @Override
+    public Event<E> getEvent(final String name) {
+      return events[indexOf(names, name)];
+    }
+
+    @Override
+    public String toString() {
+      final StringBuilder sb = new StringBuilder("Match [");
+      for (int i = 0; i < events.length; i++) {
+        sb.append((i == 0) ? "" : ", ").append(events[i].get());
+      }
+      return sb.append("]").toString();
+    }
+  }
+
+  private static int indexOf(final Map<String, Integer> names, final String name) {
+    final Integer index = names.get(name);
+    if (index == null) {
+      throw new IllegalArgumentException("No stage " + name);
+    }
+    return index;
+  }
+
+}
@@ -0,0 +1,34 @@
+package org.epn.core.cep;
+
+import org.epn.api.Event;
+
+/**
+ * The events matched by the stages of a {@link Pattern}, in stage order. While
+ * a match is still partial, conditions see only the stages matched so far.
+ */
+public interface Match<E> {
+
+  /**
+   * @return the number of stages matched
+   */
+  int size();
+
+  Event<E> getEvent(int stage);
+
+  /**
+   * @throws IllegalArgumentException
+   *           if the pattern has no stage {@code name}
+   * @throws IndexOutOfBoundsException
+   *           if stage {@code name} is not matched yet
+   */
+  Event<E> getEvent(String name);
+
+  default E get(final int stage) {
+    return getEvent(stage).get();
+  }
+
+  default E get(final String name) {
+    return getEvent(name).get();
+  }
+
+}
@@ -0,0 +1,138 @@
+package org.epn.core.cep;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A sequence of stages, each matching one event, e.g. a rise in price within
+ * five seconds:
+ * <pre>
+ * Pattern
+ *     .&lt;Trade&gt;begin("a", t -&gt; true)
+ *     .followedBy("b", (m, t) -&gt; t.getPrice() &gt; m.get("a").getPrice())
+ *     .within(Duration.ofSeconds(5))
+ *     .keyedBy(Trade::getSymbol);
+ * </pre>
+ * Stages differ in which events may lie between them and the previous stage:
+ * {@link #next(String, Predicate) next} allows none,
+ * {@link #followedBy(String, Predicate) followedBy} skips events until the
+ * first one that matches, and {@link #followedByAny(String, Predicate)
+ * followedByAny} matches every later event that matches, each in a match of
+ * its own.
+ */
+public final class Pattern<E> {
+
+  public static final int DEFAULT_MAX_PARTIAL_MATCHES = 1024;
+
+  enum Contiguity {
+    STRICT,
+    RELAXED,
+    ANY;
+  }
+
+  final List<Stage<E>> stages = new ArrayList<>();
+  final Map<String, Integer> names = new HashMap<>();
+  long within = Long.MAX_VALUE;
+  Function<E, ?> key = e -> Boolean.TRUE;
+  int maxPartialMatches = DEFAULT_MAX_PARTIAL_MATCHES;
+
+  private Pattern() {
+  }
+
+  public static <E> Pattern<E> begin(final String name, final Predicate<E> condition) {
+    return new Pattern<E>().add(name, Contiguity.STRICT, (m, e) -> condition.test(e));
+  }
+
+  public Pattern<E> next(final String name, final Predicate<E> condition) {
+    return next(name, (m, e) -> condition.test(e));
+  }
+
+  /**
+   * @param condition
+   *          tests an event against the stages matched before
+   */
+  public Pattern<E> next(final String name, final BiPredicate<Match<E>, E> condition) {
+    return add(name, Contiguity.STRICT, condition);
+  }
+
+  public Pattern<E> followedBy(final String name, final Predicate<E> condition) {
+    return followedBy(name, (m, e) -> condition.test(e));
+  }
+
+  public Pattern<E> followedBy(final String name, final BiPredicate<Match<E>, E> condition) {
+    return add(name, Contiguity.RELAXED, condition);
+  }
+
+  public Pattern<E> followedByAny(final String name, final Predicate<E> condition) {
+    return followedByAny(name, (m, e) -> condition.test(e));
+  }
+
+  public Pattern<E> followedByAny(final String name, final BiPredicate<Match<E>, E> condition) {
+    return add(name, Contiguity.ANY, condition);
+  }
+
+  /**
+   * Discards partial matches whose first event is more than {@code window}
+   * older than the latest event.
+   */
+  public Pattern<E> within(final Duration window) {
+    this.within = window.toMillis();
+    return this;
+  }
+
+  /**
+   * Matches events with equal keys only, independently of all others.
+   */
+  public Pattern<E> keyedBy(final Function<E, ?> key) {
+    this.key = key;
+    return this;
+  }
+
+  /**
+   * Limits the partial matches kept per key; the oldest are discarded first.
+   */
+  public Pattern<E> withMaxPartialMatches(final int maxPartialMatches) {
+    if (maxPartialMatches < 1) {
+      throw new IllegalArgumentException("Partial matches must be positive: " + maxPartialMatches);
+    }
+    this.maxPartialMatches = maxPartialMatches;
+    return this;
+  }
+
+  private Pattern<E> add(final String name, final Contiguity contiguity, final BiPredicate<Match<E>, E> condition) {
+    if (names.putIfAbsent(name, stages.size()) != null) {
+      throw new IllegalArgumentException("Duplicate stage: " + name);
+    }
+    stages.add(new Stage<>(name, contiguity, condition));
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("Pattern (");
+    for (final Stage<E> stage : stages) {
+      sb.append((stage == stages.get(0)) ? "" : (stage.contiguity == Contiguity.STRICT) ? " -> "
+          : (stage.contiguity == Contiguity.RELAXED) ? " ~> " : " ~>* ").append(stage.name);
+    }
+    return sb.append((within == Long.MAX_VALUE) ? "" : " within " + within + " ms").append(")").toString();
+  }
+
+  static final class Stage<E> {
+    final String name;
+    final Contiguity contiguity;
+    final BiPredicate<Match<E>, E> condition;
+
+    Stage(final String name, final Contiguity contiguity, final BiPredicate<Match<E>, E> condition) {
+      this.name = name;
+      this.contiguity = contiguity;
+      this.condition = condition;
+    }
+  }
+
+}
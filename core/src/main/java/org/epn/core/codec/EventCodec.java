@@ -0,0 +1,66 @@
+package org.epn.core.codec;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Writes events into and reads them from {@link ByteBuffer}s, heap or direct,
+ * without intermediate byte arrays. Both methods start at the position of the
+ * buffer and leave it after the event. Encoding an event that does not fit
+ * throws {@link java.nio.BufferOverflowException}; the caller resets the
+ * position.
+ */
+public interface EventCodec<E> {
+
+  void encode(E event, ByteBuffer buffer);
+
+  E decode(ByteBuffer buffer);
+
+  static EventCodec<Integer> ints() {
+    return of((i, b) -> b.putInt(i), b -> b.getInt());
+  }
+
+  static EventCodec<Long> longs() {
+    return of((l, b) -> b.putLong(l), b -> b.getLong());
+  }
+
+  static EventCodec<Double> doubles() {
+    return of((d, b) -> b.putDouble(d), b -> b.getDouble());
+  }
+
+  /**
+   * Strings as their UTF-8 length followed by their UTF-8 bytes.
+   */
+  static EventCodec<String> strings() {
+    return of((s, b) -> {
+      final int start = b.position();
+      if (b.remaining() < 4) {
+        throw new BufferOverflowException();
+      }
+      b.position(start + 4);
+      b.putInt(start, Utf8.encode(s, b));
+    }, b -> {
+      final int length = b.getInt();
+      final String s = Utf8.decode(b, b.position(), length);
+      b.position(b.position() + length);
+      return s;
+    });
+  }
+
+  static <E> EventCodec<E> of(final BiConsumer<E, ByteBuffer> encoder, final Function<ByteBuffer, E> decoder) {
+    return new EventCodec<E>() {
+      @Override
+      public void encode(final E event, final ByteBuffer buffer) {
+        encoder.accept(event, buffer);
+      }
+
+      @Override
+      public E decode(final ByteBuffer buffer) {
+        return decoder.apply(buffer);
+      }
+    };
+  }
+
+}
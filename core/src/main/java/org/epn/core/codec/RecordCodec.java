@@ -0,0 +1,160 @@
+package org.epn.core.codec;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Encodes an event as a record of int, long, double and string fields, in
+ * the order they are added. Every field has a fixed place in the record, so
+ * a {@link RecordView} reads single fields without decoding the rest:
+ * <pre>
+ * RecordCodec&lt;Trade&gt; codec = RecordCodec
+ *     .of(r -&gt; new Trade(r.getString(0), r.getDouble(1)))
+ *     .withString(Trade::getSymbol)
+ *     .withDouble(Trade::getPrice);
+ * Predicate&lt;ByteBuffer&gt; expensive = codec.where(r -&gt; r.getDouble(1) &gt; 100);
+ * </pre>
+ */
+public class RecordCodec<E> implements EventCodec<E> {
+
+  private final Function<RecordView, E> factory;
+  private final List<Field<E>> fields = new ArrayList<>();
+  private int[] offsets = new int[0];
+  private int[] strings = new int[0];
+  private int fixedSize;
+
+  private RecordCodec(final Function<RecordView, E> factory) {
+    this.factory = factory;
+  }
+
+  /**
+   * @param factory
+   *          creates an event from the view of its record
+   */
+  public static <E> RecordCodec<E> of(final Function<RecordView, E> factory) {
+    return new RecordCodec<>(factory);
+  }
+
+  public RecordCodec<E> withInt(final ToIntFunction<E> f) {
+    return add(Type.INT, (e, b) -> b.putInt(f.applyAsInt(e)));
+  }
+
+  public RecordCodec<E> withLong(final ToLongFunction<E> f) {
+    return add(Type.LONG, (e, b) -> b.putLong(f.applyAsLong(e)));
+  }
+
+  public RecordCodec<E> withDouble(final ToDoubleFunction<E> f) {
+    return add(Type.DOUBLE, (e, b) -> b.putDouble(f.applyAsDouble(e)));
+  }
+
+  /**
+   * Strings are kept after the fixed-size fields; the field itself holds their
+   * place and UTF-8 length.
+   */
+  public RecordCodec<E> withString(final Function<E, String> f) {
+    fields.add(new Field<>(Type.STRING, null, f));
+    layout();
+    return this;
+  }
+
+  @Override
+  public void encode(final E event, final ByteBuffer buffer) {
+    final int start = buffer.position();
+    int end = start + fixedSize;
+    if (end > buffer.limit()) {
+      throw new BufferOverflowException();
+    }
+    for (int i = 0; i < fields.size(); i++) {
+      final Field<E> field = fields.get(i);
+      buffer.position(start + offsets[i]);
+      if (field.type == Type.STRING) {
+        final String s = field.string.apply(event);
+        buffer.position(end);
+        final int length = Utf8.encode(s, buffer);
+        buffer.putInt(start + offsets[i], end - start);
+        buffer.putInt(start + offsets[i] + 4, length);
+        end += length;
+      } else {
+        field.writer.accept(event, buffer);
+      }
+    }
+    buffer.position(end);
+  }
+
+  @Override
+  public E decode(final ByteBuffer buffer) {
+    final RecordView view = view().wrap(buffer, buffer.position());
+    final E event = factory.apply(view);
+    buffer.position(buffer.position() + view.length());
+    return event;
+  }
+
+  /**
+   * @return a view to be {@link RecordView#wrap(ByteBuffer, int) wrapped}
+   *         around records of this codec
+   */
+  public RecordView view() {
+    return new RecordView(offsets, fixedSize, strings);
+  }
+
+  /**
+   * @return a test of the record at the position of a buffer, reusing a single
+   *         view and therefore to be used by one thread at a time
+   */
+  public Predicate<ByteBuffer> where(final Predicate<RecordView> p) {
+    final RecordView view = view();
+    return b -> p.test(view.wrap(b, b.position()));
+  }
+
+  private RecordCodec<E> add(final Type type, final BiConsumer<E, ByteBuffer> writer) {
+    fields.add(new Field<>(type, writer, null));
+    layout();
+    return this;
+  }
+
+  private void layout() {
+    offsets = new int[fields.size()];
+    int offset = 0;
+    for (int i = 0; i < fields.size(); i++) {
+      offsets[i] = offset;
+      offset += fields.get(i).type.size;
+    }
+    fixedSize = offset;
+    strings = IntStream.range(0, fields.size()).filter(i -> fields.get(i).type == Type.STRING).toArray();
+  }
+
+  enum Type {
+    INT(4),
+    LONG(8),
+    DOUBLE(8),
+    STRING(8);
+
+    final int size;
+
+    Type(final int size) {
+      this.size = size;
+    }
+  }
+
+  private static final class Field<E> {
+    final Type type;
+    final BiConsumer<E, ByteBuffer> writer;
+    final Function<E, String> string;
+
+    Field(final Type type, final BiConsumer<E, ByteBuffer> writer, final Function<E, String> string) {
+      this.type = type;
+      this.writer = writer;
+      this.string = string;
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+package org.epn.core.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight over a record of a {@link RecordCodec}: reads fields by index
+ * directly from the buffer, without moving its position. A view can be
+ * wrapped around one record after another.
+ */
+public final class RecordView {
+
+  private final int[] offsets;
+  private final int fixedSize;
+  private final int[] strings;
+  private ByteBuffer buffer;
+  private int base;
+
+  RecordView(final int[] offsets, final int fixedSize, final int[] strings) {
+    this.offsets = offsets;
+    this.fixedSize = fixedSize;
+    this.strings = strings;
+  }
+
+  /**
+   * @param index
+   *          absolute index of the record in {@code buffer}
+   */
+  public RecordView wrap(final ByteBuffer buffer, final int index) {
+    this.buffer = buffer;
+    this.base = index;
+    return this;
+  }
+
+  public int getInt(final int field) {
+    return buffer.getInt(base + offsets[field]);
+  }
+
+  public long getLong(final int field) {
+    return buffer.getLong(base + offsets[field]);
+  }
+
+  public double getDouble(final int field) {
+    return buffer.getDouble(base + offsets[field]);
+  }
+
+  public String getString(final int field) {
+    final int at = base + offsets[field];
+    return Utf8.decode(buffer, base + buffer.getInt(at), buffer.getInt(at + 4));
+  }
+
+  /**
+   * Compares a string field without decoding it.
+   */
+  public boolean stringEquals(final int field, final CharSequence s) {
+    final int at = base + offsets[field];
+    return Utf8.equals(buffer, base + buffer.getInt(at), buffer.getInt(at + 4), s);
+  }
+
+  /**
+   * @return the size of the record in bytes
+   */
+  public int length() {
+    int length = fixedSize;
+    for (final int field : strings) {
+      length += buffer.getInt(base + offsets[field] + 4);
+    }
+    return length;
+  }
+
+}
@@ -0,0 +1,116 @@
+package org.epn.core.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * UTF-8 directly between strings and buffers. Unpaired surrogates are
+ * written as three bytes.
+ */
+final class Utf8 {
+
+  private Utf8() {
+  }
+
+  /**
+   * @return the number of bytes written at the position of {@code buffer}
+   */
+  static int encode(final CharSequence s, final ByteBuffer buffer) {
+    final int start = buffer.position();
+    for (int i = 0; i < s.length(); i++) {
+      final char c = s.charAt(i);
+      if (c < 0x80) {
+        buffer.put((byte) c);
+      } else if (c < 0x800) {
+        buffer.put((byte) (0xC0 | c >> 6));
+        buffer.put((byte) (0x80 | c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+        final int cp = Character.toCodePoint(c, s.charAt(++i));
+        buffer.put((byte) (0xF0 | cp >> 18));
+        buffer.put((byte) (0x80 | cp >> 12 & 0x3F));
+        buffer.put((byte) (0x80 | cp >> 6 & 0x3F));
+        buffer.put((byte) (0x80 | cp & 0x3F));
+      } else {
+        buffer.put((byte) (0xE0 | c >> 12));
+        buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+        buffer.put((byte) (0x80 | c & 0x3F));
+      }
+    }
+    return buffer.position() - start;
+  }
+
+  /**
+   * Decodes {@code length} bytes at the absolute {@code index}, without
+   * moving the position of {@code buffer}. Heap buffers are decoded here as
+   * well rather than by {@link String}, which would replace the unpaired
+   * surrogates {@link #encode} writes.
+   */
+  static String decode(final ByteBuffer buffer, final int index, final int length) {
+    final char[] chars = new char[length];
+    int n = 0;
+    int i = index;
+    final int end = index + length;
+    while (i < end) {
+      final int b = buffer.get(i++);
+      if (b >= 0) {
+        chars[n++] = (char) b;
+      } else if ((b & 0xE0) == 0xC0) {
+        chars[n++] = (char) ((b & 0x1F) << 6 | buffer.get(i++) & 0x3F);
+      } else if ((b & 0xF0) == 0xE0) {
+        chars[n++] = (char) ((b & 0x0F) << 12 | (buffer.get(i++) & 0x3F) << 6 | buffer.get(i++) & 0x3F);
+      } else {
+        final int cp = (b & 0x07) << 18 | (buffer.get(i++) & 0x3F) << 12 | (buffer.get(i++) & 0x3F) << 6
+            | buffer.get(i++) & 0x3F;
+        chars[n++] = Character.highSurrogate(cp);
+        chars[n++] = Character.lowSurrogate(cp);
+      }
+    }
+    return new String(chars, 0, n);
+  }
+
+  /**
+   * @return whether the {@code length} bytes at the absolute {@code index}
+   *         are the UTF-8 encoding of {@code s}, without decoding them
+   */
+  static boolean equals(final ByteBuffer buffer, final int index, final int length, final CharSequence s) {
+    int i = index;
+    final int end = index + length;
+    for (int k = 0; k < s.length(); k++) {
+      final char c = s.charAt(k);
+      if (c < 0x80) {
+        if (i >= end || buffer.get(i++) != (byte) c) {
+          return false;
+        }
+      } else {
+        final int start = i;
+        final int cp;
+        if (Character.isHighSurrogate(c) && k + 1 < s.length() && Character.isLowSurrogate(s.charAt(k + 1))) {
+          cp = Character.toCodePoint(c, s.charAt(++k));
+        } else {
+          cp = c;
+        }
+        final int bytes = cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+        if (start + bytes > end || decodeCodePoint(buffer, start) != cp) {
+          return false;
+        }
+        i = start + bytes;
+      }
+    }
+    return i == end;
+  }
+
+  private static int decodeCodePoint(final ByteBuffer buffer, final int i) {
+    final int b = buffer.get(i);
+    if ((b & 0xE0) == 0xC0) {
+      return (b & 0x1F) << 6 | buffer.get(i + 1) & 0x3F;
+    }
+    if ((b & 0xF0) == 0xE0) {
+      return (b & 0x0F) << 12 | (buffer.get(i + 1) & 0x3F) << 6 | buffer.get(i + 2) & 0x3F;
+    }
+    if ((b & 0xF8) == 0xF0) {
+      return (b & 0x07) << 18 | (buffer.get(i + 1) & 0x3F) << 12 | (buffer.get(i + 2) & 0x3F) << 6
+          | buffer.get(i + 3) & 0x3F;
+    }
+    return -1;
+  }
+
+}
@@ -0,0 +1,181 @@
+package org.epn.core.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.epn.core.BasicDemand;
+import org.epn.core.codec.EventCodec;
+import org.reactivestreams.Subscription;
+
+/**
+ * Appends events to memory-mapped segment files in a directory, see
+ * {@link BasicJournalEventSource} for replaying them. A new segment is started
+ * when an event does not fit into the current one. Segments are forced to disk
+ * once per {@code syncEvery} events, and on {@link #sync()} and
+ * {@link #close()}. Reopening a journal continues after its last event.
+ */
+public class BasicJournalEventSink<E> implements EventSink<E>, Closeable {
+
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+  public static final int DEFAULT_SYNC_EVERY = BasicDemand.DEFAULT_BATCH_SIZE;
+
+  private final Path dir;
+  private final BiConsumer<E, ByteBuffer> encoder;
+  private final int segmentSize;
+  private final int syncEvery;
+  private final BasicDemand demand;
+  private MappedByteBuffer segment;
+  private long nextOffset;
+  private int unsynced;
+
+  public BasicJournalEventSink(final Path dir, final BiConsumer<E, ByteBuffer> encoder) {
+    this(dir, encoder, DEFAULT_SEGMENT_SIZE, DEFAULT_SYNC_EVERY);
+  }
+
+  public BasicJournalEventSink(final Path dir, final EventCodec<E> codec) {
+    this(dir, codec::encode);
+  }
+
+  /**
+   * @param encoder
+   *          writes an event at the position of the buffer, which may throw
+   *          {@link BufferOverflowException} if the event does not fit
+   * @param syncEvery
+   *          number of events after which the segment is forced to disk, or 0
+   *          to leave that to the operating system
+   */
+  public BasicJournalEventSink(final Path dir, final BiConsumer<E, ByteBuffer> encoder, final int segmentSize,
+      final int syncEvery) {
+
+    if (segmentSize <= Journal.HEADER) {
+      throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+    }
+    this.dir = dir;
+    this.encoder = encoder;
+    this.segmentSize = segmentSize;
+    this.syncEvery = syncEvery;
+    this.demand = new BasicDemand();
+    try {
+      Files.createDirectories(dir);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    final List<Path> segments = Journal.segments(dir);
+    if (segments.isEmpty()) {
+      open(0);
+    } else {
+      recover(segments.get(segments.size() - 1));
+    }
+  }
+
+  /**
+   * @return the offset the next event will be written at
+   */
+  public long getNextOffset() {
+    return nextOffset;
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+  @Override
+  public void onNext(final Event<E> event) {
+    append(event);
+    synced(1);
+  }
+
+  @Override
+  public void onNextBatch(final Event<E>[] events, final int count) {
+    for (int i = 0; i < count; i++) {
+      append(events[i]);
+    }
+    synced(count);
+  }
+
+  @Override
+  public void onComplete() {
+    close();
+  }
+
+  public void sync() {
+    segment.force();
+    unsynced = 0;
+  }
+
+  @Override
+  public void close() {
+    sync();
+  }
+
+  private void append(final Event<E> event) {
+    while (true) {
+      final int start = segment.position();
+      if (segment.remaining() >= Journal.HEADER) {
+        try {
+          segment.position(start + Journal.HEADER);
+          encoder.accept(event.get(), segment);
+          segment.putLong(start + 4, event.getTimestamp());
+          // the size goes last, it makes the record visible to readers
+          segment.putInt(start, segment.position() - start);
+          nextOffset++;
+          return;
+        } catch (final BufferOverflowException e) {
+          segment.position(start);
+        }
+      }
+      if (start == 0) {
+        throw new IllegalArgumentException("Event does not fit into a segment of " + segmentSize + " bytes");
+      }
+      sync();
+      open(nextOffset);
+    }
+  }
+
+  private void synced(final int n) {
+    unsynced += n;
+    if (syncEvery > 0 && unsynced >= syncEvery) {
+      sync();
+    }
+    demand.consumed(n);
+  }
+
+  private void recover(final Path last) {
+    open(Journal.baseOffset(last));
+    while (true) {
+      final int size = Journal.recordSize(segment);
+      if (size == 0) {
+        return;
+      }
+      segment.position(segment.position() + size);
+      nextOffset++;
+    }
+  }
+
+  private void open(final long baseOffset) {
+    final Path path = Journal.segment(dir, baseOffset);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      segment = channel.map(MapMode.READ_WRITE, 0, Math.max(segmentSize, channel.size()));
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    nextOffset = baseOffset;
+    unsynced = 0;
+  }
+
+}
@@ -0,0 +1,137 @@
+package org.epn.core.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.epn.api.Event;
+import org.epn.core.BasicDemand;
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSource;
+import org.epn.core.codec.EventCodec;
+
+/**
+ * Replays the events of a journal written by {@link BasicJournalEventSink},
+ * starting at a given offset. Events carry their timestamp, and their offset
+ * as sequence number. Events are emitted in batches, and by default the
+ * source blocks while subscribers have no demand, so nothing is dropped. Its
+ * subscribers then have to request from another thread than the one calling
+ * {@link #start()}, see {@link OverflowStrategy#BLOCK}, or the source has to be
+ * created with another overflow strategy. The source completes once it has
+ * replayed the journal.
+ */
+public class BasicJournalEventSource<E> extends BasicEventSource<E> {
+
+  private final Path dir;
+  private final Function<ByteBuffer, E> decoder;
+  private final long fromOffset;
+  private Predicate<ByteBuffer> filter = b -> true;
+  private long nextOffset;
+
+  public BasicJournalEventSource(final Path dir, final Function<ByteBuffer, E> decoder) {
+    this(dir, decoder, 0);
+  }
+
+  public BasicJournalEventSource(final Path dir, final Function<ByteBuffer, E> decoder, final long fromOffset) {
+    this(dir, decoder, fromOffset, BasicDemand.DEFAULT_BATCH_SIZE, OverflowStrategy.BLOCK);
+  }
+
+  public BasicJournalEventSource(final Path dir, final EventCodec<E> codec, final long fromOffset) {
+    this(dir, codec::decode, fromOffset);
+  }
+
+  /**
+   * @param decoder
+   *          reads an event from the position to the limit of the buffer, and
+   *          must not keep a reference to the buffer
+   */
+  public BasicJournalEventSource(final Path dir, final Function<ByteBuffer, E> decoder, final long fromOffset,
+      final int bufferSize, final OverflowStrategy overflowStrategy) {
+
+    super(bufferSize, overflowStrategy);
+    this.dir = dir;
+    this.decoder = decoder;
+    this.fromOffset = fromOffset;
+    this.nextOffset = fromOffset;
+  }
+
+  /**
+   * Replays only events whose encoded form passes {@code filter}, e.g. a
+   * {@link org.epn.core.codec.RecordCodec#where(Predicate)}, so events that
+   * are filtered out are never decoded. The filter sees the buffer from the
+   * position to the limit of the event and must not move its position.
+   */
+  public BasicJournalEventSource<E> withFilter(final Predicate<ByteBuffer> filter) {
+    this.filter = filter;
+    return this;
+  }
+
+  /**
+   * @return the offset after the last replayed event
+   */
+  public long getNextOffset() {
+    return nextOffset;
+  }
+
+  @Override
+  public void start() {
+    final List<Path> segments = Journal.segments(dir);
+    final Event<E>[] batch = newBatch(BasicDemand.DEFAULT_BATCH_SIZE);
+    for (int i = 0; i < segments.size(); i++) {
+      if (i + 1 < segments.size() && Journal.baseOffset(segments.get(i + 1)) <= fromOffset) {
+        continue;
+      }
+      replay(segments.get(i), batch);
+    }
+    notifyComplete();
+  }
+
+  private void replay(final Path path, final Event<E>[] batch) {
+    final MappedByteBuffer segment;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      segment = channel.map(MapMode.READ_ONLY, 0, channel.size());
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    long offset = Journal.baseOffset(path);
+    int count = 0;
+    int size;
+    while ((size = Journal.recordSize(segment)) != 0) {
+      final int start = segment.position();
+      if (offset >= fromOffset) {
+        final long timestamp = segment.getLong(start + 4);
+        segment.limit(start + size).position(start + Journal.HEADER);
+        if (filter.test(segment)) {
+          batch[count++] = new BasicEvent<E>(decoder.apply(segment), timestamp, offset);
+        }
+        segment.limit(segment.capacity());
+        nextOffset = offset + 1;
+        if (count == batch.length) {
+          emit(batch, count);
+          count = 0;
+        }
+      }
+      segment.position(start + size);
+      offset++;
+    }
+    emit(batch, count);
+  }
+
+  private void emit(final Event<E>[] batch, final int count) {
+    if (count > 0) {
+      notifySubscribers(batch, count);
+      Arrays.fill(batch, 0, count, null);
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+package org.epn.core.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Layout of a journal directory. Events are appended to segment files named
+ * after the offset of their first event. Each record is
+ * <pre>
+ * int  size of the record including this header
+ * long timestamp
+ * ...  encoded event
+ * </pre>
+ * A size of 0 marks the end of the records in a segment.
+ */
+final class Journal {
+
+  static final int HEADER = 12;
+  static final String SUFFIX = ".journal";
+
+  private Journal() {
+  }
+
+  static Path segment(final Path dir, final long baseOffset) {
+    return dir.resolve(String.format("%020d%s", baseOffset, SUFFIX));
+  }
+
+  static long baseOffset(final Path segment) {
+    final String name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+  }
+
+  /**
+   * @return the segments of {@code dir} in offset order
+   */
+  static List<Path> segments(final Path dir) {
+    final List<Path> segments = new ArrayList<>();
+    try (Stream<Path> files = Files.list(dir)) {
+      files.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).forEach(segments::add);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  /**
+   * @return the size of the record at the position of {@code segment}, or 0
+   *         at the end of the records
+   */
+  static int recordSize(final ByteBuffer segment) {
+    return segment.remaining() < HEADER ? 0 : segment.getInt(segment.position());
+  }
+
+}
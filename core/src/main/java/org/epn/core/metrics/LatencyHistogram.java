@@ -0,0 +1,141 @@
+package org.epn.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Histogram of latencies in nanoseconds with buckets of logarithmically
+ * growing width, 16 per power of two, so every recorded value is kept with a
+ * precision of about 6%. Counts are striped by thread, so threads recording
+ * into the same histogram rarely write to the same cache lines.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // values from 2^40 ns, about 18 minutes, on share the last bucket
+  private static final int MAX_MAGNITUDE = 40;
+  static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+  private static final int STRIPES = Math.min(4,
+      Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+  // keeps stripes on separate cache lines
+  private static final int STRIPE_LENGTH = BUCKETS + 16;
+
+  private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIPE_LENGTH);
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  public void record(final long nanos) {
+    record(nanos, 1);
+  }
+
+  /**
+   * Records {@code count} occurrences of {@code nanos}.
+   */
+  public void record(final long nanos, final long count) {
+    final int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    counts.getAndAdd(stripe * STRIPE_LENGTH + bucketOf(nanos), count);
+    max.accumulate(nanos);
+  }
+
+  public Snapshot snapshot() {
+    final long[] buckets = new long[BUCKETS];
+    for (int s = 0; s < STRIPES; s++) {
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets[i] += counts.get(s * STRIPE_LENGTH + i);
+      }
+    }
+    return new Snapshot(buckets, max.get());
+  }
+
+  static int bucketOf(final long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) Math.max(0, nanos);
+    }
+    final int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+    if (magnitude > MAX_MAGNITUDE) {
+      return BUCKETS - 1;
+    }
+    final int sub = (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * @return the smallest value of bucket {@code i}
+   */
+  static long lowestOf(final int i) {
+    if (i < SUB_BUCKETS) {
+      return i;
+    }
+    final int magnitude = i / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    return (long) (SUB_BUCKETS + i % SUB_BUCKETS) << (magnitude - SUB_BUCKET_BITS);
+  }
+
+  /**
+   * @return the value that represents bucket {@code i}, its middle
+   */
+  static long valueOf(final int i) {
+    final long width = (i < BUCKETS - 1) ? lowestOf(i + 1) - lowestOf(i) : 1;
+    return lowestOf(i) + width / 2;
+  }
+
+  /**
+   * The counts of a {@link LatencyHistogram} at one point in time.
+   */
+  public static final class Snapshot {
+
+    private final long[] buckets;
+    private final long count;
+    private final long max;
+
+    Snapshot(final long[] buckets, final long max) {
+      this.buckets = buckets;
+      long count = 0;
+      for (final long c : buckets) {
+        count += c;
+      }
+      this.count = count;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    public double getMean() {
+      if (count == 0) {
+        return 0;
+      }
+      double sum = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        sum += (double) valueOf(i) * buckets[i];
+      }
+      return sum / count;
+    }
+
+    /**
+     * @param percentile
+     *          between 0 and 100
+     * @return the value below or at which {@code percentile} percent of all
+     *         recorded values lie, 0 if none were recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+      final long rank = (long) Math.ceil(percentile / 100 * count);
+      if (count > 0 && rank >= count) {
+        return max;
+      }
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if (seen >= Math.max(1, rank)) {
+          return Math.min(valueOf(i), max);
+        }
+      }
+      return 0;
+    }
+  }
+
+}
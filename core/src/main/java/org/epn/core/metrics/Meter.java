@@ -0,0 +1,90 @@
+package org.epn.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Counts the events a node of a network receives and emits, and records how
+ * long it takes to process them, excluding the time its subscribers take when
+ * they are called on the same thread. Reading the clock costs more than most
+ * nodes take per event, so latencies are only recorded for one in
+ * {@value #SAMPLE_INTERVAL} calls. Sources emit through
+ * {@link #emitting(int)} and {@link #emitted(long)}, subscribers are wrapped
+ * in a {@link MeteredEventSink}.
+ * <p>
+ * A node receives and emits events serially, as Reactive Streams requires, so
+ * each counter has a single writer at a time and is updated without atomic
+ * instructions.
+ */
+public final class Meter {
+
+  /** A power of two. */
+  public static final int SAMPLE_INTERVAL = 16;
+
+  private static final AtomicLongFieldUpdater<Meter> IN = AtomicLongFieldUpdater.newUpdater(Meter.class, "in");
+  private static final AtomicLongFieldUpdater<Meter> OUT = AtomicLongFieldUpdater.newUpdater(Meter.class, "out");
+
+  private volatile long in;
+  private volatile long out;
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  // the thread currently timed in the metered subscriber, and the time it
+  // spent emitting since it entered; only ever written by that thread
+  private Thread caller;
+  private long downstreamNanos;
+  private int calls;
+
+  /**
+   * Counts {@code count} events about to be emitted.
+   *
+   * @return the time emitting started if it is to be excluded from the
+   *         latency, 0 otherwise
+   */
+  public long emitting(final int count) {
+    OUT.lazySet(this, out + count);
+    return (caller == Thread.currentThread()) ? System.nanoTime() : 0;
+  }
+
+  /**
+   * @param start
+   *          as returned by {@link #emitting(int)}
+   */
+  public void emitted(final long start) {
+    if (start != 0) {
+      downstreamNanos += System.nanoTime() - start;
+    }
+  }
+
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  public long getIn() {
+    return in;
+  }
+
+  public long getOut() {
+    return out;
+  }
+
+  /**
+   * @return the time the call started if it is sampled, 0 otherwise
+   */
+  long enter() {
+    if ((calls++ & (SAMPLE_INTERVAL - 1)) != 0) {
+      return 0;
+    }
+    caller = Thread.currentThread();
+    downstreamNanos = 0;
+    return System.nanoTime();
+  }
+
+  void exit(final long start, final int count) {
+    IN.lazySet(this, in + count);
+    if (start != 0) {
+      final long nanos = System.nanoTime() - start - downstreamNanos;
+      caller = null;
+      latency.record(Math.max(0, nanos) / count, count);
+    }
+  }
+
+}
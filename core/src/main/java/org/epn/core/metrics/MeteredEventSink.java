@@ -0,0 +1,65 @@
+package org.epn.core.metrics;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Passes events on to a subscriber and records them with a {@link Meter}.
+ * Batches are recorded as a whole, with their time spread evenly.
+ */
+public class MeteredEventSink<E> implements EventSink<E> {
+
+  private final Subscriber<? super Event<E>> subscriber;
+  private final EventSink<E> batchSubscriber;
+  private final Meter meter;
+
+  @SuppressWarnings("unchecked")
+  public MeteredEventSink(final Subscriber<? super Event<E>> subscriber, final Meter meter) {
+    this.subscriber = subscriber;
+    this.batchSubscriber = (subscriber instanceof EventSink) ? (EventSink<E>) (Subscriber<?>) subscriber : null;
+    this.meter = meter;
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    subscriber.onSubscribe(s);
+  }
+
+  @Override
+  public void onNext(final Event<E> e) {
+    final long start = meter.enter();
+    subscriber.onNext(e);
+    meter.exit(start, 1);
+  }
+
+  @Override
+  public void onNextBatch(final Event<E>[] events, final int count) {
+    if (batchSubscriber == null) {
+      EventSink.super.onNextBatch(events, count);
+      return;
+    }
+    final long start = meter.enter();
+    batchSubscriber.onNextBatch(events, count);
+    meter.exit(start, count);
+  }
+
+  @Override
+  public void onWatermark(final long watermark) {
+    if (batchSubscriber != null) {
+      batchSubscriber.onWatermark(watermark);
+    }
+  }
+
+  @Override
+  public void onError(final Throwable t) {
+    subscriber.onError(t);
+  }
+
+  @Override
+  public void onComplete() {
+    subscriber.onComplete();
+  }
+
+}
@@ -0,0 +1,92 @@
+package org.epn.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The metrics of one node of a network at one point in time.
+ */
+public final class NodeMetrics {
+
+  private final String name;
+  private final long timestamp;
+  private final long in;
+  private final long out;
+  private final long dropped;
+  private final long queued;
+  private final LatencyHistogram.Snapshot latency;
+
+  public NodeMetrics(final String name, final long timestamp, final long in, final long out, final long dropped,
+      final long queued, final LatencyHistogram.Snapshot latency) {
+    this.name = name;
+    this.timestamp = timestamp;
+    this.in = in;
+    this.out = out;
+    this.dropped = dropped;
+    this.queued = queued;
+    this.latency = latency;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return {@link System#nanoTime()} when the snapshot was taken
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public long getIn() {
+    return in;
+  }
+
+  public long getOut() {
+    return out;
+  }
+
+  /**
+   * @return the events received but not emitted, e.g. by a filter
+   */
+  public long getFiltered() {
+    return Math.max(0, in - out);
+  }
+
+  /**
+   * @return the events dropped for subscribers without demand
+   */
+  public long getDropped() {
+    return dropped;
+  }
+
+  /**
+   * @return the events waiting in buffers and hand-off queues of this node
+   */
+  public long getQueued() {
+    return queued;
+  }
+
+  /**
+   * @return the time taken per event, in nanoseconds
+   */
+  public LatencyHistogram.Snapshot getLatency() {
+    return latency;
+  }
+
+  /**
+   * @return the events per second emitted since {@code previous}, a snapshot
+   *         of the same node
+   */
+  public double getOutRate(final NodeMetrics previous) {
+    final long nanos = timestamp - previous.timestamp;
+    return (nanos <= 0) ? 0 : (double) (out - previous.out) * TimeUnit.SECONDS.toNanos(1) / nanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: in=%d out=%d filtered=%d dropped=%d queued=%d p50=%dns p99=%dns max=%dns", name, in, out,
+        getFiltered(), dropped, queued, latency.getValueAtPercentile(50), latency.getValueAtPercentile(99),
+        latency.getMax());
+  }
+
+}
@@ -1,25 +1,103 @@
 package org.epn.core.net;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
+import org.epn.api.DoubleEventSink;
 import org.epn.api.Event;
 import org.epn.api.EventProcessor;
 import org.epn.api.EventSink;
 import org.epn.api.EventSource;
-import org.epn.core.BasicEvent;
+import org.epn.api.IntEventSink;
+import org.epn.api.LongEventSink;
+import org.epn.core.BasicAsyncEventProcessor;
+import org.epn.core.BasicBufferEventProcessor;
+import org.epn.core.BasicDemand;
 import org.epn.core.BasicEventFilter;
+import org.epn.core.BasicEventSource;
+import org.epn.core.BasicEventSource.OverflowStrategy;
 import org.epn.core.BasicEventTransformer;
 import org.epn.core.BasicFanInEventProcessor;
 import org.epn.core.BasicFanOutEventProcessor;
 import org.epn.core.BasicFanOutEventProcessor.Outlet;
+import org.epn.core.BasicFusedEventProcessor;
+import org.epn.core.BasicFusedEventProcessor.Operator;
+import org.epn.core.BasicKeyedJoinEventProcessor;
+import org.epn.core.BasicMulticastEventProcessor;
+import org.epn.core.BasicMergeEventProcessor;
+import org.epn.core.BasicPartitionEventProcessor;
+import org.epn.core.BasicReorderEventProcessor;
+import org.epn.core.BasicRouterEventProcessor;
+import org.epn.core.BasicTimestampAssigner;
+import org.epn.core.cep.BasicPatternEventProcessor;
+import org.epn.core.cep.Match;
+import org.epn.core.cep.Pattern;
+import org.epn.core.codec.EventCodec;
+import org.epn.core.metrics.Meter;
+import org.epn.core.metrics.MeteredEventSink;
+import org.epn.core.metrics.NodeMetrics;
+import org.epn.core.primitive.BasicDoubleEventFilter;
+import org.epn.core.primitive.BasicDoubleEventTransformer;
+import org.epn.core.primitive.BasicDoubleToObjEventTransformer;
+import org.epn.core.primitive.BasicIntEventFilter;
+import org.epn.core.primitive.BasicIntEventTransformer;
+import org.epn.core.primitive.BasicIntToDoubleEventTransformer;
+import org.epn.core.primitive.BasicIntToLongEventTransformer;
+import org.epn.core.primitive.BasicIntToObjEventTransformer;
+import org.epn.core.primitive.BasicLongEventFilter;
+import org.epn.core.primitive.BasicLongEventTransformer;
+import org.epn.core.primitive.BasicLongToDoubleEventTransformer;
+import org.epn.core.primitive.BasicLongToObjEventTransformer;
+import org.epn.core.primitive.BasicToDoubleEventTransformer;
+import org.epn.core.primitive.BasicToIntEventTransformer;
+import org.epn.core.primitive.BasicToLongEventTransformer;
+import org.epn.core.transport.RemoteEventSink;
+import org.epn.core.transport.RemoteEventSink.Outbox;
+import org.epn.core.transport.RemoteEventSource;
+import org.epn.core.window.Aggregator;
+import org.epn.core.window.BasicWindowEventProcessor;
+import org.epn.core.window.Window;
+import org.reactivestreams.Subscriber;
 
 public class EventNetwork {
 
@@ -27,35 +105,234 @@ public class EventNetwork {
 
   private final Set<TypedNode<?>> sources = new HashSet<>();
   private final Set<TypedNode<?>> sinks = new HashSet<>();
+  private final List<TypedNode<?>> nodes = new ArrayList<>();
+  private final List<BasicAsyncEventProcessor<?>> stages = new ArrayList<>();
+  private final List<BasicMulticastEventProcessor<?>> multicasts = new ArrayList<>();
+  private final List<ExecutorService> workers = new ArrayList<>();
+  private final List<Closeable> remotes = new ArrayList<>();
+  private final List<AbstractEpnNode<?, ?>> metered = new ArrayList<>();
+
+  private Optional<Executor> executor = Optional.empty();
+  private int stageCapacity = BasicAsyncEventProcessor.DEFAULT_CAPACITY;
+  private boolean operatorFusion = true;
+  private int demandBatchSize = BasicDemand.DEFAULT_BATCH_SIZE;
+  private Optional<Integer> part = Optional.empty();
+  private boolean metrics;
+  private boolean optimization = true;
+  private Optional<EventNetworkRuntime> runtime = Optional.empty();
+  private OverflowStrategy joinOverflow = OverflowStrategy.BLOCK;
+  private boolean blockingJoins;
+  private EventNetworkOptimizer.Graph unoptimized;
 
   EventNetwork(final String name) {
     this.name = name;
   }
 
+  public EventNetwork withExecutor(final Executor executor) {
+    return withExecutor(executor, BasicAsyncEventProcessor.DEFAULT_CAPACITY);
+  }
+
+  public EventNetwork withExecutor(final Executor executor, final int stageCapacity) {
+    this.executor = Optional.of(executor);
+    this.stageCapacity = stageCapacity;
+    return this;
+  }
+
+  public EventNetwork withOperatorFusion(final boolean operatorFusion) {
+    this.operatorFusion = operatorFusion;
+    return this;
+  }
+
+  /**
+   * Sets the number of events built-in processors request from upstream at
+   * once. 1 requests after every single event.
+   */
+  public EventNetwork withDemandBatchSize(final int demandBatchSize) {
+    this.demandBatchSize = demandBatchSize;
+    return this;
+  }
+
+  /**
+   * Rewrites the network when it starts: unused outlets of splits are removed,
+   * nodes that merely pass events on are collapsed, identical chains on the
+   * same source are shared, and filters are pushed ahead of remote edges. Only
+   * filters and transformations declared {@link EpnNode#sideEffectFree()} are
+   * shared or moved. On by default.
+   */
+  public EventNetwork withOptimization(final boolean optimization) {
+    this.optimization = optimization;
+    return this;
+  }
+
+  /**
+   * Sets what joins that pair events by position do with events of one input
+   * while the other lags behind by more than the stage capacity. By default
+   * they {@link OverflowStrategy#BLOCK block} the input that runs ahead, so
+   * the network starts its sources on threads of their own. Sources started
+   * elsewhere, e.g. by a {@link EventNetworkRuntime}, and inputs split from the
+   * same source need {@link OverflowStrategy#SPILL SPILL} instead, which keeps
+   * all such events however many there are.
+   */
+  public EventNetwork withJoinOverflow(final OverflowStrategy joinOverflow) {
+    this.joinOverflow = joinOverflow;
+    return this;
+  }
+
+  /**
+   * Subscribes to the sources shared by all networks of {@code runtime}, and
+   * leaves starting them to it, see {@link EventNetworkRuntime}.
+   */
+  public EventNetwork withRuntime(final EventNetworkRuntime runtime) {
+    this.runtime = Optional.of(runtime);
+    return this;
+  }
+
+  /**
+   * Runs only one part of the network in this process: the nodes behind
+   * {@code part} remote edges, see {@link EpnNode#remote(SocketAddress, EventCodec)}.
+   * The other parts are started from the same definition elsewhere. Without
+   * a part, the whole network runs here and remote edges stay local.
+   */
+  public EventNetwork withPart(final int part) {
+    this.part = Optional.of(part);
+    return this;
+  }
+
+  /**
+   * Counts events and records processing latencies per node, see
+   * {@link #metrics()}. Off by default, which leaves a single null check per
+   * emitted event.
+   */
+  public EventNetwork withMetrics(final boolean metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
+  /**
+   * @return a snapshot of the metrics of all metered nodes, in the order they
+   *         were connected, or nothing unless enabled with
+   *         {@link #withMetrics(boolean)}
+   */
+  public Map<TypedNode<?>, NodeMetrics> metrics() {
+    final Map<TypedNode<?>, NodeMetrics> snapshot = new LinkedHashMap<>();
+    final long now = System.nanoTime();
+    metered.forEach(n -> snapshot.put(n, n.metrics(now)));
+    return snapshot;
+  }
+
+  /**
+   * Waits until {@link #isIdle()}, checking every millisecond.
+   */
+  public boolean awaitIdle(final long timeout, final TimeUnit unit) throws InterruptedException {
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!isIdle()) {
+      if (System.nanoTime() >= deadline) {
+        return false;
+      }
+      TimeUnit.MILLISECONDS.sleep(1);
+    }
+    return true;
+  }
+
+  /**
+   * @return whether every event taken by a hand-off stage or multicast has
+   *         been passed on, provided no source emits meanwhile. A stage counts
+   *         an event once its subscribers have returned, and the events taken
+   *         by all stages are counted before and after checking them, so an
+   *         event moving from one stage to the next is not missed.
+   */
+  public boolean isIdle() {
+    final long accepted = getAccepted();
+    return stages.stream().allMatch(BasicAsyncEventProcessor::isIdle)
+        && multicasts.stream().allMatch(BasicMulticastEventProcessor::isIdle) && getAccepted() == accepted;
+  }
+
+  private long getAccepted() {
+    return stages.stream().mapToLong(BasicAsyncEventProcessor::getAccepted).sum()
+        + multicasts.stream().mapToLong(BasicMulticastEventProcessor::getPublished).sum();
+  }
+
+  /**
+   * Shuts down the threads started for parallel partitions and multicast
+   * branches, and closes remote edges. Events still queued for them are
+   * discarded. A network of a {@link EventNetworkRuntime} unsubscribes from its
+   * shared sources.
+   */
+  public void stop() {
+    runtime.ifPresent(r -> r.detach(this));
+    multicasts.forEach(BasicMulticastEventProcessor::stop);
+    workers.forEach(ExecutorService::shutdownNow);
+    remotes.forEach(r -> {
+      try {
+        r.close();
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
   public <E> EpnNode<E, TerminalEpnNode<E>> fromSource(final EventSource<E> source) {
     final EpnNode<E, TerminalEpnNode<E>> root = new EpnNode<>(this, source);
     sources.add(root);
     return root;
   }
 
-  public <E> EpnNode<E, TerminalEpnNode<E>> join(final EventSource<E> top, final EventSource<E> bottom) {
+  public IntEpnNode<TerminalEpnNode<Integer>> fromIntSource(final EventSource<Integer> source) {
+    final IntEpnNode<TerminalEpnNode<Integer>> root = new IntEpnNode<>(this, source);
+    sources.add(root);
+    return root;
+  }
+
+  public LongEpnNode<TerminalEpnNode<Long>> fromLongSource(final EventSource<Long> source) {
+    final LongEpnNode<TerminalEpnNode<Long>> root = new LongEpnNode<>(this, source);
+    sources.add(root);
+    return root;
+  }
+
+  public DoubleEpnNode<TerminalEpnNode<Double>> fromDoubleSource(final EventSource<Double> source) {
+    final DoubleEpnNode<TerminalEpnNode<Double>> root = new DoubleEpnNode<>(this, source);
+    sources.add(root);
+    return root;
+  }
+
+  /**
+   * Pairs events of both sources by arrival position, unless narrowed to a
+   * keyed join with {@link FanInEpnNode#on(Function, Function)}.
+   */
+  public <E> FanInEpnNode<E, TerminalEpnNode<E>> join(final EventSource<E> top, final EventSource<E> bottom) {
     final FanInEpnNode<E, TerminalEpnNode<E>> fanInEpnNode = new FanInEpnNode<>(this, new EpnNode<>(this, top),
         new EpnNode<>(this, bottom));
     this.addSources(top, bottom);
-    return fanInEpnNode.join();
+    fanInEpnNode.join();
+    return fanInEpnNode;
   }
 
-  public <E> EpnNode<E, TerminalEpnNode<E>> join(final TypedNode<E> top, final TypedNode<E> bottom) {
+  public <E> FanInEpnNode<E, TerminalEpnNode<E>> join(final TypedNode<E> top, final TypedNode<E> bottom) {
     final FanInEpnNode<E, TerminalEpnNode<E>> fanInRoot = new FanInEpnNode<>(this, top, bottom);
     this.addSources(top, bottom);
-    return fanInRoot.join();
+    fanInRoot.join();
+    return fanInRoot;
   }
 
-  public <E> EpnNode<E, TerminalEpnNode<E>> join(final TypedNode<E> top, final TypedNode<E> bottom,
+  public <E> FanInEpnNode<E, TerminalEpnNode<E>> join(final TypedNode<E> top, final TypedNode<E> bottom,
       final BiFunction<E, E, E> combiner) {
     final FanInEpnNode<E, TerminalEpnNode<E>> fanInRoot = new FanInEpnNode<>(this, top, bottom);
     this.addSources(top, bottom);
-    return fanInRoot.join(combiner);
+    fanInRoot.join(combiner);
+    return fanInRoot;
+  }
+
+  /**
+   * Merges the events of all {@code inputs} into a single stream.
+   */
+  @SafeVarargs
+  public final <E> EpnNode<E, TerminalEpnNode<E>> merge(final TypedNode<E>... inputs) {
+    final List<TypedNode<E>> list = new ArrayList<>(inputs.length);
+    for (final TypedNode<E> input : inputs) {
+      list.add(input);
+      this.addSources(input);
+    }
+    return new MergeEpnNode<>(this, list, new TerminalEpnNode<>(this));
   }
 
   String getName() {
@@ -82,8 +359,278 @@ public class EventNetwork {
     return sources;
   }
 
+  /**
+   * @return the network as it was built, before it was optimized at start
+   */
+  EventNetworkOptimizer.Graph getUnoptimized() {
+    return (unoptimized != null) ? unoptimized : new EventNetworkOptimizer.Graph(sinks);
+  }
+
+  void addNode(final TypedNode<?> node) {
+    nodes.add(node);
+  }
+
+  <E> EventSource<E> handOff(final EventSource<E> upstream) {
+    if (!executor.isPresent()) {
+      return upstream;
+    }
+    final BasicAsyncEventProcessor<E> stage = new BasicAsyncEventProcessor<>(executor.get(), stageCapacity);
+    upstream.subscribe(stage);
+    stages.add(stage);
+    return stage;
+  }
+
+  /**
+   * Hands events of {@code upstream} off like {@link #handOff(EventSource)},
+   * and keeps those a subscriber has not requested yet in a buffer of the
+   * stage capacity instead of dropping them, see
+   * {@link #withJoinOverflow(OverflowStrategy)}.
+   */
+  <E> EventSource<E> bufferedHandOff(final EventSource<E> upstream) {
+    final BasicBufferEventProcessor<E> buffer = new BasicBufferEventProcessor<>(stageCapacity, joinOverflow);
+    blockingJoins |= joinOverflow == OverflowStrategy.BLOCK;
+    handOff(upstream).subscribe(buffer);
+    return buffer;
+  }
+
+  /**
+   * Hands events of {@code partition} off to a new thread of their own, which
+   * ends once the partition completes.
+   */
+  <E> EventSource<E> partitionHandOff(final EventSource<E> partition) {
+    final String threadName = "epn-" + name + "-partition-" + workers.size();
+    final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+      final Thread thread = new Thread(r, threadName);
+      thread.setDaemon(true);
+      return thread;
+    });
+    workers.add(worker);
+    final BasicAsyncEventProcessor<E> stage = new BasicAsyncEventProcessor<E>(worker, stageCapacity, false) {
+      @Override
+      protected void notifyComplete() {
+        super.notifyComplete();
+        worker.shutdown();
+      }
+    };
+    partition.subscribe(stage);
+    stages.add(stage);
+    return stage;
+  }
+
+  /**
+   * @return a multicast to {@code branches} branches, each running on a new
+   *         thread of its own
+   */
+  <E> BasicMulticastEventProcessor<E> multicast(final int branches) {
+    final String threadName = "epn-" + name + "-multicast-" + multicasts.size() + "-";
+    final AtomicInteger threads = new AtomicInteger();
+    final ExecutorService worker = Executors.newFixedThreadPool(branches, r -> {
+      final Thread thread = new Thread(r, threadName + threads.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    workers.add(worker);
+    final BasicMulticastEventProcessor<E> multicast = new BasicMulticastEventProcessor<>(worker, branches,
+        stageCapacity, demandBatchSize);
+    multicasts.add(multicast);
+    return multicast;
+  }
+
   void start() {
-    sources.forEach(n -> n.getSource().start());
+    final Set<TypedNode<?>> plan = plan();
+    if (optimization) {
+      unoptimized = new EventNetworkOptimizer.Graph(sinks);
+      new EventNetworkOptimizer(this, plan).optimize();
+    }
+    final List<RemoteEpnNode<?, ?>> senders = new ArrayList<>();
+    if (part.isPresent()) {
+      final Map<TypedNode<?>, Integer> parts = new HashMap<>();
+      plan.forEach(n -> partOf(n, parts));
+      plan.stream()
+          .filter(n -> n instanceof RemoteEpnNode && parts.get(n.getUpstream()).equals(part.get()))
+          .forEach(n -> senders.add((RemoteEpnNode<?, ?>) n));
+      plan.removeIf(n -> !parts.get(n).equals(part.get()));
+    }
+    if (operatorFusion) {
+      fuse(plan);
+    }
+    runtime.ifPresent(r -> share(r, plan));
+    plan.forEach(TypedNode::materialize);
+    senders.forEach(RemoteEpnNode::connectSender);
+    if (runtime.isPresent()) {
+      runtime.get().attach(this);
+    } else if (part.orElse(0) == 0) {
+      startSources();
+    }
+  }
+
+  /**
+   * Starts the sources, each on a thread of its own if a join may block one of
+   * them until another emits, and returns once all have returned from
+   * {@code start()}.
+   */
+  private void startSources() {
+    if (!blockingJoins || sources.size() < 2) {
+      sources.forEach(n -> n.getSource().start());
+      return;
+    }
+    final List<Thread> threads = new ArrayList<>();
+    final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    for (final TypedNode<?> source : sources) {
+      final Thread thread = new Thread(() -> {
+        try {
+          source.getSource().start();
+        } catch (final RuntimeException e) {
+          failure.compareAndSet(null, e);
+        }
+      }, "epn-" + name + "-source-" + threads.size());
+      thread.setDaemon(true);
+      threads.add(thread);
+      thread.start();
+    }
+    try {
+      for (final Thread thread : threads) {
+        thread.join();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  /**
+   * Lets the nodes of {@code plan} subscribe to the sources shared by
+   * {@code runtime} instead of their own.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private void share(final EventNetworkRuntime runtime, final Set<TypedNode<?>> plan) {
+    final Set<EventSource<?>> own = Collections.newSetFromMap(new IdentityHashMap<>());
+    sources.forEach(n -> own.add(n.getSource()));
+    final Map<EventSource<?>, EventSource<?>> shared = runtime.share(this, own);
+    for (final TypedNode<?> node : plan) {
+      final AbstractEpnNode n = (AbstractEpnNode) node;
+      if (n.source != null && shared.containsKey(n.source)) {
+        n.source = shared.get(n.source);
+      }
+    }
+  }
+
+  /**
+   * @return the number of remote edges between the sources and {@code node}
+   */
+  private static int partOf(final TypedNode<?> node, final Map<TypedNode<?>, Integer> parts) {
+    final Integer known = parts.get(node);
+    if (known != null) {
+      return known;
+    }
+    int part = 0;
+    for (final TypedNode<?> parent : node.getParents()) {
+      part = Math.max(part, partOf(parent, parts));
+    }
+    if (node instanceof RemoteEpnNode) {
+      part++;
+    }
+    parts.put(node, part);
+    return part;
+  }
+
+  /**
+   * @return all nodes of this network and, as joins may refer to nodes built
+   *         elsewhere, all their ancestors
+   */
+  private Set<TypedNode<?>> plan() {
+    final Set<TypedNode<?>> plan = new LinkedHashSet<>();
+    final List<TypedNode<?>> pending = new ArrayList<>(nodes);
+    while (!pending.isEmpty()) {
+      final TypedNode<?> node = pending.remove(pending.size() - 1);
+      if (plan.add(node)) {
+        pending.addAll(node.getParents());
+      }
+    }
+    return plan;
+  }
+
+  /**
+   * Replaces every linear run of built-in filters and transformers by a single
+   * {@link BasicFusedEventProcessor}. A run ends at the first node that has
+   * more or less than one child, so each node of the run only feeds the next.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private void fuse(final Set<TypedNode<?>> plan) {
+    for (final TypedNode<?> node : plan) {
+      if (!isFusible(node) || isFusible(node.getUpstream()) && node.getUpstream().getChildren().size() == 1) {
+        continue;
+      }
+
+      final List<AbstractEpnNode<?, ?>> run = new ArrayList<>();
+      TypedNode<?> last = node;
+      run.add((AbstractEpnNode<?, ?>) last);
+      while (last.getChildren().size() == 1 && isFusible(last.getChildren().get(0))) {
+        last = last.getChildren().get(0);
+        run.add((AbstractEpnNode<?, ?>) last);
+      }
+      if (run.size() < 2) {
+        continue;
+      }
+
+      final List<Operator> operators = new ArrayList<>();
+      run.forEach(n -> operators.add(n.operator.get()));
+      final BasicFusedEventProcessor fused = new BasicFusedEventProcessor<>(operators, demandBatchSize);
+
+      run.forEach(n -> {
+        n.subscriber = Optional.empty();
+        n.fused = true;
+      });
+      final AbstractEpnNode tail = run.get(run.size() - 1);
+      tail.fused = false;
+      tail.upstream = run.get(0).upstream;
+      tail.subscriber = Optional.of(fused);
+      tail.source = fused;
+    }
+  }
+
+  /**
+   * @return {@code subscriber}, counted and timed as the input of {@code node}
+   *         if metrics are enabled. Primitive sinks stay unwrapped, so they
+   *         keep receiving unboxed values.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  Subscriber metered(final AbstractEpnNode<?, ?> node, final Subscriber<?> subscriber) {
+    if (!metrics || subscriber instanceof IntEventSink || subscriber instanceof LongEventSink
+        || subscriber instanceof DoubleEventSink) {
+      return subscriber;
+    }
+    node.meteredInput = true;
+    return new MeteredEventSink<>((Subscriber<? super Event<Object>>) subscriber, meterOf(node));
+  }
+
+  /**
+   * Counts the events {@code node} emits, unless its source belongs to its
+   * upstream node.
+   */
+  private void meterSource(final AbstractEpnNode<?, ?> node) {
+    final EventSource<?> source = node.source;
+    if (!metrics || node.fused || !(source instanceof BasicEventSource)
+        || node.upstream != null && source == node.upstream.getSource()) {
+      return;
+    }
+    node.meteredSource = (BasicEventSource<?>) source;
+    node.meteredSource.setMeter(meterOf(node));
+  }
+
+  private Meter meterOf(final AbstractEpnNode<?, ?> node) {
+    if (node.meter == null) {
+      node.meter = new Meter();
+      metered.add(node);
+    }
+    return node.meter;
+  }
+
+  private static boolean isFusible(final TypedNode<?> node) {
+    return node instanceof AbstractEpnNode && ((AbstractEpnNode<?, ?>) node).operator.isPresent();
   }
 
   public interface Node {
@@ -92,6 +639,12 @@ public class EventNetwork {
   public static abstract class TypedNode<E> implements Node {
     abstract List<TypedNode<?>> getParents();
 
+    abstract List<TypedNode<?>> getChildren();
+
+    abstract TypedNode<?> getUpstream();
+
+    abstract void materialize();
+
     abstract EventSource<E> getSource();
 
     abstract EventNetwork getNetwork();
@@ -99,19 +652,38 @@ public class EventNetwork {
 
   public static abstract class AbstractEpnNode<E, C extends Node> extends TypedNode<E> {
     protected List<TypedNode<?>> parents = new ArrayList<>();
+    protected List<TypedNode<?>> children = new ArrayList<>();
+    protected TypedNode<?> upstream;
+    protected Optional<Subscriber<?>> subscriber = Optional.empty();
+    protected Optional<Operator> operator = Optional.empty();
     protected EventSource<E> source;
     protected C continuation;
     protected EventNetwork network;
     protected Optional<String> name;
 
+    // what the optimizer knows about this node
+    Predicate<?> predicate;
+    Function<?, ?> function;
+    boolean sideEffectFree;
+    boolean preserving;
+
+    private boolean materialized;
+    private boolean fused;
+    private Meter meter;
+    private boolean meteredInput;
+    private BasicEventSource<?> meteredSource;
+    private EventSource<?> inbox;
+
     protected AbstractEpnNode(final EventNetwork network) {
       this.network = network;
       this.name = Optional.empty();
+      network.addNode(this);
     }
 
     protected AbstractEpnNode(final EventNetwork network, final String name) {
       this.network = network;
       this.name = Optional.of(name);
+      network.addNode(this);
     }
 
     @SuppressWarnings("unchecked")
@@ -120,11 +692,14 @@ public class EventNetwork {
       this.source = source;
       this.continuation = (C) new TerminalEpnNode<>(network);
       this.name = Optional.empty();
+      network.addNode(this);
     }
 
     public AbstractEpnNode(final EventNetwork network, final TypedNode<?> parent) {
       this.network = network;
-      this.parents.add(parent);
+      this.upstream = parent;
+      addParent(parent);
+      network.addNode(this);
     }
 
     protected AbstractEpnNode(final EventNetwork network, final TypedNode<?> parent, final EventSource<E> source,
@@ -156,6 +731,99 @@ public class EventNetwork {
       return parents;
     }
 
+    @Override
+    List<TypedNode<?>> getChildren() {
+      return children;
+    }
+
+    @Override
+    TypedNode<?> getUpstream() {
+      return upstream;
+    }
+
+    protected void addParent(final TypedNode<?> parent) {
+      parents.add(parent);
+      ((AbstractEpnNode<?, ?>) parent).children.add(this);
+    }
+
+    /**
+     * @return whether this node only passes on the events of its single parent
+     */
+    boolean isPassThrough() {
+      return !subscriber.isPresent() && upstream != null && parents.size() == 1 && source != null
+          && source == upstream.getSource();
+    }
+
+    /**
+     * Turns this node into a filter of the events of its upstream node.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    void filterBy(final Predicate<?> p) {
+      final BasicEventFilter filter = new BasicEventFilter(p, network.demandBatchSize);
+      subscriber = Optional.of(filter);
+      source = filter;
+      operator = Optional.of(Operator.filter(p));
+      predicate = p;
+    }
+
+    @Override
+    final void materialize() {
+      if (!materialized) {
+        materialized = true;
+        getConnectedParents().forEach(TypedNode::materialize);
+        connect();
+        network.meterSource(this);
+      }
+    }
+
+    /**
+     * @return the parents to connect before this node
+     */
+    List<TypedNode<?>> getConnectedParents() {
+      return parents;
+    }
+
+    /**
+     * Subscribes this node to its upstream node. Called once when the network
+     * starts, after all parents are connected.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected void connect() {
+      subscriber.ifPresent(s -> {
+        inbox = network.handOff(upstream.getSource());
+        inbox.subscribe(network.metered(this, s));
+      });
+    }
+
+    NodeMetrics metrics(final long timestamp) {
+      final long out = (meteredSource == null) ? 0 : meter.getOut();
+      final long in = meteredInput ? meter.getIn() : received(out);
+      long dropped = 0;
+      long queued = (inbox instanceof BasicAsyncEventProcessor) ? ((BasicAsyncEventProcessor<?>) inbox).getQueued() : 0;
+      if (meteredSource != null) {
+        dropped = meteredSource.getDropped();
+        queued += meteredSource.getBuffered();
+      }
+      return new NodeMetrics(toString(), timestamp, in, out, dropped, queued, meter.getLatency().snapshot());
+    }
+
+    /**
+     * @return what the metered sources of the parents emitted, or else
+     *         {@code out}, as for an outlet of a router
+     */
+    private long received(final long out) {
+      long in = 0;
+      boolean metered = false;
+      for (final TypedNode<?> p : parents) {
+        final AbstractEpnNode<?, ?> parent = (AbstractEpnNode<?, ?>) p;
+        if (parent.meteredSource != null) {
+          in += parent.meter.getOut();
+          metered = true;
+        }
+      }
+      return metered ? in : out;
+    }
+
     EventNetwork start() {
       network.start();
       return network;
@@ -189,47 +857,554 @@ public class EventNetwork {
     }
 
     public <O> EpnNode<O, C> processedBy(final EventProcessor<E, O> processor) {
-      source.subscribe(processor);
-      return new EpnNode<O, C>(network, this, processor, continuation);
+      final EpnNode<O, C> node = new EpnNode<O, C>(network, this, processor, continuation);
+      node.subscriber = Optional.of(processor);
+      return node;
     }
 
     public EpnNode<E, C> filter(final Predicate<E> p) {
-      final BasicEventFilter<E> filter = new BasicEventFilter<>(p);
-      return this.processedBy(filter);
+      final BasicEventFilter<E> filter = new BasicEventFilter<>(p, network.demandBatchSize);
+      final EpnNode<E, C> node = this.processedBy(filter);
+      node.operator = Optional.of(Operator.filter(p));
+      node.predicate = p;
+      return node;
     }
 
     public <O> EpnNode<O, C> transform(final Function<E, O> f) {
-      final Function<Event<E>, Event<O>> ft = (e) -> new BasicEvent<O>(f.apply(e.get()));
-      final BasicEventTransformer<E, O> transformer = new BasicEventTransformer<>(ft);
-      return this.processedBy(transformer);
+      final BasicEventTransformer<E, O> transformer = new BasicEventTransformer<>(BasicEventTransformer.mapping(f),
+          network.demandBatchSize);
+      final EpnNode<O, C> node = this.processedBy(transformer);
+      node.operator = Optional.of(Operator.transform(f));
+      node.function = f;
+      return node;
+    }
+
+    /**
+     * Declares the filter or transformation of this node free of side effects,
+     * so the optimizer may share it with an identical one on the same source,
+     * or evaluate it earlier in the network, see
+     * {@link EventNetwork#withOptimization(boolean)}.
+     */
+    public EpnNode<E, C> sideEffectFree() {
+      if (predicate == null && function == null) {
+        throw new IllegalStateException("Not a filter or transformation: " + this);
+      }
+      sideEffectFree = true;
+      return this;
     }
 
     public FanOutNode<E, C> split() {
-      final BasicFanOutEventProcessor<E> processor = new BasicFanOutEventProcessor<>();
+      final BasicFanOutEventProcessor<E> processor = new BasicFanOutEventProcessor<>(network.demandBatchSize);
       return split(processor);
     }
 
     public FanOutNode<E, C> split(final Predicate<E> p) {
       final BasicFanOutEventProcessor<E> processor = new BasicFanOutEventProcessor<>(
-          e -> p.test(e) ? Outlet.TOP : Outlet.BOTTOM);
+          e -> p.test(e) ? Outlet.TOP : Outlet.BOTTOM, network.demandBatchSize);
       return split(processor);
     }
 
+    /**
+     * Sends every event to both outlets, like {@link #split()}, but each
+     * outlet consumes on a thread of its own, so a slow outlet does not hold
+     * up the other, see {@link BasicMulticastEventProcessor}. The ring holds
+     * as many events as a hand-off stage, see
+     * {@link EventNetwork#withExecutor(Executor, int)}.
+     */
+    public FanOutNode<E, C> multicast() {
+      final BasicMulticastEventProcessor<E> processor = network.multicast(2);
+      final List<EventSource<E>> branches = processor.getBranches();
+      final FanOutEpnNode<E, C> node = new FanOutEpnNode<>(network, this, continuation, branches.get(0),
+          branches.get(1));
+      node.subscriber = Optional.of(processor);
+      node.name = Optional.of("Multicast");
+      return node;
+    }
+
     public FanOutNode<E, C> split(final BasicFanOutEventProcessor<E> processor) {
-      source.subscribe(processor);
-      return new FanOutEpnNode<>(network, this, continuation, processor.getTop(), processor.getBottom());
+      final FanOutEpnNode<E, C> node = new FanOutEpnNode<>(network, this, continuation, processor.getTop(),
+          processor.getBottom());
+      node.subscriber = Optional.of(processor);
+      return node;
+    }
+
+    /**
+     * Routes each event to the outlet with the index returned by
+     * {@code router}, see {@link RouteEpnNode#outlet(int)}.
+     */
+    public RouteEpnNode<E, C> route(final int outlets, final ToIntFunction<E> router) {
+      final BasicRouterEventProcessor<E> processor = new BasicRouterEventProcessor<>(router, outlets,
+          network.demandBatchSize);
+      final RouteEpnNode<E, C> node = new RouteEpnNode<>(network, this, continuation, processor.getOutlets());
+      node.subscriber = Optional.of(processor);
+      return node;
+    }
+
+    /**
+     * Routes events with equal keys to the same of {@code outlets} outlets.
+     */
+    public RouteEpnNode<E, C> routeByKey(final int outlets, final Function<E, ?> key) {
+      return route(outlets, BasicRouterEventProcessor.hashing(key, outlets));
     }
 
     public C consumedBy(final EventSink<E> sink) {
-      source.subscribe(sink);
-      network.addSinks(new EpnSinkNode<>(network, sink, this));
+      final EpnSinkNode<E, C> node = new EpnSinkNode<>(network, sink, this);
+      node.subscriber = Optional.of(sink);
+      network.addSinks(node);
       return done();
     }
 
+    /**
+     * Marks the edge to the following nodes as remote: in a network split with
+     * {@link EventNetwork#withPart(int)}, events cross it over TCP to
+     * {@code address}, where the next part of the network listens. Events keep
+     * their timestamp, sequence and headers.
+     */
+    public EpnNode<E, C> remote(final SocketAddress address, final EventCodec<E> codec) {
+      return new RemoteEpnNode<>(network, this, continuation, address, codec);
+    }
+
+    /**
+     * Starts a key-partitioned section of the network, see
+     * {@link KeyedEpnNode#parallel(int)}.
+     */
+    public KeyedEpnNode<E, C> keyBy(final Function<E, ?> key) {
+      return new KeyedEpnNode<>(this, key);
+    }
+
+    /**
+     * Stamps events with their event time and emits watermarks trailing the
+     * highest timestamp by {@code maxOutOfOrderness}.
+     */
+    public EpnNode<E, C> assignTimestamps(final ToLongFunction<E> timestamps, final Duration maxOutOfOrderness) {
+      return assignTimestamps(timestamps, maxOutOfOrderness, BasicTimestampAssigner.DEFAULT_WATERMARK_INTERVAL);
+    }
+
+    public EpnNode<E, C> assignTimestamps(final ToLongFunction<E> timestamps, final Duration maxOutOfOrderness,
+        final Duration watermarkInterval) {
+      return processedBy(new BasicTimestampAssigner<>(timestamps, maxOutOfOrderness, watermarkInterval,
+          System::currentTimeMillis, network.demandBatchSize));
+    }
+
+    /**
+     * Releases events in event time order as watermarks pass, dropping late
+     * events.
+     */
+    public EpnNode<E, C> reorder() {
+      final EpnNode<E, C> node = processedBy(new BasicReorderEventProcessor<>(network.demandBatchSize));
+      node.preserving = true;
+      return node;
+    }
+
+    /**
+     * Releases events in event time order as watermarks pass, sending late
+     * events to {@code late}.
+     */
+    public EpnNode<E, C> reorder(final EventSink<E> late) {
+      final BasicReorderEventProcessor<E> processor = new BasicReorderEventProcessor<>(network.demandBatchSize);
+      final EpnNode<E, C> node = processedBy(processor);
+      node.preserving = true;
+      new EpnNode<>(network, node, processor.getLate(), continuation, "late").consumedBy(late);
+      return node;
+    }
+
+    /**
+     * Detects sequences of events that match {@code pattern}, and emits one
+     * {@link Match} per sequence.
+     */
+    public EpnNode<Match<E>, C> pattern(final Pattern<E> pattern) {
+      return processedBy(new BasicPatternEventProcessor<>(pattern, System::currentTimeMillis, network.demandBatchSize));
+    }
+
+    public WindowedEpnNode<E, C> window(final Window window) {
+      return new WindowedEpnNode<>(this, window);
+    }
+
+    public IntEpnNode<C> transformToInt(final ToIntFunction<E> f) {
+      final BasicToIntEventTransformer<E> transformer = new BasicToIntEventTransformer<>(f, network.demandBatchSize);
+      return subscribed(new IntEpnNode<>(network, this, transformer, continuation), transformer);
+    }
+
+    public LongEpnNode<C> transformToLong(final ToLongFunction<E> f) {
+      final BasicToLongEventTransformer<E> transformer = new BasicToLongEventTransformer<>(f, network.demandBatchSize);
+      return subscribed(new LongEpnNode<>(network, this, transformer, continuation), transformer);
+    }
+
+    public DoubleEpnNode<C> transformToDouble(final ToDoubleFunction<E> f) {
+      final BasicToDoubleEventTransformer<E> transformer = new BasicToDoubleEventTransformer<>(f,
+          network.demandBatchSize);
+      return subscribed(new DoubleEpnNode<>(network, this, transformer, continuation), transformer);
+    }
+
     public C done() {
       return continuation;
     }
 
+    protected <N extends AbstractEpnNode<?, C>> N subscribed(final N node, final EventSink<E> subscriber) {
+      node.subscriber = Optional.of(subscriber);
+      return node;
+    }
+
+  }
+
+  public static class WindowedEpnNode<E, C extends Node> implements Node {
+    private final EpnNode<E, C> parent;
+    private final Window window;
+
+    WindowedEpnNode(final EpnNode<E, C> parent, final Window window) {
+      this.parent = parent;
+      this.window = window;
+    }
+
+    public <A, R> EpnNode<R, C> aggregate(final Aggregator<E, A, R> aggregator) {
+      final EpnNode<R, C> node = parent.processedBy(
+          new BasicWindowEventProcessor<>(window, aggregator, parent.network.demandBatchSize));
+      node.name = Optional.of(window.toString());
+      return node;
+    }
+  }
+
+  public static class KeyedEpnNode<E, C extends Node> implements Node {
+    private final EpnNode<E, C> parent;
+    private final Function<E, ?> key;
+
+    KeyedEpnNode(final EpnNode<E, C> parent, final Function<E, ?> key) {
+      this.parent = parent;
+      this.key = key;
+    }
+
+    /**
+     * Partitions events by the hash of their key into {@code n} partitions,
+     * each processed on a thread of its own. Events with equal keys are
+     * processed in order by the same instance of each downstream processor.
+     */
+    public ParallelEpnNode<E, C> parallel(final int n) {
+      return new ParallelEpnNode<>(parent.network, parent, parent.continuation, key, n);
+    }
+  }
+
+  /**
+   * A stage that runs as one instance per partition.
+   */
+  public static class ParallelEpnNode<E, C extends Node> extends AbstractEpnNode<E, C> {
+    private final int parallelism;
+    private final Optional<Function<E, ?>> key;
+    private final Optional<Supplier<? extends Subscriber<?>>> instances;
+    private final List<EventSource<E>> partitions = new ArrayList<>();
+
+    ParallelEpnNode(final EventNetwork network, final TypedNode<E> parent, final C continuation,
+        final Function<E, ?> key, final int parallelism) {
+      super(network, parent, null, continuation, "Partition (" + parallelism + ")");
+      this.parallelism = parallelism;
+      this.key = Optional.of(key);
+      this.instances = Optional.empty();
+    }
+
+    ParallelEpnNode(final ParallelEpnNode<?, C> parent, final Supplier<? extends Subscriber<?>> instances,
+        final String name) {
+      super(parent.network, parent, null, parent.continuation, name);
+      this.parallelism = parent.parallelism;
+      this.key = Optional.empty();
+      this.instances = Optional.of(instances);
+    }
+
+    public <O> ParallelEpnNode<O, C> processedBy(final Supplier<? extends EventProcessor<E, O>> processors) {
+      return new ParallelEpnNode<>(this, processors, "Parallel (" + parallelism + ")");
+    }
+
+    public ParallelEpnNode<E, C> filter(final Predicate<E> p) {
+      return processedBy(() -> new BasicEventFilter<>(p, network.demandBatchSize));
+    }
+
+    public <O> ParallelEpnNode<O, C> transform(final Function<E, O> f) {
+      return processedBy(() -> new BasicEventTransformer<E, O>(BasicEventTransformer.mapping(f),
+          network.demandBatchSize));
+    }
+
+    /**
+     * Merges all partitions back into a single stream. Events with equal keys
+     * stay in order, events with different keys may interleave.
+     */
+    public EpnNode<E, C> merge() {
+      return new MergeEpnNode<>(network, this, continuation);
+    }
+
+    public C consumedBy(final Supplier<? extends EventSink<E>> sinks) {
+      network.addSinks(new ParallelEpnNode<E, C>(this, sinks, "Parallel sink (" + parallelism + ")"));
+      return continuation;
+    }
+
+    List<EventSource<E>> getPartitions() {
+      return partitions;
+    }
+
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected void connect() {
+      if (key.isPresent()) {
+        final BasicPartitionEventProcessor<E> router = new BasicPartitionEventProcessor<>(key.get(), parallelism,
+            network.demandBatchSize);
+        network.handOff(upstream.getSource()).subscribe((Subscriber) router);
+        router.getPartitions().forEach(p -> partitions.add(network.partitionHandOff(p)));
+        return;
+      }
+
+      for (final EventSource<?> partition : ((ParallelEpnNode<?, ?>) upstream).getPartitions()) {
+        final Subscriber instance = instances.get().get();
+        partition.subscribe(instance);
+        if (instance instanceof EventSource) {
+          partitions.add((EventSource<E>) instance);
+        }
+      }
+    }
+  }
+
+  public static class KeyedJoinEpnNode<E> implements Node {
+    private final FanInEpnNode<E, TerminalEpnNode<E>> join;
+    private final Function<E, ?> keyTop;
+    private final Function<E, ?> keyBottom;
+
+    KeyedJoinEpnNode(final FanInEpnNode<E, TerminalEpnNode<E>> join, final Function<E, ?> keyTop,
+        final Function<E, ?> keyBottom) {
+      this.join = join;
+      this.keyTop = keyTop;
+      this.keyBottom = keyBottom;
+    }
+
+    /**
+     * Joins events with equal keys whose timestamps are at most {@code window}
+     * apart.
+     */
+    public EpnNode<E, TerminalEpnNode<E>> within(final Duration window) {
+      join.keyTop = keyTop;
+      join.keyBottom = keyBottom;
+      join.window = window.toMillis();
+      join.name = Optional.of("Keyed join (" + window.toMillis() + " ms)");
+      return join;
+    }
+
+    /**
+     * Like {@link #within(Duration)}, but an input that sends nothing for
+     * {@code idleTimeout} no longer keeps the other input's events, which may
+     * then miss matches with its later events.
+     */
+    public EpnNode<E, TerminalEpnNode<E>> within(final Duration window, final Duration idleTimeout) {
+      join.idleTimeout = idleTimeout.toMillis();
+      return within(window);
+    }
+  }
+
+  static class MergeEpnNode<E, C extends Node> extends EpnNode<E, C> {
+    private final List<TypedNode<E>> inputs;
+
+    MergeEpnNode(final EventNetwork network, final ParallelEpnNode<E, C> parent, final C continuation) {
+      super(network, parent, null, continuation, "Merge");
+      this.inputs = Collections.emptyList();
+    }
+
+    MergeEpnNode(final EventNetwork network, final List<TypedNode<E>> inputs, final C continuation) {
+      super(network, "Merge (" + inputs.size() + ")");
+      this.inputs = inputs;
+      this.continuation = continuation;
+      inputs.forEach(this::addParent);
+    }
+
+    @Override
+    boolean isPassThrough() {
+      return inputs.size() == 1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void connect() {
+      final List<EventSource<E>> sources = new ArrayList<>();
+      if (inputs.isEmpty()) {
+        sources.addAll(((ParallelEpnNode<E, C>) upstream).getPartitions());
+      } else {
+        inputs.forEach(n -> sources.add(network.handOff(n.getSource())));
+      }
+      this.source = new BasicMergeEventProcessor<>(sources, network.demandBatchSize);
+    }
+  }
+
+  /**
+   * A remote edge, see {@link EpnNode#remote(SocketAddress, EventCodec)}. The
+   * part behind it receives events with a {@link RemoteEventSource}, the part
+   * before it sends them with a {@link RemoteEventSink}.
+   */
+  public static class RemoteEpnNode<E, C extends Node> extends EpnNode<E, C> {
+    private final SocketAddress address;
+    private final EventCodec<E> codec;
+
+    RemoteEpnNode(final EventNetwork network, final TypedNode<E> parent, final C continuation,
+        final SocketAddress address, final EventCodec<E> codec) {
+      super(network, parent, null, continuation, "Remote (" + address + ")");
+      this.address = address;
+      this.codec = codec;
+      this.preserving = true;
+    }
+
+    @Override
+    boolean isPassThrough() {
+      return !network.part.isPresent();
+    }
+
+    @Override
+    List<TypedNode<?>> getConnectedParents() {
+      return network.part.isPresent() ? Collections.emptyList() : parents;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void connect() {
+      if (!network.part.isPresent()) {
+        this.source = (EventSource<E>) upstream.getSource();
+        return;
+      }
+      final RemoteEventSource<E> receiver = new RemoteEventSource<>(address, codec);
+      network.remotes.add(receiver);
+      this.source = receiver;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    void connectSender() {
+      final RemoteEventSink<E> sender = new RemoteEventSink<>(address, codec);
+      network.remotes.add(sender);
+      final Outbox<E> outbox = new Outbox<>(network.stageCapacity);
+      network.handOff(upstream.getSource()).subscribe((Subscriber) outbox);
+      outbox.subscribe(sender);
+    }
+  }
+
+  /**
+   * The outlets of a router, see {@link EpnNode#route(int, ToIntFunction)}.
+   */
+  public static class RouteEpnNode<E, C extends Node> extends AbstractEpnNode<E, C> {
+    private final List<EventSource<E>> outlets;
+
+    RouteEpnNode(final EventNetwork network, final TypedNode<E> parent, final C continuation,
+        final List<EventSource<E>> outlets) {
+      super(network, parent, null, continuation, "Route (" + outlets.size() + ")");
+      this.outlets = outlets;
+    }
+
+    /**
+     * Continues the network with the events routed to outlet {@code i}. Its
+     * branch returns to this node when done, so all outlets can be wired up in
+     * one chain.
+     */
+    public EpnNode<E, RouteEpnNode<E, C>> outlet(final int i) {
+      return new EpnNode<>(network, this, outlets.get(i), this, "outlet " + i);
+    }
+
+    public C done() {
+      return continuation;
+    }
+  }
+
+  public static class IntEpnNode<C extends Node> extends EpnNode<Integer, C> {
+
+    protected IntEpnNode(final EventNetwork network, final EventSource<Integer> source) {
+      super(network, source);
+    }
+
+    protected IntEpnNode(final EventNetwork network, final TypedNode<?> parent, final EventSource<Integer> source,
+        final C continuation) {
+      super(network, parent, source, continuation);
+    }
+
+    public IntEpnNode<C> filterInt(final IntPredicate p) {
+      final BasicIntEventFilter filter = new BasicIntEventFilter(p, network.demandBatchSize);
+      return subscribed(new IntEpnNode<>(network, this, filter, continuation), filter);
+    }
+
+    public IntEpnNode<C> mapInt(final IntUnaryOperator f) {
+      final BasicIntEventTransformer transformer = new BasicIntEventTransformer(f, network.demandBatchSize);
+      return subscribed(new IntEpnNode<>(network, this, transformer, continuation), transformer);
+    }
+
+    public LongEpnNode<C> mapToLong(final IntToLongFunction f) {
+      final BasicIntToLongEventTransformer transformer = new BasicIntToLongEventTransformer(f,
+          network.demandBatchSize);
+      return subscribed(new LongEpnNode<>(network, this, transformer, continuation), transformer);
+    }
+
+    public DoubleEpnNode<C> mapToDouble(final IntToDoubleFunction f) {
+      final BasicIntToDoubleEventTransformer transformer = new BasicIntToDoubleEventTransformer(f,
+          network.demandBatchSize);
+      return subscribed(new DoubleEpnNode<>(network, this, transformer, continuation), transformer);
+    }
+
+    public <O> EpnNode<O, C> mapToObj(final IntFunction<O> f) {
+      final BasicIntToObjEventTransformer<O> transformer = new BasicIntToObjEventTransformer<>(f,
+          network.demandBatchSize);
+      return subscribed(new EpnNode<>(network, this, transformer, continuation), transformer);
+    }
+
+  }
+
+  public static class LongEpnNode<C extends Node> extends EpnNode<Long, C> {
+
+    protected LongEpnNode(final EventNetwork network, final EventSource<Long> source) {
+      super(network, source);
+    }
+
+    protected LongEpnNode(final EventNetwork network, final TypedNode<?> parent, final EventSource<Long> source,
+        final C continuation) {
+      super(network, parent, source, continuation);
+    }
+
+    public LongEpnNode<C> filterLong(final LongPredicate p) {
+      final BasicLongEventFilter filter = new BasicLongEventFilter(p, network.demandBatchSize);
+      return subscribed(new LongEpnNode<>(network, this, filter, continuation), filter);
+    }
+
+    public LongEpnNode<C> mapLong(final LongUnaryOperator f) {
+      final BasicLongEventTransformer transformer = new BasicLongEventTransformer(f, network.demandBatchSize);
+      return subscribed(new LongEpnNode<>(network, this, transformer, continuation), transformer);
+    }
+
+    public DoubleEpnNode<C> mapToDouble(final LongToDoubleFunction f) {
+      final BasicLongToDoubleEventTransformer transformer = new BasicLongToDoubleEventTransformer(f,
+          network.demandBatchSize);
+      return subscribed(new DoubleEpnNode<>(network, this, transformer, continuation), transformer);
+    }
+
+    public <O> EpnNode<O, C> mapToObj(final LongFunction<O> f) {
+      final BasicLongToObjEventTransformer<O> transformer = new BasicLongToObjEventTransformer<>(f,
+          network.demandBatchSize);
+      return subscribed(new EpnNode<>(network, this, transformer, continuation), transformer);
+    }
+
+  }
+
+  public static class DoubleEpnNode<C extends Node> extends EpnNode<Double, C> {
+
+    protected DoubleEpnNode(final EventNetwork network, final EventSource<Double> source) {
+      super(network, source);
+    }
+
+    protected DoubleEpnNode(final EventNetwork network, final TypedNode<?> parent, final EventSource<Double> source,
+        final C continuation) {
+      super(network, parent, source, continuation);
+    }
+
+    public DoubleEpnNode<C> filterDouble(final DoublePredicate p) {
+      final BasicDoubleEventFilter filter = new BasicDoubleEventFilter(p, network.demandBatchSize);
+      return subscribed(new DoubleEpnNode<>(network, this, filter, continuation), filter);
+    }
+
+    public DoubleEpnNode<C> mapDouble(final DoubleUnaryOperator f) {
+      final BasicDoubleEventTransformer transformer = new BasicDoubleEventTransformer(f, network.demandBatchSize);
+      return subscribed(new DoubleEpnNode<>(network, this, transformer, continuation), transformer);
+    }
+
+    public <O> EpnNode<O, C> mapToObj(final DoubleFunction<O> f) {
+      final BasicDoubleToObjEventTransformer<O> transformer = new BasicDoubleToObjEventTransformer<>(f,
+          network.demandBatchSize);
+      return subscribed(new EpnNode<>(network, this, transformer, continuation), transformer);
+    }
+
   }
 
   public static class TerminalEpnNode<E> extends AbstractEpnNode<E, Node> {
@@ -273,6 +1448,10 @@ public class EventNetwork {
       this.bottom = bottom;
     }
 
+    EventSource<E> getBottom() {
+      return bottom;
+    }
+
     @Override
     public EpnNode<E, FanOutBottomNode<E, C>> top() {
       return new EpnNode<>(network, this, source,
@@ -314,13 +1493,19 @@ public class EventNetwork {
   public static class FanInEpnNode<E, C extends Node> extends EpnNode<E, C> implements FanInNode<E, C> {
     private final TypedNode<E> top;
     private final TypedNode<E> bottom;
+    private Optional<BiFunction<E, E, E>> combiner = Optional.empty();
+    private boolean joined;
+    private Function<E, ?> keyTop;
+    private Function<E, ?> keyBottom;
+    private long window;
+    private long idleTimeout = Long.MAX_VALUE;
 
     public FanInEpnNode(final EventNetwork network, final TypedNode<E> top, final TypedNode<E> bottom) {
       super(network, "Fan in");
       this.top = top;
       this.bottom = bottom;
-      this.parents.add(top);
-      this.parents.add(bottom);
+      addParent(top);
+      addParent(bottom);
     }
 
     public FanInEpnNode(final EventNetwork network, final TypedNode<E> parent, final C continuation,
@@ -330,16 +1515,39 @@ public class EventNetwork {
 
     @Override
     public EpnNode<E, TerminalEpnNode<E>> join() {
-      this.source = new BasicFanInEventProcessor<E>(top.getSource(), bottom.getSource());
+      this.joined = true;
       return _join();
     }
 
     @Override
     public EpnNode<E, TerminalEpnNode<E>> join(final BiFunction<E, E, E> combiner) {
-      this.source = new BasicFanInEventProcessor<E>(top.getSource(), bottom.getSource(), combiner);
+      this.joined = true;
+      this.combiner = Optional.of(combiner);
       return _join();
     }
 
+    @Override
+    protected void connect() {
+      if (joined && keyTop != null) {
+        this.source = new BasicKeyedJoinEventProcessor<E>(network.handOff(top.getSource()),
+            network.handOff(bottom.getSource()), keyTop, keyBottom, window, combiner, System::currentTimeMillis,
+            idleTimeout, network.demandBatchSize);
+      } else if (joined) {
+        // pairing requests no more than fit into its buffers, and sources emit regardless
+        this.source = new BasicFanInEventProcessor<E>(network.bufferedHandOff(top.getSource()),
+            network.bufferedHandOff(bottom.getSource()), combiner, network.demandBatchSize);
+      }
+    }
+
+    /**
+     * Turns this join into a keyed join, see
+     * {@link KeyedJoinEpnNode#within(Duration)}.
+     */
+    @SuppressWarnings("unchecked")
+    public KeyedJoinEpnNode<E> on(final Function<E, ?> keyTop, final Function<E, ?> keyBottom) {
+      return new KeyedJoinEpnNode<>((FanInEpnNode<E, TerminalEpnNode<E>>) this, keyTop, keyBottom);
+    }
+
     @SuppressWarnings("unchecked")
     private EpnNode<E, TerminalEpnNode<E>> _join() {
       this.continuation = (C) new TerminalEpnNode<>(network);
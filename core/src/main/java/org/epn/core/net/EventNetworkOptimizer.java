@@ -0,0 +1,345 @@
+package org.epn.core.net;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.epn.api.EventSource;
+import org.epn.core.BasicFanOutEventProcessor;
+import org.epn.core.BasicFanOutEventProcessor.Outlet;
+import org.epn.core.BasicFanOutEventProcessor.OutletSelector;
+import org.epn.core.net.EventNetwork.AbstractEpnNode;
+import org.epn.core.net.EventNetwork.FanOutEpnNode;
+import org.epn.core.net.EventNetwork.ParallelEpnNode;
+import org.epn.core.net.EventNetwork.RemoteEpnNode;
+import org.epn.core.net.EventNetwork.TypedNode;
+
+/**
+ * Rewrites the graph of a network before it is connected, in this order:
+ * <ol>
+ * <li>Nodes whose events nobody consumes are removed, if that has no effect
+ * other than saving their work. A split left with a single outlet becomes a
+ * filter.</li>
+ * <li>Nodes that only pass on the events of their parent are collapsed, so
+ * their neighbours can be fused.</li>
+ * <li>Roots of the same source are merged, and then identical side-effect-free
+ * filters and transformations of the same node, so each is evaluated once.</li>
+ * <li>Side-effect-free filters are pushed ahead of nodes that emit the events
+ * they receive unchanged, like remote edges, across side-effect-free
+ * transformations in between, to drop events before they are sent or
+ * buffered.</li>
+ * </ol>
+ * Only nodes that their children subscribe to directly are rewritten. The
+ * rewrites and the resulting plan are logged.
+ */
+final class EventNetworkOptimizer {
+
+  private static final Logger LOG = Logger.getLogger(EventNetworkOptimizer.class.getName());
+
+  private final EventNetwork network;
+  private final Set<TypedNode<?>> plan;
+  private final List<String> rewrites = new ArrayList<>();
+
+  EventNetworkOptimizer(final EventNetwork network, final Set<TypedNode<?>> plan) {
+    this.network = network;
+    this.plan = plan;
+  }
+
+  void optimize() {
+    new ArrayList<>(plan).forEach(this::removeIfUnused);
+    new ArrayList<>(plan).forEach(this::removeUnusedOutlets);
+    new ArrayList<>(plan).forEach(this::collapse);
+    shareRoots();
+    shareChildren();
+    new ArrayList<>(plan).forEach(this::pushDown);
+
+    LOG.log(rewrites.isEmpty() ? Level.FINE : Level.INFO, () -> describe());
+  }
+
+  private void removeIfUnused(final TypedNode<?> node) {
+    final AbstractEpnNode<?, ?> n = (AbstractEpnNode<?, ?>) node;
+    if (!plan.contains(n) || !n.children.isEmpty() || network.getSinks().contains(n) || !isInert(n)) {
+      return;
+    }
+    if (n.parents.isEmpty()) {
+      // sources are started regardless, roots only connect their children
+      plan.remove(n);
+      return;
+    }
+    plan.remove(n);
+    rewrites.add("removed unused " + n);
+    for (final TypedNode<?> parent : n.parents) {
+      ((AbstractEpnNode<?, ?>) parent).children.remove(n);
+      removeIfUnused(parent);
+    }
+  }
+
+  /**
+   * @return whether dropping {@code node} only saves its work
+   */
+  private static boolean isInert(final AbstractEpnNode<?, ?> node) {
+    return node.sideEffectFree || node instanceof FanOutEpnNode
+        || !node.subscriber.isPresent() && !(node instanceof RemoteEpnNode) && !(node instanceof ParallelEpnNode);
+  }
+
+  /**
+   * Turns a split with one consumed outlet into a filter for that outlet.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private void removeUnusedOutlets(final TypedNode<?> node) {
+    if (!(node instanceof FanOutEpnNode) || !plan.contains(node) || node.getChildren().size() != 1) {
+      return;
+    }
+    final FanOutEpnNode<?, ?> split = (FanOutEpnNode<?, ?>) node;
+    final AbstractEpnNode<?, ?> outlet = (AbstractEpnNode<?, ?>) split.children.get(0);
+    if (split.subscriber.get().getClass() != BasicFanOutEventProcessor.class || outlet.subscriber.isPresent()
+        || !isChained(split) || plan.stream().anyMatch(n -> n != outlet && n != split && !n.getChildren().isEmpty()
+            && (n.getSource() == split.getSource() || n.getSource() == split.getBottom()))) {
+      return;
+    }
+
+    final Optional<OutletSelector> selector = ((BasicFanOutEventProcessor) split.subscriber.get()).getSelector();
+    final Outlet unused = (outlet.getSource() == split.getSource()) ? Outlet.BOTTOM : Outlet.TOP;
+    outlet.filterBy(selector.isPresent() ? e -> selector.get().select(e) != unused : e -> true);
+    rewrites.add("replaced " + split + " by a filter for its " + outlet + " outlet");
+    outlet.name = Optional.empty();
+    replace(split.upstream, split, outlet);
+    outlet.parents.set(0, split.upstream);
+    outlet.upstream = split.upstream;
+    split.children.clear();
+    plan.remove(split);
+  }
+
+  private void collapse(final TypedNode<?> node) {
+    final AbstractEpnNode<?, ?> n = (AbstractEpnNode<?, ?>) node;
+    if (!plan.contains(n) || !n.isPassThrough() || network.getSinks().contains(n)
+        || network.getSources().contains(n) || !subscribedDirectly(n)) {
+      return;
+    }
+    final AbstractEpnNode<?, ?> parent = (AbstractEpnNode<?, ?>) n.parents.get(0);
+    rewrites.add("collapsed " + n + " into " + parent);
+    parent.children.remove(n);
+    adopt(parent, n);
+    plan.remove(n);
+  }
+
+  /**
+   * Merges the roots of the same source, and starts the source only once.
+   */
+  private void shareRoots() {
+    final Map<EventSource<?>, AbstractEpnNode<?, ?>> roots = new IdentityHashMap<>();
+    for (final TypedNode<?> node : new ArrayList<>(plan)) {
+      final AbstractEpnNode<?, ?> n = (AbstractEpnNode<?, ?>) node;
+      if (!n.parents.isEmpty() || n.source == null) {
+        continue;
+      }
+      final AbstractEpnNode<?, ?> root = roots.putIfAbsent(n.source, n);
+      if (root == null) {
+        continue;
+      }
+      final AbstractEpnNode<?, ?> kept = subscribedDirectly(n) ? root : n;
+      final AbstractEpnNode<?, ?> merged = (kept == root) ? n : root;
+      if (!subscribedDirectly(merged)) {
+        continue;
+      }
+      rewrites.add("merged roots of " + kept);
+      adopt(kept, merged);
+      plan.remove(merged);
+      roots.put(kept.source, kept);
+      if (network.getSources().remove(merged)) {
+        network.getSources().add(kept);
+      }
+    }
+  }
+
+  /**
+   * Merges children of the same node that apply the same side-effect-free
+   * function, and then their children in turn.
+   */
+  private void shareChildren() {
+    final Deque<AbstractEpnNode<?, ?>> pending = new ArrayDeque<>();
+    plan.forEach(n -> pending.add((AbstractEpnNode<?, ?>) n));
+    while (!pending.isEmpty()) {
+      final AbstractEpnNode<?, ?> node = pending.pop();
+      if (!plan.contains(node)) {
+        continue;
+      }
+      for (int i = 0; i < node.children.size(); i++) {
+        final AbstractEpnNode<?, ?> kept = (AbstractEpnNode<?, ?>) node.children.get(i);
+        for (int j = node.children.size() - 1; j > i; j--) {
+          final AbstractEpnNode<?, ?> merged = (AbstractEpnNode<?, ?>) node.children.get(j);
+          if (isIdentical(kept, merged, node) && subscribedDirectly(merged)) {
+            rewrites.add("shared " + kept + " after " + node);
+            node.children.remove(j);
+            adopt(kept, merged);
+            plan.remove(merged);
+            pending.push(kept);
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean isIdentical(final AbstractEpnNode<?, ?> a, final AbstractEpnNode<?, ?> b,
+      final AbstractEpnNode<?, ?> parent) {
+    return a.sideEffectFree && b.sideEffectFree && a.getClass() == b.getClass() && a.upstream == parent
+        && b.upstream == parent && a.parents.size() == 1 && b.parents.size() == 1
+        && (a.predicate != null && a.predicate == b.predicate || a.function != null && a.function == b.function);
+  }
+
+  /**
+   * Moves a side-effect-free filter ahead of the topmost node that preserves
+   * events in the linear chain above it, composing its predicate with the
+   * transformations it passes. Crossing transformations alone would only
+   * evaluate them twice.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private void pushDown(final TypedNode<?> node) {
+    final AbstractEpnNode<?, ?> filter = (AbstractEpnNode<?, ?>) node;
+    if (!plan.contains(filter) || !filter.sideEffectFree || filter.predicate == null || !isChained(filter)
+        || !subscribedDirectly(filter)) {
+      return;
+    }
+
+    Predicate p = filter.predicate;
+    Predicate pushed = null;
+    AbstractEpnNode<?, ?> ahead = null;
+    AbstractEpnNode<?, ?> above = (AbstractEpnNode<?, ?>) filter.upstream;
+    while (above.children.size() == 1 && isChained(above) && !network.getSources().contains(above)) {
+      if (above.preserving) {
+        ahead = above;
+        pushed = p;
+      } else if (above.sideEffectFree && above.function != null) {
+        final Function f = above.function;
+        final Predicate q = p;
+        p = e -> q.test(f.apply(e));
+      } else if (!above.sideEffectFree || above.predicate == null) {
+        break;
+      }
+      above = (AbstractEpnNode<?, ?>) above.upstream;
+    }
+    if (ahead == null) {
+      return;
+    }
+
+    final AbstractEpnNode<?, ?> parent = (AbstractEpnNode<?, ?>) filter.upstream;
+    parent.children.remove(filter);
+    adopt(parent, filter);
+    final AbstractEpnNode<?, ?> upstream = (AbstractEpnNode<?, ?>) ahead.upstream;
+    replace(upstream, ahead, filter);
+    filter.parents.set(0, upstream);
+    filter.upstream = upstream;
+    filter.children.add(ahead);
+    ahead.parents.set(0, filter);
+    ahead.upstream = filter;
+    if (pushed != filter.predicate) {
+      filter.filterBy(pushed);
+    }
+    rewrites.add("pushed " + filter + " ahead of " + ahead);
+  }
+
+  private static boolean isChained(final AbstractEpnNode<?, ?> node) {
+    return node.parents.size() == 1 && node.upstream == node.parents.get(0);
+  }
+
+  /**
+   * @return whether all children of {@code node} subscribe to it as their
+   *         upstream node, so they can subscribe to another one instead
+   */
+  private static boolean subscribedDirectly(final AbstractEpnNode<?, ?> node) {
+    return node.children.stream().allMatch(c -> c.getUpstream() == node);
+  }
+
+  /**
+   * Moves all children of {@code from} to {@code to}.
+   */
+  private static void adopt(final AbstractEpnNode<?, ?> to, final AbstractEpnNode<?, ?> from) {
+    for (final TypedNode<?> child : from.children) {
+      final AbstractEpnNode<?, ?> c = (AbstractEpnNode<?, ?>) child;
+      c.parents.set(c.parents.indexOf(from), to);
+      c.upstream = to;
+      to.children.add(c);
+    }
+    from.children.clear();
+  }
+
+  private static void replace(final TypedNode<?> parent, final TypedNode<?> child, final TypedNode<?> by) {
+    final List<TypedNode<?>> children = ((AbstractEpnNode<?, ?>) parent).children;
+    children.set(children.indexOf(child), by);
+  }
+
+  /**
+   * @return the rewrites and the resulting plan as a tree from each source
+   */
+  private String describe() {
+    final StringBuilder sb = new StringBuilder("Plan of network " + network.getName());
+    rewrites.forEach(r -> sb.append("\n  ").append(r));
+    final Set<TypedNode<?>> described = new HashSet<>();
+    plan.stream()
+        .filter(n -> n.getParents().isEmpty() && !n.getChildren().isEmpty())
+        .forEach(n -> describe(n, 1, described, sb));
+    return sb.toString();
+  }
+
+  private static void describe(final TypedNode<?> node, final int depth, final Set<TypedNode<?>> described,
+      final StringBuilder sb) {
+    sb.append("\n");
+    for (int i = 0; i < depth; i++) {
+      sb.append("  ");
+    }
+    sb.append(node);
+    if (!described.add(node)) {
+      sb.append(" (see above)");
+      return;
+    }
+    node.getChildren().forEach(c -> describe(c, depth + 1, described, sb));
+  }
+
+  /**
+   * The nodes of a network, with their names and parents at one point in time.
+   */
+  static final class Graph {
+    private final Set<TypedNode<?>> sinks;
+    private final Map<TypedNode<?>, List<TypedNode<?>>> parents = new LinkedHashMap<>();
+    private final Map<TypedNode<?>, String> names = new HashMap<>();
+
+    Graph(final Set<TypedNode<?>> sinks) {
+      this.sinks = new LinkedHashSet<>(sinks);
+      final Deque<TypedNode<?>> pending = new ArrayDeque<>(sinks);
+      while (!pending.isEmpty()) {
+        final TypedNode<?> node = pending.pop();
+        if (!parents.containsKey(node)) {
+          parents.put(node, new ArrayList<>(node.getParents()));
+          names.put(node, node.toString());
+          pending.addAll(node.getParents());
+        }
+      }
+    }
+
+    Set<TypedNode<?>> getSinks() {
+      return sinks;
+    }
+
+    List<TypedNode<?>> getParents(final TypedNode<?> node) {
+      return parents.get(node);
+    }
+
+    String getName(final TypedNode<?> node) {
+      return names.get(node);
+    }
+  }
+
+}
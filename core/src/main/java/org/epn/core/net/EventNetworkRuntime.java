@@ -0,0 +1,150 @@
+package org.epn.core.net;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.epn.api.Event;
+import org.epn.api.EventSource;
+import org.epn.core.BasicEventSource;
+import org.reactivestreams.Subscriber;
+
+/**
+ * Runs many networks against shared sources, e.g.:
+ * <pre>
+ * EventNetworkRuntime runtime = new EventNetworkRuntime();
+ * Epn.named("a").withRuntime(runtime).fromSource(trades).filter(...).consumedBy(...).start();
+ * Epn.named("b").withRuntime(runtime).fromSource(trades).transform(...).consumedBy(...).start();
+ * runtime.start();
+ * </pre>
+ * Networks started with a runtime connect to its sources but leave starting
+ * them to the runtime, which starts each source once, however many networks
+ * consume it. The source emits each event in a single loop over the
+ * subscribers of all networks. Networks can be added and removed while the
+ * sources run: an added network receives the events emitted once it is
+ * connected, a removed one none from then on. Shared sources must be
+ * {@link BasicEventSource}s, so removed networks can unsubscribe from them.
+ */
+public class EventNetworkRuntime {
+
+  private final Map<EventSource<?>, Boolean> started = new IdentityHashMap<>();
+  private final List<EventSource<?>> sources = new ArrayList<>();
+  private final Map<EventNetwork, Map<EventSource<?>, SharedEventSource<?>>> networks = new LinkedHashMap<>();
+  private boolean running;
+
+  /**
+   * Starts all sources of the networks added so far, and those of networks
+   * added later as they are started.
+   */
+  public void start() {
+    final List<EventSource<?>> unstarted;
+    synchronized (this) {
+      running = true;
+      unstarted = unstarted();
+    }
+    unstarted.forEach(EventSource::start);
+  }
+
+  /**
+   * Stops {@code network}, see {@link EventNetwork#stop()}.
+   */
+  public void remove(final EventNetwork network) {
+    network.stop();
+  }
+
+  /**
+   * Stops all networks. Sources keep running, as there is no way to stop them.
+   */
+  public void stop() {
+    getNetworks().forEach(EventNetwork::stop);
+  }
+
+  public synchronized List<EventNetwork> getNetworks() {
+    return new ArrayList<>(networks.keySet());
+  }
+
+  /**
+   * @return what {@code network} subscribes to instead of each of
+   *         {@code shared}
+   * @throws IllegalArgumentException
+   *           if one of them is no {@link BasicEventSource}, as the network
+   *           could not unsubscribe from it when it is stopped
+   */
+  synchronized Map<EventSource<?>, EventSource<?>> share(final EventNetwork network,
+      final Collection<EventSource<?>> shared) {
+    for (final EventSource<?> source : shared) {
+      if (!(source instanceof BasicEventSource)) {
+        throw new IllegalArgumentException("Cannot share " + source.getClass().getSimpleName());
+      }
+    }
+    final Map<EventSource<?>, EventSource<?>> result = new IdentityHashMap<>();
+    for (final EventSource<?> source : shared) {
+      if (started.putIfAbsent(source, Boolean.FALSE) == null) {
+        sources.add(source);
+      }
+      result.put(source, networks.computeIfAbsent(network, n -> new IdentityHashMap<>())
+          .computeIfAbsent(source, SharedEventSource::new));
+    }
+    return result;
+  }
+
+  /**
+   * Subscribes the connected {@code network} to its sources, and starts those
+   * that are new if the runtime is running.
+   */
+  void attach(final EventNetwork network) {
+    final List<EventSource<?>> unstarted;
+    synchronized (this) {
+      networks.computeIfAbsent(network, n -> new IdentityHashMap<>()).values().forEach(SharedEventSource::attach);
+      unstarted = running ? unstarted() : new ArrayList<>();
+    }
+    unstarted.forEach(EventSource::start);
+  }
+
+  synchronized void detach(final EventNetwork network) {
+    final Map<EventSource<?>, SharedEventSource<?>> shared = networks.remove(network);
+    if (shared != null) {
+      shared.values().forEach(SharedEventSource::detach);
+    }
+  }
+
+  private List<EventSource<?>> unstarted() {
+    final List<EventSource<?>> unstarted = new ArrayList<>();
+    for (final EventSource<?> source : sources) {
+      if (!started.put(source, Boolean.TRUE)) {
+        unstarted.add(source);
+      }
+    }
+    return unstarted;
+  }
+
+  /**
+   * A source as seen by one network. Subscribers are passed on to the source
+   * once the network is connected, so no events reach it half connected.
+   */
+  private static final class SharedEventSource<E> implements EventSource<E> {
+    private final BasicEventSource<E> source;
+    private final List<Subscriber<? super Event<E>>> subscribers = new ArrayList<>();
+
+    SharedEventSource(final EventSource<E> source) {
+      this.source = (BasicEventSource<E>) source;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super Event<E>> s) {
+      subscribers.add(s);
+    }
+
+    void attach() {
+      subscribers.forEach(source::subscribe);
+    }
+
+    void detach() {
+      subscribers.forEach(source::unsubscribe);
+    }
+  }
+
+}
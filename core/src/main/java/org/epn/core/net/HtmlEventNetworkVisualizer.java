@@ -1,26 +1,55 @@
 package org.epn.core.net;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.epn.core.metrics.NodeMetrics;
 import org.epn.core.net.EventNetwork.TypedNode;
+import org.epn.core.net.EventNetworkOptimizer.Graph;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Renders a network as a graph in an HTML page. If the network has
+ * {@link EventNetwork#withMetrics(boolean) metrics} enabled, nodes are labelled
+ * with their throughput, drops and latency percentiles and coloured by the
+ * share of processing time they take, and edges with their event rate. A
+ * running network can be {@link #serve(EventNetwork, int, long) served} on a
+ * local port, where the page refreshes itself periodically. The network is
+ * rendered as it runs, or as it was built before it was optimized, see
+ * {@link EventNetwork#withOptimization(boolean)}.
+ */
 public class HtmlEventNetworkVisualizer implements EventNetworkVisualizer {
   private static final String HTML_TEMPLATE;
+  private static final String[] HEAT = { "#666666", "#996633", "#CC6600", "#FF3300" };
 
+  private final boolean optimized;
   private final Map<TypedNode<?>, Integer> nodeIds = new HashMap<>();
   private final Map<Integer, String> nodes = new HashMap<>();
   private final Set<Edge> edges = new HashSet<>();
   private int nodeCnt = 0;
+  private Map<TypedNode<?>, NodeMetrics> metrics = Collections.emptyMap();
+  private Map<TypedNode<?>, NodeMetrics> previous = Collections.emptyMap();
 
   static {
     final InputStream templateStream = Thread.currentThread().getContextClassLoader()
@@ -33,27 +62,71 @@ public class HtmlEventNetworkVisualizer implements EventNetworkVisualizer {
     }
   }
 
+  public HtmlEventNetworkVisualizer() {
+    this(true);
+  }
+
+  /**
+   * @param optimized
+   *          false to render the network as it was built
+   */
+  public HtmlEventNetworkVisualizer(final boolean optimized) {
+    this.optimized = optimized;
+  }
+
   @Override
   public void visualize(final EventNetwork network) {
-    network.getSinks().forEach(s -> process(s));
-    writeFiles(network.getName());
+    collect(network);
+    writeFiles(title(network));
+  }
+
+  /**
+   * Serves the page at {@code http://localhost:port/}. It reloads the
+   * network's metrics every {@code refreshMillis}, and shows event rates
+   * between two reloads.
+   *
+   * @param port
+   *          0 for any free port, see {@link Server#getAddress()}
+   */
+  public Server serve(final EventNetwork network, final int port, final long refreshMillis) throws IOException {
+    final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+      final Thread thread = new Thread(r, "epn-" + network.getName() + "-visualizer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    server.createContext("/epn.json", e -> respond(e, "application/javascript", () -> {
+      collect(network);
+      return json();
+    }));
+    server.createContext("/", e -> respond(e, "text/html", () -> html(title(network), refreshMillis)));
+    server.setExecutor(executor);
+    server.start();
+    return new Server(server, executor);
   }
 
-  private void process(final TypedNode<?> node) {
-    process(node, null);
+  private synchronized void collect(final EventNetwork network) {
+    previous = metrics;
+    metrics = network.metrics();
+    final Graph graph = optimized ? new Graph(network.getSinks()) : network.getUnoptimized();
+    graph.getSinks().forEach(s -> process(graph, s, null));
   }
 
-  private void process(final TypedNode<?> node, final Integer childId) {
+  private void process(final Graph graph, final TypedNode<?> node, final Integer childId) {
     if (node == null)
       return;
 
     final int id = nodeIds.computeIfAbsent(node, n -> nodeCnt++);
-    nodes.put(id, node.toString());
+    nodes.put(id, graph.getName(node));
     if (childId != null) {
       edges.add(new Edge(id, childId));
     }
 
-    node.getParents().forEach(p -> process(p, id));
+    graph.getParents(node).forEach(p -> process(graph, p, id));
+  }
+
+  private String title(final EventNetwork network) {
+    return optimized ? network.getName() : network.getName() + " (as built)";
   }
 
   private void writeFiles(final String networkName) {
@@ -69,23 +142,180 @@ public class HtmlEventNetworkVisualizer implements EventNetworkVisualizer {
 
   private void writeHtml(final Path tmp, final String networkName) throws IOException {
     final File file = new File(tmp.toString(), "index.html");
-    FileUtils.writeStringToFile(file, HTML_TEMPLATE.replace("{{name}}", networkName), "UTF-8");
+    FileUtils.writeStringToFile(file, html(networkName, 0), "UTF-8");
   }
 
   private void writeJson(final Path tmp) throws IOException {
+    final File file = new File(tmp.toString(), "epn.json");
+    FileUtils.writeStringToFile(file, json(), "UTF-8");
+  }
+
+  private static String html(final String networkName, final long refreshMillis) {
+    return HTML_TEMPLATE.replace("{{name}}", networkName).replace("{{refresh}}", Long.toString(refreshMillis));
+  }
+
+  private synchronized String json() {
+    final Map<Integer, NodeMetrics> byId = byId(metrics);
+    final Map<Integer, NodeMetrics> before = byId(previous);
+    final Map<Integer, Double> heat = new HashMap<>();
+    byId.forEach((id, m) -> heat.put(id, busyness(m, before.get(id))));
+    final double hottest = heat.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+
     final StringBuilder sb = new StringBuilder();
 
     sb.append("var _nodes = [\n");
-    nodes.forEach((k, v) -> sb.append("{id:").append(k).append(",").append(" label: '").append(v).append("'},\n"));
+    nodes.forEach((k, v) -> {
+      final NodeMetrics m = byId.get(k);
+      final String label = label(v, m, before.get(k));
+      sb.append("{id:").append(k).append(",").append(" label: '").append(escape(label)).append("'");
+      if (m != null && hottest > 0) {
+        final int level = (int) Math.round(heat.get(k) / hottest * (HEAT.length - 1));
+        sb.append(", color: {background: '").append(HEAT[level]).append("'}");
+      }
+      sb.append("},\n");
+    });
     sb.append("];\n");
 
     sb.append("var _edges = [\n");
-    edges.forEach(
-        e -> sb.append("{from:").append(e.from).append(",").append(" to: ").append(e.to).append(", arrows:'to'},\n"));
+    edges.forEach(e -> {
+      sb.append("{id:'").append(e.from).append("-").append(e.to).append("', from:").append(e.from).append(",")
+          .append(" to: ").append(e.to).append(", arrows:'to'");
+      final String rate = rate(e, byId, before);
+      if (rate != null) {
+        sb.append(", label: '").append(rate).append("'");
+      }
+      sb.append("},\n");
+    });
     sb.append("];\n");
+    return sb.toString();
+  }
 
-    final File file = new File(tmp.toString(), "epn.json");
-    FileUtils.writeStringToFile(file, sb.toString(), "UTF-8");
+  private Map<Integer, NodeMetrics> byId(final Map<TypedNode<?>, NodeMetrics> metrics) {
+    final Map<Integer, NodeMetrics> byId = new HashMap<>();
+    metrics.forEach((n, m) -> {
+      final Integer id = nodeIds.get(n);
+      if (id != null) {
+        byId.put(id, m);
+      }
+    });
+    return byId;
+  }
+
+  private static String label(final String name, final NodeMetrics m, final NodeMetrics p) {
+    if (m == null) {
+      return name;
+    }
+    final StringBuilder sb = new StringBuilder(name);
+    if (p != null) {
+      sb.append("\nin ").append(format(perSecond(m.getIn() - p.getIn(), m, p))).append("/s out ")
+          .append(format(m.getOutRate(p))).append("/s");
+    } else {
+      sb.append("\nin ").append(format(m.getIn())).append(" out ").append(format(m.getOut()));
+    }
+    if (m.getLatency().getCount() > 0) {
+      sb.append("\np50 ").append(nanos(m.getLatency().getValueAtPercentile(50))).append(" p99 ")
+          .append(nanos(m.getLatency().getValueAtPercentile(99)));
+    }
+    if (m.getDropped() > 0) {
+      sb.append("\ndropped ").append(format(m.getDropped()));
+    }
+    if (m.getQueued() > 0) {
+      sb.append("\nqueued ").append(format(m.getQueued()));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return the events on edge {@code e}: what its upstream node emitted, or
+   *         what its downstream node received if the upstream emits through
+   *         other nodes, like a router through its outlets
+   */
+  private static String rate(final Edge e, final Map<Integer, NodeMetrics> byId,
+      final Map<Integer, NodeMetrics> before) {
+    final NodeMetrics from = byId.get(e.from);
+    final boolean upstream = from != null && from.getOut() > 0;
+    final int id = upstream ? e.from : e.to;
+    final NodeMetrics m = byId.get(id);
+    if (m == null) {
+      return null;
+    }
+    final NodeMetrics p = before.get(id);
+    if (p == null) {
+      return format(upstream ? m.getOut() : m.getIn());
+    }
+    return format(upstream ? m.getOutRate(p) : perSecond(m.getIn() - p.getIn(), m, p)) + "/s";
+  }
+
+  /**
+   * @return the processing time a node took since the previous snapshot, or
+   *         since it started
+   */
+  private static double busyness(final NodeMetrics m, final NodeMetrics previous) {
+    final long in = (previous == null) ? m.getIn() : m.getIn() - previous.getIn();
+    return in * m.getLatency().getMean();
+  }
+
+  private static double perSecond(final long events, final NodeMetrics m, final NodeMetrics previous) {
+    final long nanos = m.getTimestamp() - previous.getTimestamp();
+    return (nanos <= 0) ? 0 : events * 1e9 / nanos;
+  }
+
+  private static String format(final double n) {
+    if (n >= 1e9) {
+      return String.format(Locale.ROOT, "%.1fG", n / 1e9);
+    } else if (n >= 1e6) {
+      return String.format(Locale.ROOT, "%.1fM", n / 1e6);
+    } else if (n >= 1e3) {
+      return String.format(Locale.ROOT, "%.1fk", n / 1e3);
+    }
+    return String.format(Locale.ROOT, "%.0f", n);
+  }
+
+  private static String nanos(final long nanos) {
+    if (nanos >= 1_000_000) {
+      return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+    } else if (nanos >= 1_000) {
+      return String.format(Locale.ROOT, "%.1fus", nanos / 1e3);
+    }
+    return nanos + "ns";
+  }
+
+  private static String escape(final String s) {
+    return s.replace("\\", "\\\\").replace("'", "\\'").replace("\n", "\\n");
+  }
+
+  private static void respond(final HttpExchange exchange, final String contentType, final Supplier<String> body)
+      throws IOException {
+    final byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+    exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * A visualization served by {@link HtmlEventNetworkVisualizer#serve(EventNetwork, int, long)}.
+   */
+  public static class Server implements Closeable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    Server(final HttpServer server, final ExecutorService executor) {
+      this.server = server;
+      this.executor = executor;
+    }
+
+    public InetSocketAddress getAddress() {
+      return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+      server.stop(0);
+      executor.shutdownNow();
+    }
   }
 
   private static class Edge {
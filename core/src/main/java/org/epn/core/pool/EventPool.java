@@ -0,0 +1,92 @@
+package org.epn.core.pool;
+
+import org.epn.api.Event;
+
+/**
+ * Ring of reusable {@link PooledEvent}s for a source that emits from one
+ * thread at a time:
+ * <pre>
+ * final PooledEvent&lt;Trade&gt; e = pool.claim(trade, now, sequence++);
+ * notifySubscribers(e);
+ * e.release();
+ * </pre>
+ * Each claim takes the next slot of the ring. If the event in that slot is
+ * still referenced, e.g. because a subscriber buffers it, the slot gets a new
+ * event and the claim is counted as a miss, so a pool that is too small costs
+ * allocations but never corrupts events. The size is rounded up to a power of
+ * two.
+ */
+public class EventPool<T> {
+
+  private final PooledEvent<T>[] slots;
+  private final int mask;
+  private final boolean debug;
+  private long claimed;
+  private long misses;
+
+  public EventPool(final int size) {
+    this(size, false);
+  }
+
+  /**
+   * @param debug
+   *          if true, events are never reused, and every access to a released
+   *          event throws an {@link IllegalStateException} whose cause shows
+   *          where it was released
+   */
+  public EventPool(final int size, final boolean debug) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Size must be positive: " + size);
+    }
+    final int n = (size == 1) ? 1 : Integer.highestOneBit(size - 1) << 1;
+    this.slots = newSlots(n);
+    this.mask = n - 1;
+    this.debug = debug;
+    for (int i = 0; i < n; i++) {
+      slots[i] = new PooledEvent<>(debug);
+    }
+  }
+
+  public PooledEvent<T> claim(final T value) {
+    return claim(value, Event.NO_TIMESTAMP, Event.NO_SEQUENCE);
+  }
+
+  /**
+   * @return an event holding one reference, which the caller releases once
+   *         it has emitted the event
+   */
+  public PooledEvent<T> claim(final T value, final long timestamp, final long sequence) {
+    final int slot = (int) (claimed++ & mask);
+    if (debug) {
+      return new PooledEvent<T>(true).claim(value, timestamp, sequence);
+    }
+    PooledEvent<T> e = slots[slot];
+    if (!e.isReleased()) {
+      misses++;
+      e = new PooledEvent<>(false);
+      slots[slot] = e;
+    }
+    return e.claim(value, timestamp, sequence);
+  }
+
+  public int size() {
+    return slots.length;
+  }
+
+  public long getClaimed() {
+    return claimed;
+  }
+
+  /**
+   * @return the number of claims that found their slot still referenced
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> PooledEvent<T>[] newSlots(final int size) {
+    return (PooledEvent<T>[]) new PooledEvent<?>[size];
+  }
+
+}
@@ -0,0 +1,166 @@
+package org.epn.core.pool;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.epn.api.Event;
+import org.epn.core.BasicEvent;
+
+/**
+ * Mutable event claimed from an {@link EventPool}. The source holds one
+ * reference while it notifies its subscribers and releases it afterwards;
+ * stages that hold on to an event beyond {@code onNext}, such as buffers and
+ * queues, retain it until they have passed it on, and stages that keep events
+ * as state copy them. Once the last reference is released the event goes back
+ * to its pool and is reused for a later event.
+ * <p>
+ * A transformation changes the value of an event in place instead of creating
+ * a new one, as long as no other subscriber sees the event. A source that
+ * notifies more than one subscriber marks the event shared, and from then on
+ * transformations create new events.
+ * <p>
+ * Subscribers must not keep a pooled event after {@code onNext} returns, as
+ * it may then carry another value. A pool in debug mode never reuses events
+ * and makes every access to a released event fail, see
+ * {@link EventPool#EventPool(int, boolean)}.
+ */
+public final class PooledEvent<T> implements Event<T> {
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicIntegerFieldUpdater<PooledEvent> REFERENCES = AtomicIntegerFieldUpdater
+      .newUpdater(PooledEvent.class, "references");
+
+  private final boolean debug;
+  private Object value;
+  private long timestamp;
+  private long sequence;
+  private boolean shared;
+  private Throwable released;
+  private volatile int references;
+
+  PooledEvent(final boolean debug) {
+    this.debug = debug;
+  }
+
+  PooledEvent<T> claim(final T value, final long timestamp, final long sequence) {
+    this.value = value;
+    this.timestamp = timestamp;
+    this.sequence = sequence;
+    this.shared = false;
+    REFERENCES.set(this, 1);
+    return this;
+  }
+
+  boolean isReleased() {
+    return references == 0;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get() {
+    checkNotReleased();
+    return (T) value;
+  }
+
+  @Override
+  public long getTimestamp() {
+    checkNotReleased();
+    return timestamp;
+  }
+
+  @Override
+  public long getSequence() {
+    checkNotReleased();
+    return sequence;
+  }
+
+  /**
+   * Replaces the value of this event, keeping its metadata.
+   */
+  @SuppressWarnings("unchecked")
+  public <O> PooledEvent<O> set(final O value) {
+    checkNotReleased();
+    this.value = value;
+    return (PooledEvent<O>) this;
+  }
+
+  /**
+   * @return true if more than one subscriber sees this event
+   */
+  public boolean isShared() {
+    return shared;
+  }
+
+  public void retain() {
+    checkNotReleased();
+    REFERENCES.incrementAndGet(this);
+  }
+
+  public void release() {
+    final int left = REFERENCES.decrementAndGet(this);
+    if (left < 0) {
+      REFERENCES.incrementAndGet(this);
+      throw new IllegalStateException("Event released more often than retained", released);
+    }
+    if (left == 0 && debug) {
+      released = new Throwable("Released here");
+    }
+  }
+
+  private void checkNotReleased() {
+    if (released != null) {
+      throw new IllegalStateException("Event used after release", released);
+    }
+  }
+
+  /**
+   * Retains {@code e} if it is pooled.
+   */
+  public static void retain(final Event<?> e) {
+    if (e instanceof PooledEvent) {
+      ((PooledEvent<?>) e).retain();
+    }
+  }
+
+  /**
+   * Releases {@code e} if it is pooled.
+   */
+  public static void release(final Event<?> e) {
+    if (e instanceof PooledEvent) {
+      ((PooledEvent<?>) e).release();
+    }
+  }
+
+  /**
+   * Marks {@code e} as seen by more than one subscriber if it is pooled.
+   */
+  public static void share(final Event<?> e) {
+    if (e instanceof PooledEvent) {
+      ((PooledEvent<?>) e).shared = true;
+    }
+  }
+
+  /**
+   * @return {@code e} if it is not pooled, or else an immutable copy of it that
+   *         can be kept after the event is released
+   */
+  public static <T> Event<T> copyOf(final Event<T> e) {
+    return (e instanceof PooledEvent) ? new BasicEvent<>(e.get(), e) : e;
+  }
+
+  /**
+   * @return an event of {@code value} with the metadata of {@code e}: {@code e}
+   *         itself if it is pooled and not shared, or else a new event
+   */
+  public static <O> Event<O> derive(final Event<?> e, final O value) {
+    if (e instanceof PooledEvent && !((PooledEvent<?>) e).shared) {
+      return ((PooledEvent<?>) e).set(value);
+    }
+    return new BasicEvent<O>(value, e);
+  }
+
+  @Override
+  public String toString() {
+    return "Event [data=" + value + "]";
+  }
+
+}
@@ -0,0 +1,23 @@
+package org.epn.core.primitive;
+
+import org.epn.api.DoubleEvent;
+
+public class BasicDoubleEvent implements DoubleEvent {
+
+  private final double data;
+
+  public BasicDoubleEvent(final double data) {
+    this.data = data;
+  }
+
+  @Override
+  public double getDouble() {
+    return data;
+  }
+
+  @Override
+  public String toString() {
+    return "Event [data=" + data + "]";
+  }
+
+}
@@ -0,0 +1,37 @@
+package org.epn.core.primitive;
+
+import java.util.function.DoublePredicate;
+
+import org.epn.api.EventProcessor;
+import org.epn.api.DoubleEventSink;
+import org.epn.core.BasicDemand;
+import org.reactivestreams.Subscription;
+
+public class BasicDoubleEventFilter extends BasicDoubleEventSource implements EventProcessor<Double, Double>, DoubleEventSink {
+
+  private final DoublePredicate p;
+  private final BasicDemand demand;
+
+  public BasicDoubleEventFilter(final DoublePredicate p) {
+    this(p, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicDoubleEventFilter(final DoublePredicate p, final int batchSize) {
+    this.p = p;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNextDouble(final double value) {
+    if (p.test(value)) {
+      notifySubscribers(value);
+    }
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
@@ -0,0 +1,37 @@
+package org.epn.core.primitive;
+
+import java.util.Arrays;
+
+import org.epn.api.DoubleEventSink;
+import org.reactivestreams.Subscription;
+
+/**
+ * Collects double values into a growable array.
+ */
+public class BasicDoubleEventSink implements DoubleEventSink {
+
+  private double[] data = new double[16];
+  private int size;
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    s.request(Long.MAX_VALUE);
+  }
+
+  @Override
+  public void onNextDouble(final double value) {
+    if (size == data.length) {
+      data = Arrays.copyOf(data, size << 1);
+    }
+    data[size++] = value;
+  }
+
+  public double[] getData() {
+    return Arrays.copyOf(data, size);
+  }
+
+  public int size() {
+    return size;
+  }
+
+}
@@ -0,0 +1,38 @@
+package org.epn.core.primitive;
+
+import org.epn.api.DoubleEventSink;
+import org.epn.core.BasicEventSource;
+import org.epn.core.metrics.Meter;
+import org.reactivestreams.Subscriber;
+
+/**
+ * {@link BasicEventSource} of double values. Subscribers that are
+ * {@link DoubleEventSink}s receive values unboxed while they are unbuffered and
+ * have demand, all others receive {@link BasicDoubleEvent}s.
+ */
+public class BasicDoubleEventSource extends BasicEventSource<Double> {
+
+  public BasicDoubleEventSource() {
+  }
+
+  public BasicDoubleEventSource(final int bufferSize, final OverflowStrategy overflowStrategy) {
+    super(bufferSize, overflowStrategy);
+  }
+
+  protected void notifySubscribers(final double value) {
+    final Meter meter = getMeter();
+    final long start = (meter == null) ? 0 : meter.emitting(1);
+    for (final BasicEventSubscription<Double> subscription : getSubscriptions()) {
+      final Subscriber<?> s = subscription.getSubscriber();
+      if (s instanceof DoubleEventSink && subscription.tryClaim()) {
+        ((DoubleEventSink) s).onNextDouble(value);
+      } else if (!subscription.tryDrop()) {
+        subscription.onNext(new BasicDoubleEvent(value));
+      }
+    }
+    if (meter != null) {
+      meter.emitted(start);
+    }
+  }
+
+}
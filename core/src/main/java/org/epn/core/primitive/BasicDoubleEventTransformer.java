@@ -0,0 +1,35 @@
+package org.epn.core.primitive;
+
+import java.util.function.DoubleUnaryOperator;
+
+import org.epn.api.EventProcessor;
+import org.epn.api.DoubleEventSink;
+import org.epn.core.BasicDemand;
+import org.reactivestreams.Subscription;
+
+public class BasicDoubleEventTransformer extends BasicDoubleEventSource implements EventProcessor<Double, Double>, DoubleEventSink {
+
+  private final DoubleUnaryOperator f;
+  private final BasicDemand demand;
+
+  public BasicDoubleEventTransformer(final DoubleUnaryOperator f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicDoubleEventTransformer(final DoubleUnaryOperator f, final int batchSize) {
+    this.f = f;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNextDouble(final double value) {
+    notifySubscribers(f.applyAsDouble(value));
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
@@ -0,0 +1,37 @@
+package org.epn.core.primitive;
+
+import java.util.function.DoubleFunction;
+
+import org.epn.api.EventProcessor;
+import org.epn.api.DoubleEventSink;
+import org.epn.core.BasicDemand;
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSource;
+import org.reactivestreams.Subscription;
+
+public class BasicDoubleToObjEventTransformer<O> extends BasicEventSource<O> implements EventProcessor<Double, O>, DoubleEventSink {
+
+  private final DoubleFunction<O> f;
+  private final BasicDemand demand;
+
+  public BasicDoubleToObjEventTransformer(final DoubleFunction<O> f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicDoubleToObjEventTransformer(final DoubleFunction<O> f, final int batchSize) {
+    this.f = f;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNextDouble(final double value) {
+    notifySubscribers(new BasicEvent<O>(f.apply(value)));
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
@@ -0,0 +1,23 @@
+package org.epn.core.primitive;
+
+import org.epn.api.IntEvent;
+
+public class BasicIntEvent implements IntEvent {
+
+  private final int data;
+
+  public BasicIntEvent(final int data) {
+    this.data = data;
+  }
+
+  @Override
+  public int getInt() {
+    return data;
+  }
+
+  @Override
+  public String toString() {
+    return "Event [data=" + data + "]";
+  }
+
+}
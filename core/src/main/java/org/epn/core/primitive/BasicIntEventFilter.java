@@ -0,0 +1,37 @@
+package org.epn.core.primitive;
+
+import java.util.function.IntPredicate;
+
+import org.epn.api.EventProcessor;
+import org.epn.api.IntEventSink;
+import org.epn.core.BasicDemand;
+import org.reactivestreams.Subscription;
+
+public class BasicIntEventFilter extends BasicIntEventSource implements EventProcessor<Integer, Integer>, IntEventSink {
+
+  private final IntPredicate p;
+  private final BasicDemand demand;
+
+  public BasicIntEventFilter(final IntPredicate p) {
+    this(p, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicIntEventFilter(final IntPredicate p, final int batchSize) {
+    this.p = p;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNextInt(final int value) {
+    if (p.test(value)) {
+      notifySubscribers(value);
+    }
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
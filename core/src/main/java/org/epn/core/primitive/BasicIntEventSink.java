@@ -0,0 +1,37 @@
+package org.epn.core.primitive;
+
+import java.util.Arrays;
+
+import org.epn.api.IntEventSink;
+import org.reactivestreams.Subscription;
+
+/**
+ * Collects int values into a growable array.
+ */
+public class BasicIntEventSink implements IntEventSink {
+
+  private int[] data = new int[16];
+  private int size;
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    s.request(Long.MAX_VALUE);
+  }
+
+  @Override
+  public void onNextInt(final int value) {
+    if (size == data.length) {
+      data = Arrays.copyOf(data, size << 1);
+    }
+    data[size++] = value;
+  }
+
+  public int[] getData() {
+    return Arrays.copyOf(data, size);
+  }
+
+  public int size() {
+    return size;
+  }
+
+}
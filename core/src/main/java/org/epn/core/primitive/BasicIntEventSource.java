@@ -0,0 +1,38 @@
+package org.epn.core.primitive;
+
+import org.epn.api.IntEventSink;
+import org.epn.core.BasicEventSource;
+import org.epn.core.metrics.Meter;
+import org.reactivestreams.Subscriber;
+
+/**
+ * {@link BasicEventSource} of int values. Subscribers that are
+ * {@link IntEventSink}s receive values unboxed while they are unbuffered and
+ * have demand, all others receive {@link BasicIntEvent}s.
+ */
+public class BasicIntEventSource extends BasicEventSource<Integer> {
+
+  public BasicIntEventSource() {
+  }
+
+  public BasicIntEventSource(final int bufferSize, final OverflowStrategy overflowStrategy) {
+    super(bufferSize, overflowStrategy);
+  }
+
+  protected void notifySubscribers(final int value) {
+    final Meter meter = getMeter();
+    final long start = (meter == null) ? 0 : meter.emitting(1);
+    for (final BasicEventSubscription<Integer> subscription : getSubscriptions()) {
+      final Subscriber<?> s = subscription.getSubscriber();
+      if (s instanceof IntEventSink && subscription.tryClaim()) {
+        ((IntEventSink) s).onNextInt(value);
+      } else if (!subscription.tryDrop()) {
+        subscription.onNext(new BasicIntEvent(value));
+      }
+    }
+    if (meter != null) {
+      meter.emitted(start);
+    }
+  }
+
+}
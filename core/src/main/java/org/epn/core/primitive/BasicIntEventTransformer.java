@@ -0,0 +1,35 @@
+package org.epn.core.primitive;
+
+import java.util.function.IntUnaryOperator;
+
+import org.epn.api.EventProcessor;
+import org.epn.api.IntEventSink;
+import org.epn.core.BasicDemand;
+import org.reactivestreams.Subscription;
+
+public class BasicIntEventTransformer extends BasicIntEventSource implements EventProcessor<Integer, Integer>, IntEventSink {
+
+  private final IntUnaryOperator f;
+  private final BasicDemand demand;
+
+  public BasicIntEventTransformer(final IntUnaryOperator f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicIntEventTransformer(final IntUnaryOperator f, final int batchSize) {
+    this.f = f;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNextInt(final int value) {
+    notifySubscribers(f.applyAsInt(value));
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
@@ -0,0 +1,35 @@
+package org.epn.core.primitive;
+
+import java.util.function.IntToDoubleFunction;
+
+import org.epn.api.EventProcessor;
+import org.epn.api.IntEventSink;
+import org.epn.core.BasicDemand;
+import org.reactivestreams.Subscription;
+
+public class BasicIntToDoubleEventTransformer extends BasicDoubleEventSource implements EventProcessor<Integer, Double>, IntEventSink {
+
+  private final IntToDoubleFunction f;
+  private final BasicDemand demand;
+
+  public BasicIntToDoubleEventTransformer(final IntToDoubleFunction f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicIntToDoubleEventTransformer(final IntToDoubleFunction f, final int batchSize) {
+    this.f = f;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNextInt(final int value) {
+    notifySubscribers(f.applyAsDouble(value));
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
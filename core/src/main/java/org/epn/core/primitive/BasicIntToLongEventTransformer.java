@@ -0,0 +1,35 @@
+package org.epn.core.primitive;
+
+import java.util.function.IntToLongFunction;
+
+import org.epn.api.EventProcessor;
+import org.epn.api.IntEventSink;
+import org.epn.core.BasicDemand;
+import org.reactivestreams.Subscription;
+
+public class BasicIntToLongEventTransformer extends BasicLongEventSource implements EventProcessor<Integer, Long>, IntEventSink {
+
+  private final IntToLongFunction f;
+  private final BasicDemand demand;
+
+  public BasicIntToLongEventTransformer(final IntToLongFunction f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicIntToLongEventTransformer(final IntToLongFunction f, final int batchSize) {
+    this.f = f;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNextInt(final int value) {
+    notifySubscribers(f.applyAsLong(value));
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
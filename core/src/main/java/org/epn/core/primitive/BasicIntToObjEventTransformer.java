@@ -0,0 +1,37 @@
+package org.epn.core.primitive;
+
+import java.util.function.IntFunction;
+
+import org.epn.api.EventProcessor;
+import org.epn.api.IntEventSink;
+import org.epn.core.BasicDemand;
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSource;
+import org.reactivestreams.Subscription;
+
+public class BasicIntToObjEventTransformer<O> extends BasicEventSource<O> implements EventProcessor<Integer, O>, IntEventSink {
+
+  private final IntFunction<O> f;
+  private final BasicDemand demand;
+
+  public BasicIntToObjEventTransformer(final IntFunction<O> f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicIntToObjEventTransformer(final IntFunction<O> f, final int batchSize) {
+    this.f = f;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNextInt(final int value) {
+    notifySubscribers(new BasicEvent<O>(f.apply(value)));
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
@@ -0,0 +1,23 @@
+package org.epn.core.primitive;
+
+import org.epn.api.LongEvent;
+
+public class BasicLongEvent implements LongEvent {
+
+  private final long data;
+
+  public BasicLongEvent(final long data) {
+    this.data = data;
+  }
+
+  @Override
+  public long getLong() {
+    return data;
+  }
+
+  @Override
+  public String toString() {
+    return "Event [data=" + data + "]";
+  }
+
+}
@@ -0,0 +1,37 @@
+package org.epn.core.primitive;
+
+import java.util.function.LongPredicate;
+
+import org.epn.api.EventProcessor;
+import org.epn.api.LongEventSink;
+import org.epn.core.BasicDemand;
+import org.reactivestreams.Subscription;
+
+public class BasicLongEventFilter extends BasicLongEventSource implements EventProcessor<Long, Long>, LongEventSink {
+
+  private final LongPredicate p;
+  private final BasicDemand demand;
+
+  public BasicLongEventFilter(final LongPredicate p) {
+    this(p, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicLongEventFilter(final LongPredicate p, final int batchSize) {
+    this.p = p;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNextLong(final long value) {
+    if (p.test(value)) {
+      notifySubscribers(value);
+    }
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
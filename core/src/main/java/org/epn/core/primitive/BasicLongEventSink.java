@@ -0,0 +1,37 @@
+package org.epn.core.primitive;
+
+import java.util.Arrays;
+
+import org.epn.api.LongEventSink;
+import org.reactivestreams.Subscription;
+
+/**
+ * Collects long values into a growable array.
+ */
+public class BasicLongEventSink implements LongEventSink {
+
+  private long[] data = new long[16];
+  private int size;
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    s.request(Long.MAX_VALUE);
+  }
+
+  @Override
+  public void onNextLong(final long value) {
+    if (size == data.length) {
+      data = Arrays.copyOf(data, size << 1);
+    }
+    data[size++] = value;
+  }
+
+  public long[] getData() {
+    return Arrays.copyOf(data, size);
+  }
+
+  public int size() {
+    return size;
+  }
+
+}
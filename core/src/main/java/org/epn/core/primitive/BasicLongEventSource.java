@@ -0,0 +1,38 @@
+package org.epn.core.primitive;
+
+import org.epn.api.LongEventSink;
+import org.epn.core.BasicEventSource;
+import org.epn.core.metrics.Meter;
+import org.reactivestreams.Subscriber;
+
+/**
+ * {@link BasicEventSource} of long values. Subscribers that are
+ * {@link LongEventSink}s receive values unboxed while they are unbuffered and
+ * have demand, all others receive {@link BasicLongEvent}s.
+ */
+public class BasicLongEventSource extends BasicEventSource<Long> {
+
+  public BasicLongEventSource() {
+  }
+
+  public BasicLongEventSource(final int bufferSize, final OverflowStrategy overflowStrategy) {
+    super(bufferSize, overflowStrategy);
+  }
+
+  protected void notifySubscribers(final long value) {
+    final Meter meter = getMeter();
+    final long start = (meter == null) ? 0 : meter.emitting(1);
+    for (final BasicEventSubscription<Long> subscription : getSubscriptions()) {
+      final Subscriber<?> s = subscription.getSubscriber();
+      if (s instanceof LongEventSink && subscription.tryClaim()) {
+        ((LongEventSink) s).onNextLong(value);
+      } else if (!subscription.tryDrop()) {
+        subscription.onNext(new BasicLongEvent(value));
+      }
+    }
+    if (meter != null) {
+      meter.emitted(start);
+    }
+  }
+
+}
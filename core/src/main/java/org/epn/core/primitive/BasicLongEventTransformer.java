@@ -0,0 +1,35 @@
+package org.epn.core.primitive;
+
+import java.util.function.LongUnaryOperator;
+
+import org.epn.api.EventProcessor;
+import org.epn.api.LongEventSink;
+import org.epn.core.BasicDemand;
+import org.reactivestreams.Subscription;
+
+public class BasicLongEventTransformer extends BasicLongEventSource implements EventProcessor<Long, Long>, LongEventSink {
+
+  private final LongUnaryOperator f;
+  private final BasicDemand demand;
+
+  public BasicLongEventTransformer(final LongUnaryOperator f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicLongEventTransformer(final LongUnaryOperator f, final int batchSize) {
+    this.f = f;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNextLong(final long value) {
+    notifySubscribers(f.applyAsLong(value));
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
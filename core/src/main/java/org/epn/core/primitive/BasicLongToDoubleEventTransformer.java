@@ -0,0 +1,35 @@
+package org.epn.core.primitive;
+
+import java.util.function.LongToDoubleFunction;
+
+import org.epn.api.EventProcessor;
+import org.epn.api.LongEventSink;
+import org.epn.core.BasicDemand;
+import org.reactivestreams.Subscription;
+
+public class BasicLongToDoubleEventTransformer extends BasicDoubleEventSource implements EventProcessor<Long, Double>, LongEventSink {
+
+  private final LongToDoubleFunction f;
+  private final BasicDemand demand;
+
+  public BasicLongToDoubleEventTransformer(final LongToDoubleFunction f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicLongToDoubleEventTransformer(final LongToDoubleFunction f, final int batchSize) {
+    this.f = f;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNextLong(final long value) {
+    notifySubscribers(f.applyAsDouble(value));
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
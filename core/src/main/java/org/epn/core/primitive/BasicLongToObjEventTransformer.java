@@ -0,0 +1,37 @@
+package org.epn.core.primitive;
+
+import java.util.function.LongFunction;
+
+import org.epn.api.EventProcessor;
+import org.epn.api.LongEventSink;
+import org.epn.core.BasicDemand;
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSource;
+import org.reactivestreams.Subscription;
+
+public class BasicLongToObjEventTransformer<O> extends BasicEventSource<O> implements EventProcessor<Long, O>, LongEventSink {
+
+  private final LongFunction<O> f;
+  private final BasicDemand demand;
+
+  public BasicLongToObjEventTransformer(final LongFunction<O> f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicLongToObjEventTransformer(final LongFunction<O> f, final int batchSize) {
+    this.f = f;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNextLong(final long value) {
+    notifySubscribers(new BasicEvent<O>(f.apply(value)));
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
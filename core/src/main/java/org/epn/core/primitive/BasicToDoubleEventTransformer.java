@@ -0,0 +1,35 @@
+package org.epn.core.primitive;
+
+import java.util.function.ToDoubleFunction;
+
+import org.epn.api.Event;
+import org.epn.api.EventProcessor;
+import org.epn.core.BasicDemand;
+import org.reactivestreams.Subscription;
+
+public class BasicToDoubleEventTransformer<I> extends BasicDoubleEventSource implements EventProcessor<I, Double> {
+
+  private final ToDoubleFunction<I> f;
+  private final BasicDemand demand;
+
+  public BasicToDoubleEventTransformer(final ToDoubleFunction<I> f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicToDoubleEventTransformer(final ToDoubleFunction<I> f, final int batchSize) {
+    this.f = f;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNext(final Event<I> e) {
+    notifySubscribers(f.applyAsDouble(e.get()));
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
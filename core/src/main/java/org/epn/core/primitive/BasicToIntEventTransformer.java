@@ -0,0 +1,35 @@
+package org.epn.core.primitive;
+
+import java.util.function.ToIntFunction;
+
+import org.epn.api.Event;
+import org.epn.api.EventProcessor;
+import org.epn.core.BasicDemand;
+import org.reactivestreams.Subscription;
+
+public class BasicToIntEventTransformer<I> extends BasicIntEventSource implements EventProcessor<I, Integer> {
+
+  private final ToIntFunction<I> f;
+  private final BasicDemand demand;
+
+  public BasicToIntEventTransformer(final ToIntFunction<I> f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicToIntEventTransformer(final ToIntFunction<I> f, final int batchSize) {
+    this.f = f;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNext(final Event<I> e) {
+    notifySubscribers(f.applyAsInt(e.get()));
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
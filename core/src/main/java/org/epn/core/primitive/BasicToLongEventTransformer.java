@@ -0,0 +1,35 @@
+package org.epn.core.primitive;
+
+import java.util.function.ToLongFunction;
+
+import org.epn.api.Event;
+import org.epn.api.EventProcessor;
+import org.epn.core.BasicDemand;
+import org.reactivestreams.Subscription;
+
+public class BasicToLongEventTransformer<I> extends BasicLongEventSource implements EventProcessor<I, Long> {
+
+  private final ToLongFunction<I> f;
+  private final BasicDemand demand;
+
+  public BasicToLongEventTransformer(final ToLongFunction<I> f) {
+    this(f, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicToLongEventTransformer(final ToLongFunction<I> f, final int batchSize) {
+    this.f = f;
+    this.demand = new BasicDemand(batchSize);
+  }
+
+  @Override
+  public void onNext(final Event<I> e) {
+    notifySubscribers(f.applyAsLong(e.get()));
+    demand.consumed();
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+}
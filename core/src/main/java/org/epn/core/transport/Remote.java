@@ -0,0 +1,74 @@
+package org.epn.core.transport;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.epn.api.Event;
+import org.epn.core.BasicEvent;
+import org.epn.core.codec.EventCodec;
+
+/**
+ * Frames exchanged between {@link RemoteEventSink} and
+ * {@link RemoteEventSource}. The first byte of a frame is its tag.
+ */
+final class Remote {
+
+  /** Events, see {@link SocketConnection#append}. */
+  static final byte EVENTS = 1;
+  /** Number of further events the receiver takes, as a long. */
+  static final byte CREDIT = 2;
+  /** A watermark, as a long. */
+  static final byte WATERMARK = 3;
+  /** Completion, the tag alone. */
+  static final byte COMPLETE = 4;
+
+  static final int MAX_BATCH = 256;
+
+  private Remote() {
+  }
+
+  static EventCodec<Long> tagged(final byte tag) {
+    return EventCodec.of((l, b) -> b.put(tag).putLong(l), b -> {
+      b.get();
+      return b.getLong();
+    });
+  }
+
+  static EventCodec<Byte> tag() {
+    return EventCodec.of((t, b) -> b.put(t), b -> b.get());
+  }
+
+  /**
+   * Events as their timestamp, sequence, number of headers and headers as
+   * pairs of strings, followed by their data.
+   */
+  static <E> EventCodec<Event<E>> events(final EventCodec<E> codec) {
+    final EventCodec<String> strings = EventCodec.strings();
+    return EventCodec.of((e, b) -> {
+      final Map<String, String> headers = e.getHeaders();
+      b.putLong(e.getTimestamp()).putLong(e.getSequence()).putInt(headers.size());
+      for (final Map.Entry<String, String> header : headers.entrySet()) {
+        strings.encode(header.getKey(), b);
+        strings.encode(header.getValue(), b);
+      }
+      codec.encode(e.get(), b);
+    }, b -> {
+      final long timestamp = b.getLong();
+      final long sequence = b.getLong();
+      final int count = b.getInt();
+      if (count == 0) {
+        return new BasicEvent<E>(codec.decode(b), timestamp, sequence);
+      }
+      final String[] headers = new String[2 * count];
+      for (int i = 0; i < headers.length; i++) {
+        headers[i] = strings.decode(b);
+      }
+      BasicEvent<E> event = new BasicEvent<E>(codec.decode(b), timestamp, sequence);
+      for (int i = 0; i < headers.length; i += 2) {
+        event = event.withHeader(headers[i], headers[i + 1]);
+      }
+      return event;
+    });
+  }
+
+}
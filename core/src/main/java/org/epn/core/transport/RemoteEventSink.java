@@ -0,0 +1,247 @@
+package org.epn.core.transport;
+
+import java.io.Closeable;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.epn.api.Event;
+import org.epn.api.EventProcessor;
+import org.epn.api.EventSink;
+import org.epn.core.BasicDemand;
+import org.epn.core.BasicEventSource;
+import org.epn.core.WatermarkEvent;
+import org.epn.core.codec.EventCodec;
+import org.epn.core.pool.PooledEvent;
+import org.epn.core.transport.SocketConnection.Receiver;
+import org.reactivestreams.Subscription;
+
+/**
+ * Ships events to a {@link RemoteEventSource} in another network. The
+ * receiver grants credits as its subscribers request events, and exactly
+ * those credits are requested from upstream, so demand travels across the
+ * connection. Events sent while the socket is busy are batched into one
+ * frame. Watermarks and completion are queued in order with the events and
+ * take no credits; a watermark queued behind another replaces it. A lost
+ * connection is re-established in the background; events that were not yet
+ * written when it was lost are dropped.
+ */
+public class RemoteEventSink<E> implements EventSink<E>, Closeable {
+
+  private static final long MIN_RECONNECT_DELAY_MILLIS = 50;
+  private static final long MAX_RECONNECT_DELAY_MILLIS = 2000;
+
+  private final SocketAddress remote;
+  private final EventCodec<Event<E>> codec;
+  private final EventCodec<Long> watermarks = Remote.tagged(Remote.WATERMARK);
+  private final EventCodec<Byte> tags = Remote.tag();
+  private final ScheduledExecutorService reconnects;
+  // guarded by this, events and watermark markers
+  private final ArrayDeque<Event<E>> queued = new ArrayDeque<>();
+  private int queuedEvents;
+  private Subscription subscription;
+  private SocketConnection connection;
+  // granted by the receiver and not yet used
+  private long credits;
+  // requested from upstream and not yet received
+  private long requested;
+  private long reconnectDelay = MIN_RECONNECT_DELAY_MILLIS;
+  private volatile boolean closed;
+
+  public RemoteEventSink(final SocketAddress remote, final EventCodec<E> codec) {
+    this.remote = remote;
+    this.codec = Remote.events(codec);
+    this.reconnects = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "epn-remote-" + remote);
+      thread.setDaemon(true);
+      return thread;
+    });
+    reconnects.execute(this::connect);
+  }
+
+  public synchronized boolean isConnected() {
+    return connection != null && connection.isOpen();
+  }
+
+  public synchronized SocketConnection getConnection() {
+    return connection;
+  }
+
+  @Override
+  public synchronized void onSubscribe(final Subscription s) {
+    this.subscription = s;
+    requestGranted();
+  }
+
+  @Override
+  public synchronized void onNext(final Event<E> event) {
+    requested--;
+    PooledEvent.retain(event);
+    queued.add(event);
+    queuedEvents++;
+    sendQueued();
+  }
+
+  @Override
+  public synchronized void onNextBatch(final Event<E>[] events, final int count) {
+    requested -= count;
+    for (int i = 0; i < count; i++) {
+      PooledEvent.retain(events[i]);
+      queued.add(events[i]);
+    }
+    queuedEvents += count;
+    sendQueued();
+  }
+
+  @Override
+  public synchronized void onWatermark(final long watermark) {
+    final Event<E> last = queued.peekLast();
+    if (last instanceof WatermarkEvent && !WatermarkEvent.isComplete(last)) {
+      queued.pollLast();
+    }
+    queued.add(WatermarkEvent.of(watermark));
+    sendQueued();
+  }
+
+  @Override
+  public synchronized void onComplete() {
+    queued.add(WatermarkEvent.complete());
+    sendQueued();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    reconnects.shutdownNow();
+    final SocketConnection c = getConnection();
+    if (c != null) {
+      c.close();
+    }
+  }
+
+  private void connect() {
+    if (closed) {
+      return;
+    }
+    final SocketConnection c;
+    try {
+      c = new SocketConnection(remote);
+    } catch (final UncheckedIOException e) {
+      reconnectLater();
+      return;
+    }
+    synchronized (this) {
+      connection = c;
+      credits = 0;
+      reconnectDelay = MIN_RECONNECT_DELAY_MILLIS;
+    }
+    c.onClosed(() -> disconnected(c));
+    c.receiveWith(new Receiver() {
+      @Override
+      public boolean canReceive() {
+        return true;
+      }
+
+      @Override
+      public void receive(final ByteBuffer frame) {
+        if (frame.get() == Remote.CREDIT) {
+          granted(c, frame.getLong());
+        }
+      }
+    });
+  }
+
+  private synchronized void reconnectLater() {
+    if (!closed) {
+      reconnects.schedule(this::connect, reconnectDelay, TimeUnit.MILLISECONDS);
+      reconnectDelay = Math.min(2 * reconnectDelay, MAX_RECONNECT_DELAY_MILLIS);
+    }
+  }
+
+  private synchronized void disconnected(final SocketConnection c) {
+    if (connection == c) {
+      connection = null;
+      credits = 0;
+      reconnectLater();
+    }
+  }
+
+  private synchronized void granted(final SocketConnection c, final long n) {
+    if (connection == c) {
+      credits += n;
+      sendQueued();
+      requestGranted();
+    }
+  }
+
+  private void requestGranted() {
+    final long n = credits - queuedEvents - requested;
+    if (n > 0 && subscription != null) {
+      requested += n;
+      subscription.request(n);
+    }
+  }
+
+  private void sendQueued() {
+    while (!queued.isEmpty() && isConnected()) {
+      final Event<E> next = queued.peek();
+      final boolean marker = next instanceof WatermarkEvent;
+      if (!marker && credits == 0) {
+        return;
+      }
+      try {
+        if (WatermarkEvent.isComplete(next)) {
+          connection.send(Remote.COMPLETE, tags);
+        } else if (marker) {
+          connection.send(next.getTimestamp(), watermarks);
+        } else {
+          connection.append(Remote.EVENTS, next, codec, Remote.MAX_BATCH);
+        }
+      } catch (final IllegalStateException e) {
+        return;
+      }
+      queued.poll();
+      if (!marker) {
+        PooledEvent.release(next);
+        queuedEvents--;
+        credits--;
+      }
+    }
+  }
+
+  /**
+   * Holds events back in front of a {@link RemoteEventSink}: processors pass
+   * events on as they come, and would otherwise drop them while the receiver
+   * has granted no credits. Blocks the emitting thread when full.
+   */
+  public static class Outbox<E> extends BasicEventSource<E> implements EventProcessor<E, E> {
+
+    private final BasicDemand demand = new BasicDemand(BasicDemand.DEFAULT_BATCH_SIZE);
+
+    public Outbox(final int capacity) {
+      super(capacity, OverflowStrategy.BLOCK);
+    }
+
+    @Override
+    public void onNext(final Event<E> e) {
+      notifySubscribers(e);
+      demand.consumed();
+    }
+
+    @Override
+    public void onNextBatch(final Event<E>[] events, final int count) {
+      notifySubscribers(events, count);
+      demand.consumed(count);
+    }
+
+    @Override
+    public void onSubscribe(final Subscription s) {
+      demand.onSubscribe(s);
+    }
+  }
+
+}
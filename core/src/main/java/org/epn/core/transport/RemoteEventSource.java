@@ -0,0 +1,186 @@
+package org.epn.core.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+import org.epn.api.Event;
+import org.epn.core.BasicEventSource;
+import org.epn.core.codec.EventCodec;
+import org.epn.core.transport.SocketConnection.Receiver;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publishes the events a {@link RemoteEventSink} ships to the address this
+ * source listens on. The sink may send as many events as this source has
+ * granted credits for, which follow the demand of its subscribers, capped to
+ * a window. One sink is connected at a time; a new connection, e.g. after the
+ * sink reconnected, replaces the previous one. Watermarks and completion
+ * arrive in order with the events.
+ */
+public class RemoteEventSource<E> extends BasicEventSource<E> implements Closeable {
+
+  public static final int DEFAULT_WINDOW = 4096;
+
+  private final ServerSocketChannel server;
+  private final EventCodec<Event<E>> codec;
+  private final EventCodec<Long> credits = Remote.tagged(Remote.CREDIT);
+  private final int window;
+  private final Event<E>[] batch = newBatch(Remote.MAX_BATCH);
+  // guarded by this
+  private SocketConnection connection;
+  // granted and not yet received
+  private long outstanding;
+
+  public RemoteEventSource(final SocketAddress address, final EventCodec<E> codec) {
+    this(address, codec, DEFAULT_WINDOW);
+  }
+
+  public RemoteEventSource(final SocketAddress address, final EventCodec<E> codec, final int window) {
+    this.codec = Remote.events(codec);
+    this.window = window;
+    try {
+      this.server = ServerSocketChannel.open().bind(address);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    final Thread acceptor = new Thread(this::accept, "epn-remote-" + address);
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  public SocketAddress getAddress() {
+    try {
+      return server.getLocalAddress();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public synchronized SocketConnection getConnection() {
+    return connection;
+  }
+
+  @Override
+  public void close() {
+    try {
+      server.close();
+    } catch (final IOException e) {
+      // closing anyway
+    }
+    final SocketConnection c = getConnection();
+    if (c != null) {
+      c.close();
+    }
+  }
+
+  @Override
+  protected void onNewSubscription(final Subscriber<? super Event<E>> subscriber, final Subscription subscription) {
+    subscriber.onSubscribe(new Subscription() {
+      @Override
+      public void request(final long n) {
+        subscription.request(n);
+        grant();
+      }
+
+      @Override
+      public void cancel() {
+        subscription.cancel();
+      }
+    });
+  }
+
+  private void accept() {
+    while (server.isOpen()) {
+      final SocketChannel channel;
+      try {
+        channel = server.accept();
+      } catch (final IOException e) {
+        return;
+      }
+      connected(new SocketConnection(channel));
+    }
+  }
+
+  private void connected(final SocketConnection c) {
+    final SocketConnection previous;
+    synchronized (this) {
+      previous = connection;
+      connection = c;
+      outstanding = 0;
+    }
+    if (previous != null) {
+      previous.close();
+    }
+    c.receiveWith(new Receiver() {
+      @Override
+      public boolean canReceive() {
+        return true;
+      }
+
+      @Override
+      public void receive(final ByteBuffer frame) {
+        received(c, frame);
+      }
+    });
+    grant();
+  }
+
+  private void received(final SocketConnection c, final ByteBuffer frame) {
+    final byte tag = frame.get();
+    if (tag == Remote.WATERMARK) {
+      notifyWatermark(frame.getLong());
+      return;
+    } else if (tag == Remote.COMPLETE) {
+      notifyComplete();
+      return;
+    }
+    final int count = frame.getInt();
+    for (int i = 0; i < count; i++) {
+      batch[i] = codec.decode(frame);
+    }
+    notifySubscribers(batch, count);
+    Arrays.fill(batch, 0, count, null);
+    synchronized (this) {
+      if (connection == c) {
+        outstanding -= count;
+      }
+    }
+    grant();
+  }
+
+  /**
+   * Grants credits up to the smallest demand of all subscribers, capped to
+   * the window. Small grants wait until a quarter of the window is free or
+   * nothing is outstanding.
+   */
+  private synchronized void grant() {
+    if (connection == null || !connection.isOpen()) {
+      return;
+    }
+    long demand = window;
+    final BasicEventSubscription<E>[] subscriptions = getSubscriptions();
+    if (subscriptions.length == 0) {
+      return;
+    }
+    for (final BasicEventSubscription<E> subscription : subscriptions) {
+      demand = Math.min(demand, subscription.getDemand());
+    }
+    final long grant = demand - outstanding;
+    if (grant > 0 && (outstanding == 0 || grant >= window / 4)) {
+      try {
+        connection.send(grant, credits);
+        outstanding += grant;
+      } catch (final IllegalStateException e) {
+        // the sink reconnects and is granted credits again
+      }
+    }
+  }
+
+}
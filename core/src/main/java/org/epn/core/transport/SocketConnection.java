@@ -0,0 +1,320 @@
+package org.epn.core.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.epn.core.codec.EventCodec;
+
+/**
+ * Exchanges length-prefixed frames over a non-blocking {@link SocketChannel},
+ * driven by a selector thread of its own. Frames sent from any thread are
+ * appended to one buffer and written together, so small frames share
+ * syscalls and TCP segments. Frames are only read while the {@link Receiver}
+ * can take them; otherwise the socket's receive buffer fills up and TCP flow
+ * control holds back the remote side.
+ */
+public class SocketConnection implements Closeable {
+
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private static final long CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  /**
+   * Takes frames on the connection's thread.
+   */
+  public interface Receiver {
+    boolean canReceive();
+
+    /**
+     * @param frame
+     *          the frame from the position to the limit, only valid during the
+     *          call
+     */
+    void receive(ByteBuffer frame);
+  }
+
+  private final SocketChannel channel;
+  private final Selector selector;
+  private final SelectionKey key;
+  private final Thread thread;
+  private final Object writeLock = new Object();
+  // guarded by writeLock, in fill mode
+  private ByteBuffer out = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+  // start of the last frame in out if items may still be appended to it, or -1
+  private int openFrame = -1;
+  // connection's thread only, in fill mode
+  private ByteBuffer in = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+
+  private volatile Receiver receiver;
+  private volatile Runnable written = () -> {};
+  private volatile Runnable closedHandler = () -> {};
+  private volatile boolean closing;
+  private volatile boolean closed;
+  private volatile IOException failure;
+
+  public SocketConnection(final SocketAddress remote) {
+    this(open(remote));
+  }
+
+  /**
+   * @param channel
+   *          a connected channel, e.g. an accepted one
+   */
+  public SocketConnection(final SocketChannel channel) {
+    this.channel = channel;
+    try {
+      channel.configureBlocking(false);
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      this.selector = Selector.open();
+      this.key = channel.register(selector, 0);
+      this.thread = new Thread(this::run, "epn-socket-" + channel.getRemoteAddress());
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private static SocketChannel open(final SocketAddress remote) {
+    try {
+      return SocketChannel.open(remote);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void receiveWith(final Receiver receiver) {
+    this.receiver = receiver;
+    selector.wakeup();
+  }
+
+  /**
+   * @param written
+   *          called on the connection's thread after buffered frames were
+   *          written to the socket
+   */
+  public void onWritten(final Runnable written) {
+    this.written = written;
+  }
+
+  /**
+   * @param closed
+   *          called on the connection's thread once the connection is closed,
+   *          by either side or by an I/O error
+   */
+  public void onClosed(final Runnable closed) {
+    this.closedHandler = closed;
+  }
+
+  /**
+   * Signals that the receiver may be able to take frames again.
+   */
+  public void resumeReceiving() {
+    selector.wakeup();
+  }
+
+  public <E> void send(final E event, final EventCodec<E> codec) {
+    final boolean wasEmpty;
+    synchronized (writeLock) {
+      checkOpen();
+      wasEmpty = out.position() == 0;
+      final int start = out.position();
+      reserve(4);
+      encode(event, codec);
+      out.putInt(start, out.position() - start - 4);
+      openFrame = -1;
+    }
+    if (wasEmpty) {
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Sends {@code item} in a frame of items tagged with {@code tag}. Items are
+   * appended to the last frame as long as it has not been written yet, has the
+   * same tag and less than {@code maxItems} items, so items sent while the
+   * socket is busy travel together. Such a frame holds the tag, the number of
+   * items as an int and the items.
+   */
+  public <E> void append(final byte tag, final E item, final EventCodec<E> codec, final int maxItems) {
+    final boolean wasEmpty;
+    synchronized (writeLock) {
+      checkOpen();
+      wasEmpty = out.position() == 0;
+      if (openFrame >= 0 && out.get(openFrame + 4) == tag && out.getInt(openFrame + 5) < maxItems) {
+        encode(item, codec);
+        out.putInt(openFrame + 5, out.getInt(openFrame + 5) + 1);
+      } else {
+        final int start = out.position();
+        reserve(9);
+        out.put(start + 4, tag);
+        out.putInt(start + 5, 1);
+        encode(item, codec);
+        openFrame = start;
+      }
+      out.putInt(openFrame, out.position() - openFrame - 4);
+    }
+    if (wasEmpty) {
+      selector.wakeup();
+    }
+  }
+
+  private void checkOpen() {
+    if (closed || closing) {
+      throw new IllegalStateException("Connection closed", failure);
+    }
+  }
+
+  private void reserve(final int bytes) {
+    if (out.remaining() < bytes) {
+      out = grow(out, out.capacity() * 2);
+    }
+    out.position(out.position() + bytes);
+  }
+
+  private <E> void encode(final E item, final EventCodec<E> codec) {
+    while (true) {
+      final int start = out.position();
+      try {
+        codec.encode(item, out);
+        return;
+      } catch (final BufferOverflowException e) {
+        out.position(start);
+        out = grow(out, out.capacity() * 2);
+      }
+    }
+  }
+
+  /**
+   * @return the number of bytes sent but not yet written to the socket
+   */
+  public int getPending() {
+    synchronized (writeLock) {
+      return out.position();
+    }
+  }
+
+  public boolean isOpen() {
+    return !closed;
+  }
+
+  /**
+   * Writes the pending frames and closes the socket.
+   */
+  @Override
+  public void close() {
+    closing = true;
+    selector.wakeup();
+    if (Thread.currentThread() != thread) {
+      try {
+        thread.join(CLOSE_TIMEOUT_MILLIS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void run() {
+    try {
+      while (!closed) {
+        selector.select();
+        selector.selectedKeys().clear();
+        final boolean empty = write();
+        read();
+        if (closing && empty) {
+          break;
+        }
+        int ops = empty ? 0 : SelectionKey.OP_WRITE;
+        if (receiver != null && receiver.canReceive()) {
+          ops |= SelectionKey.OP_READ;
+        }
+        key.interestOps(ops);
+      }
+    } catch (final IOException e) {
+      failure = e;
+    } finally {
+      closed = true;
+      try {
+        selector.close();
+        channel.close();
+      } catch (final IOException e) {
+        // closing anyway
+      }
+      closedHandler.run();
+    }
+  }
+
+  /**
+   * @return whether all frames have been written
+   */
+  private boolean write() throws IOException {
+    final boolean empty;
+    synchronized (writeLock) {
+      if (out.position() == 0) {
+        return true;
+      }
+      out.flip();
+      channel.write(out);
+      out.compact();
+      openFrame = -1;
+      empty = out.position() == 0;
+    }
+    written.run();
+    return empty;
+  }
+
+  private void read() throws IOException {
+    final Receiver r = receiver;
+    if (r == null) {
+      return;
+    }
+    deliver(r);
+    while (r.canReceive()) {
+      final int n = channel.read(in);
+      if (n < 0) {
+        closed = true;
+        return;
+      }
+      if (n == 0) {
+        return;
+      }
+      deliver(r);
+    }
+  }
+
+  private void deliver(final Receiver r) {
+    in.flip();
+    while (in.remaining() >= 4 && r.canReceive()) {
+      final int start = in.position();
+      final int end = start + 4 + in.getInt(start);
+      if (end > in.limit()) {
+        break;
+      }
+      final int limit = in.limit();
+      in.limit(end).position(start + 4);
+      r.receive(in);
+      in.limit(limit).position(end);
+    }
+    in.compact();
+    if (in.position() >= 4 && 4 + in.getInt(0) > in.capacity()) {
+      in = grow(in, 4 + in.getInt(0));
+    }
+  }
+
+  private static ByteBuffer grow(final ByteBuffer buffer, final int capacity) {
+    final ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+    buffer.flip();
+    grown.put(buffer);
+    return grown;
+  }
+
+}
@@ -0,0 +1,84 @@
+package org.epn.core.transport;
+
+import java.io.Closeable;
+import java.net.SocketAddress;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.epn.core.BasicDemand;
+import org.epn.core.codec.EventCodec;
+import org.reactivestreams.Subscription;
+
+/**
+ * Sends events over a {@link SocketConnection}. Events are only requested
+ * again from upstream while fewer than {@code highWater} bytes wait to be
+ * written, so a remote side that stops reading holds the upstream back
+ * through TCP flow control.
+ */
+public class SocketEventSink<E> implements EventSink<E>, Closeable {
+
+  private final SocketConnection connection;
+  private final EventCodec<E> codec;
+  private final int highWater;
+  private final BasicDemand demand;
+  // consumed events not yet acknowledged upstream, guarded by this
+  private int deferred;
+
+  public SocketEventSink(final SocketAddress remote, final EventCodec<E> codec) {
+    this(new SocketConnection(remote), codec);
+  }
+
+  public SocketEventSink(final SocketConnection connection, final EventCodec<E> codec) {
+    this(connection, codec, SocketConnection.DEFAULT_BUFFER_SIZE, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public SocketEventSink(final SocketConnection connection, final EventCodec<E> codec, final int highWater,
+      final int batchSize) {
+
+    this.connection = connection;
+    this.codec = codec;
+    this.highWater = highWater;
+    this.demand = new BasicDemand(batchSize);
+    connection.onWritten(this::written);
+  }
+
+  public SocketConnection getConnection() {
+    return connection;
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+  @Override
+  public void onNext(final Event<E> event) {
+    connection.send(event.get(), codec);
+    synchronized (this) {
+      if (deferred == 0 && connection.getPending() < highWater) {
+        demand.consumed();
+      } else {
+        deferred++;
+      }
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    close();
+  }
+
+  @Override
+  public void close() {
+    connection.close();
+  }
+
+  private synchronized void written() {
+    if (deferred > 0 && connection.getPending() < highWater) {
+      final int n = deferred;
+      deferred = 0;
+      demand.consumed(n);
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+package org.epn.core.transport;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+import org.epn.api.Event;
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSource;
+import org.epn.core.codec.EventCodec;
+import org.epn.core.transport.SocketConnection.Receiver;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publishes the events received on a {@link SocketConnection}. Frames are
+ * only read while every subscriber has demand, so slow subscribers hold the
+ * remote side back through TCP flow control.
+ */
+public class SocketEventSource<E> extends BasicEventSource<E> {
+
+  private final SocketConnection connection;
+
+  public SocketEventSource(final SocketAddress remote, final EventCodec<E> codec) {
+    this(new SocketConnection(remote), codec);
+  }
+
+  public SocketEventSource(final SocketConnection connection, final EventCodec<E> codec) {
+    this.connection = connection;
+    connection.receiveWith(new Receiver() {
+      @Override
+      public boolean canReceive() {
+        return hasDemand();
+      }
+
+      @Override
+      public void receive(final ByteBuffer frame) {
+        notifySubscribers(new BasicEvent<E>(codec.decode(frame)));
+      }
+    });
+  }
+
+  public SocketConnection getConnection() {
+    return connection;
+  }
+
+  @Override
+  protected void onNewSubscription(final Subscriber<? super Event<E>> subscriber, final Subscription subscription) {
+    subscriber.onSubscribe(new Subscription() {
+      @Override
+      public void request(final long n) {
+        subscription.request(n);
+        connection.resumeReceiving();
+      }
+
+      @Override
+      public void cancel() {
+        subscription.cancel();
+        connection.resumeReceiving();
+      }
+    });
+    connection.resumeReceiving();
+  }
+
+  private boolean hasDemand() {
+    final BasicEventSubscription<E>[] subscriptions = getSubscriptions();
+    for (final BasicEventSubscription<E> subscription : subscriptions) {
+      if (subscription.getDemand() == 0) {
+        return false;
+      }
+    }
+    return subscriptions.length > 0;
+  }
+
+}
@@ -0,0 +1,69 @@
+package org.epn.core.window;
+
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Incremental aggregation of the events of a window: events are added to a
+ * running accumulator as they arrive, and accumulators of adjacent panes can be
+ * merged, so no events need to be kept.
+ *
+ * @param <E>
+ *          event type
+ * @param <A>
+ *          accumulator type
+ * @param <R>
+ *          result type
+ */
+public interface Aggregator<E, A, R> {
+
+  A create();
+
+  A add(A accumulator, E e);
+
+  /**
+   * @return the combination of both accumulators; may change and return
+   *         {@code a}, but must not change {@code b}
+   */
+  A merge(A a, A b);
+
+  R result(A accumulator);
+
+  static <E, A, R> Aggregator<E, A, R> of(final Supplier<A> create, final BiFunction<A, E, A> add,
+      final BinaryOperator<A> merge, final Function<A, R> result) {
+
+    return new Aggregator<E, A, R>() {
+      @Override
+      public A create() {
+        return create.get();
+      }
+
+      @Override
+      public A add(final A accumulator, final E e) {
+        return add.apply(accumulator, e);
+      }
+
+      @Override
+      public A merge(final A a, final A b) {
+        return merge.apply(a, b);
+      }
+
+      @Override
+      public R result(final A accumulator) {
+        return result.apply(accumulator);
+      }
+    };
+  }
+
+  static <E> Aggregator<E, Long, Long> count() {
+    return of(() -> 0L, (a, e) -> a + 1, Long::sum, Function.identity());
+  }
+
+  static <E> Aggregator<E, E, E> reduce(final BinaryOperator<E> f) {
+    return of(() -> null, (a, e) -> (a == null) ? e : f.apply(a, e),
+        (a, b) -> (a == null) ? b : (b == null) ? a : f.apply(a, b), Function.identity());
+  }
+
+}
@@ -0,0 +1,157 @@
+package org.epn.core.window;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.epn.api.Event;
+import org.epn.api.EventProcessor;
+import org.epn.core.BasicDemand;
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSource;
+import org.reactivestreams.Subscription;
+
+/**
+ * Aggregates events per window and emits one result per non-empty window.
+ * <p>
+ * Tumbling and sliding windows are split into panes of gcd(size, slide): each
+ * event is added to the accumulator of its pane only, and a window's result
+ * is the merge of its panes, so overlapping windows share the work done per
+ * event. Count windows end with their last event. Time windows end when the
+ * first event after their end arrives, or on completion.
+ */
+public class BasicWindowEventProcessor<E, A, R> extends BasicEventSource<R> implements EventProcessor<E, R> {
+
+  private final Window window;
+  private final Aggregator<E, A, R> aggregator;
+  private final BasicDemand demand;
+
+  private final long paneSize;
+  private final Deque<Pane<A>> panes = new ArrayDeque<>();
+  private long position;
+  private long nextEnd = Long.MIN_VALUE;
+
+  private A session;
+  private long sessionLast;
+
+  public BasicWindowEventProcessor(final Window window, final Aggregator<E, A, R> aggregator) {
+    this(window, aggregator, BasicDemand.DEFAULT_BATCH_SIZE);
+  }
+
+  public BasicWindowEventProcessor(final Window window, final Aggregator<E, A, R> aggregator, final int batchSize) {
+    this.window = window;
+    this.aggregator = aggregator;
+    this.demand = new BasicDemand(batchSize);
+    this.paneSize = gcd(window.size, window.slide);
+    if (window.count) {
+      nextEnd = window.size;
+    }
+  }
+
+  @Override
+  public void onSubscribe(final Subscription s) {
+    demand.onSubscribe(s);
+  }
+
+  @Override
+  public synchronized void onNext(final Event<E> e) {
+    if (window.kind == Window.Kind.SESSION) {
+      addToSession(e.get(), window.clock.getAsLong());
+    } else if (window.count) {
+      add(e.get(), position++);
+      fire(position);
+    } else {
+      final long now = window.clock.getAsLong();
+      fire(now);
+      add(e.get(), now);
+    }
+    demand.consumed();
+  }
+
+  @Override
+  public synchronized void onComplete() {
+    if (window.kind == Window.Kind.SESSION) {
+      fireSession();
+    } else if (!window.count) {
+      fire(Long.MAX_VALUE);
+    }
+    notifyComplete();
+  }
+
+  private void add(final E e, final long at) {
+    final long index = Math.floorDiv(at, paneSize);
+    Pane<A> pane = panes.peekLast();
+    if (pane == null || pane.index != index) {
+      pane = new Pane<>(index, aggregator.create());
+      panes.addLast(pane);
+      if (!window.count && (nextEnd == Long.MIN_VALUE || panes.size() == 1 && nextEnd <= at)) {
+        // first window that contains this pane
+        nextEnd = (Math.floorDiv(at, window.slide) + 1) * window.slide;
+      }
+    }
+    pane.accumulator = aggregator.add(pane.accumulator, e);
+  }
+
+  /**
+   * Emits all windows ending at or before {@code upTo} and evicts panes no
+   * longer covered by any window.
+   */
+  private void fire(final long upTo) {
+    while (!panes.isEmpty() && nextEnd <= upTo) {
+      final long firstPane = Math.floorDiv(nextEnd - window.size, paneSize);
+      final long endPane = Math.floorDiv(nextEnd, paneSize);
+      A accumulator = null;
+      for (final Pane<A> pane : panes) {
+        if (pane.index >= endPane) {
+          break;
+        }
+        if (pane.index >= firstPane) {
+          // panes stay for later windows, so merge into an accumulator of the window's own
+          accumulator = aggregator.merge((accumulator == null) ? aggregator.create() : accumulator, pane.accumulator);
+        }
+      }
+      if (accumulator != null) {
+        notifySubscribers(new BasicEvent<R>(aggregator.result(accumulator)));
+      }
+
+      nextEnd += window.slide;
+      final long evictBelow = Math.floorDiv(nextEnd - window.size, paneSize);
+      while (!panes.isEmpty() && panes.peekFirst().index < evictBelow) {
+        panes.removeFirst();
+      }
+      if (!window.count && !panes.isEmpty() && panes.peekFirst().index * paneSize >= nextEnd) {
+        // skip windows without any pane
+        nextEnd = (Math.floorDiv(panes.peekFirst().index * paneSize, window.slide) + 1) * window.slide;
+      }
+    }
+  }
+
+  private void addToSession(final E e, final long now) {
+    if (session != null && now - sessionLast >= window.size) {
+      fireSession();
+    }
+    session = aggregator.add((session == null) ? aggregator.create() : session, e);
+    sessionLast = now;
+  }
+
+  private void fireSession() {
+    if (session != null) {
+      notifySubscribers(new BasicEvent<R>(aggregator.result(session)));
+      session = null;
+    }
+  }
+
+  private static long gcd(final long a, final long b) {
+    return (b == 0) ? a : gcd(b, a % b);
+  }
+
+  private static final class Pane<A> {
+    final long index;
+    A accumulator;
+
+    Pane(final long index, final A accumulator) {
+      this.index = index;
+      this.accumulator = accumulator;
+    }
+  }
+
+}
@@ -0,0 +1,78 @@
+package org.epn.core.window;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Describes how events are grouped into windows. Count windows are measured in
+ * events, time windows in milliseconds of processing time, as given by the
+ * window's clock.
+ */
+public final class Window {
+
+  enum Kind {
+    TUMBLING,
+    SLIDING,
+    SESSION;
+  }
+
+  final Kind kind;
+  final boolean count;
+  final long size;
+  final long slide;
+  final LongSupplier clock;
+
+  private Window(final Kind kind, final boolean count, final long size, final long slide, final LongSupplier clock) {
+    if (size < 1 || slide < 1) {
+      throw new IllegalArgumentException("Window size and slide must be positive: " + size + ", " + slide);
+    }
+    this.kind = kind;
+    this.count = count;
+    this.size = size;
+    this.slide = slide;
+    this.clock = clock;
+  }
+
+  public static Window tumbling(final long count) {
+    return new Window(Kind.TUMBLING, true, count, count, null);
+  }
+
+  public static Window tumbling(final Duration size) {
+    return new Window(Kind.TUMBLING, false, size.toMillis(), size.toMillis(), System::currentTimeMillis);
+  }
+
+  /**
+   * Windows of {@code count} events, one ending every {@code slide} events.
+   */
+  public static Window sliding(final long count, final long slide) {
+    return new Window(Kind.SLIDING, true, count, slide, null);
+  }
+
+  public static Window sliding(final Duration size, final Duration slide) {
+    return new Window(Kind.SLIDING, false, size.toMillis(), slide.toMillis(), System::currentTimeMillis);
+  }
+
+  /**
+   * Windows of events that are less than {@code gap} apart.
+   */
+  public static Window session(final Duration gap) {
+    return new Window(Kind.SESSION, false, gap.toMillis(), gap.toMillis(), System::currentTimeMillis);
+  }
+
+  /**
+   * @return this time window, measured with the given clock
+   */
+  public Window withClock(final LongSupplier clock) {
+    if (count) {
+      throw new IllegalStateException("Count windows have no clock");
+    }
+    return new Window(kind, false, size, slide, clock);
+  }
+
+  @Override
+  public String toString() {
+    return kind + " window (" + size + (count ? " events" : " ms")
+        + ((kind == Kind.SLIDING) ? ", every " + slide + (count ? " events" : " ms") : "") + ")";
+  }
+
+}
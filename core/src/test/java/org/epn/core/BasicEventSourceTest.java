@@ -0,0 +1,298 @@
+package org.epn.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.epn.core.BasicEventSource.OverflowStrategy;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+
+public class BasicEventSourceTest {
+
+  @Test
+  public void unbufferedSourceCountsDroppedEvents() {
+    final BasicEventSource<Integer> source = new BasicEventSource<>();
+    final ManualEventSink sink = new ManualEventSink();
+    source.subscribe(sink);
+
+    emit(source, 5);
+    sink.request(2);
+    emit(source, 5);
+
+    assertArrayEquals(new Integer[] { 0, 1 }, sink.data.toArray());
+    assertEquals(8, source.getDropped());
+  }
+
+  @Test
+  public void bufferedSourceDrainsOnRequest() {
+    final BasicEventSource<Integer> source = new BasicEventSource<>(8, OverflowStrategy.DROP_NEWEST);
+    final ManualEventSink sink = new ManualEventSink();
+    source.subscribe(sink);
+
+    emit(source, 5);
+    assertEquals(5, source.getBuffered());
+
+    sink.request(3);
+    assertArrayEquals(new Integer[] { 0, 1, 2 }, sink.data.toArray());
+
+    sink.request(10);
+    assertArrayEquals(new Integer[] { 0, 1, 2, 3, 4 }, sink.data.toArray());
+    assertEquals(0, source.getBuffered());
+    assertEquals(0, source.getDropped());
+  }
+
+  @Test
+  public void dropOldest() {
+    final BasicEventSource<Integer> source = new BasicEventSource<>(3, OverflowStrategy.DROP_OLDEST);
+    final ManualEventSink sink = new ManualEventSink();
+    source.subscribe(sink);
+
+    emit(source, 5);
+    sink.request(10);
+
+    assertArrayEquals(new Integer[] { 2, 3, 4 }, sink.data.toArray());
+    assertEquals(2, source.getDropped());
+  }
+
+  @Test
+  public void dropNewest() {
+    final BasicEventSource<Integer> source = new BasicEventSource<>(3, OverflowStrategy.DROP_NEWEST);
+    final ManualEventSink sink = new ManualEventSink();
+    source.subscribe(sink);
+
+    emit(source, 5);
+    sink.request(10);
+
+    assertArrayEquals(new Integer[] { 0, 1, 2 }, sink.data.toArray());
+    assertEquals(2, source.getDropped());
+  }
+
+  @Test
+  public void failSignalsErrorAndCancels() {
+    final BasicEventSource<Integer> source = new BasicEventSource<>(3, OverflowStrategy.FAIL);
+    final ManualEventSink sink = new ManualEventSink();
+    source.subscribe(sink);
+
+    emit(source, 5);
+    sink.request(10);
+
+    assertTrue(sink.error instanceof IllegalStateException);
+    assertTrue(sink.data.isEmpty());
+    assertEquals(0, source.getBuffered());
+  }
+
+  @Test
+  public void spillKeepsOrder() {
+    final BasicEventSource<Integer> source = new BasicEventSource<>(2, OverflowStrategy.SPILL);
+    final ManualEventSink sink = new ManualEventSink();
+    source.subscribe(sink);
+
+    emit(source, 5);
+    assertEquals(5, source.getBuffered());
+    sink.request(3);
+    emit(source, 2);
+    sink.request(10);
+
+    assertArrayEquals(new Integer[] { 0, 1, 2, 3, 4, 0, 1 }, sink.data.toArray());
+    assertEquals(0, source.getDropped());
+  }
+
+  @Test(timeout = 10000)
+  public void blockWaitsForDemandFromOtherThread() throws Exception {
+    final BasicEventSource<Integer> source = new BasicEventSource<>(4, OverflowStrategy.BLOCK);
+    final ManualEventSink sink = new ManualEventSink();
+    source.subscribe(sink);
+
+    final Thread consumer = new Thread(() -> {
+      while (sink.count() < 1000) {
+        sink.request(1);
+        Thread.yield();
+      }
+    });
+    consumer.start();
+    emit(source, 1000);
+    consumer.join();
+
+    assertEquals(1000, sink.count());
+    assertEquals(0, source.getDropped());
+  }
+
+  @Test
+  public void batchIsDeliveredAtOnceIfDemandSuffices() {
+    final BasicEventSource<Integer> source = new BasicEventSource<>();
+    final ManualEventSink sink = new ManualEventSink();
+    source.subscribe(sink);
+
+    sink.request(6);
+    source.notifySubscribers(batch(4), 4);
+    source.notifySubscribers(batch(4), 4);
+
+    assertEquals(1, sink.batches);
+    assertArrayEquals(new Integer[] { 0, 1, 2, 3, 0, 1 }, sink.data.toArray());
+    assertEquals(2, source.getDropped());
+  }
+
+  @Test
+  public void cancelledSubscriberIsRemovedOthersKeepReceiving() {
+    final BasicEventSource<Integer> source = new BasicEventSource<>();
+    final ManualEventSink sink1 = new ManualEventSink();
+    final ManualEventSink sink2 = new ManualEventSink();
+    final ManualEventSink sink3 = new ManualEventSink();
+    source.subscribe(sink1);
+    source.subscribe(sink2);
+    source.subscribe(sink3);
+    sink1.request(10);
+    sink2.request(10);
+    sink3.request(10);
+
+    emit(source, 2);
+    sink2.s.cancel();
+    emit(source, 2);
+
+    assertEquals(2, source.getSubscriptions().length);
+    assertArrayEquals(new Integer[] { 0, 1, 0, 1 }, sink1.data.toArray());
+    assertArrayEquals(new Integer[] { 0, 1 }, sink2.data.toArray());
+    assertArrayEquals(new Integer[] { 0, 1, 0, 1 }, sink3.data.toArray());
+  }
+
+  @Test
+  public void bufferedWatermarkIsDeliveredAfterEarlierEvents() {
+    final BasicEventSource<Integer> source = new BasicEventSource<>(8, OverflowStrategy.DROP_NEWEST);
+    final ManualEventSink sink = new ManualEventSink();
+    source.subscribe(sink);
+
+    emit(source, 2);
+    source.notifyWatermark(42);
+    emit(source, 1);
+    assertEquals(-1, sink.watermarkAt);
+
+    sink.request(10);
+    assertArrayEquals(new Integer[] { 0, 1, 0 }, sink.data.toArray());
+    assertEquals(2, sink.watermarkAt);
+  }
+
+  @Test
+  public void watermarkThatFindsBufferFullIsKeptAndCompletionFollowsBuffer() {
+    final BasicEventSource<Integer> source = new BasicEventSource<>(3, OverflowStrategy.DROP_NEWEST);
+    final ManualEventSink sink = new ManualEventSink();
+    source.subscribe(sink);
+
+    emit(source, 3);
+    source.notifyWatermark(41);
+    source.notifyWatermark(42);
+    source.notifyComplete();
+    assertEquals(-1, sink.watermarkAt);
+    assertFalse(sink.complete);
+
+    sink.request(10);
+    assertArrayEquals(new Integer[] { 0, 1, 2 }, sink.data.toArray());
+    assertEquals(3, sink.watermarkAt);
+    assertEquals(42, sink.watermark);
+    assertTrue(sink.complete);
+  }
+
+  @Test
+  public void watermarkNeedsNoDemand() {
+    final BasicEventSource<Integer> source = new BasicEventSource<>(8, OverflowStrategy.DROP_NEWEST);
+    final ManualEventSink sink = new ManualEventSink();
+    source.subscribe(sink);
+
+    emit(source, 1);
+    source.notifyWatermark(42);
+    emit(source, 1);
+    assertEquals(-1, sink.watermarkAt);
+
+    sink.request(1);
+    assertArrayEquals(new Integer[] { 0 }, sink.data.toArray());
+    assertEquals(1, sink.watermarkAt);
+    assertEquals(42, sink.watermark);
+  }
+
+  @Test
+  public void failDropsEventsButNoWatermarks() {
+    final BasicEventSource<Integer> source = new BasicEventSource<>(3, OverflowStrategy.FAIL);
+    final ManualEventSink sink = new ManualEventSink();
+    source.subscribe(sink);
+
+    emit(source, 1);
+    source.notifyWatermark(42);
+    emit(source, 2);
+
+    assertTrue(sink.error instanceof IllegalStateException);
+    assertEquals(3, source.getDropped());
+  }
+
+  private static void emit(final BasicEventSource<Integer> source, final int n) {
+    IntStream.range(0, n).forEach(i -> source.notifySubscribers(new BasicEvent<Integer>(i)));
+  }
+
+  private static Event<Integer>[] batch(final int n) {
+    final Event<Integer>[] batch = BasicEventSource.newBatch(n);
+    IntStream.range(0, n).forEach(i -> batch[i] = new BasicEvent<Integer>(i));
+    return batch;
+  }
+
+  private static class ManualEventSink implements EventSink<Integer> {
+
+    private final List<Integer> data = new ArrayList<>();
+    private Subscription s;
+    private Throwable error;
+    private int batches;
+    private int watermarkAt = -1;
+    private long watermark;
+    private boolean complete;
+
+    @Override
+    public void onSubscribe(final Subscription s) {
+      this.s = s;
+    }
+
+    @Override
+    public void onNext(final Event<Integer> t) {
+      synchronized (data) {
+        data.add(t.get());
+      }
+    }
+
+    @Override
+    public void onNextBatch(final Event<Integer>[] events, final int count) {
+      batches++;
+      EventSink.super.onNextBatch(events, count);
+    }
+
+    @Override
+    public void onWatermark(final long watermark) {
+      this.watermark = watermark;
+      watermarkAt = count();
+    }
+
+    @Override
+    public void onComplete() {
+      complete = true;
+    }
+
+    @Override
+    public void onError(final Throwable t) {
+      this.error = t;
+    }
+
+    void request(final long n) {
+      s.request(n);
+    }
+
+    int count() {
+      synchronized (data) {
+        return data.size();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,90 @@
+package org.epn.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.epn.core.BasicEventSource.OverflowStrategy;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+
+public class BasicFanInEventProcessorTest {
+
+  @Test
+  public void fasterInputIsHeldBackByDemand() {
+    final BasicEventSource<Integer> top = new BasicEventSource<>(1024, OverflowStrategy.DROP_NEWEST);
+    final BasicEventSource<Integer> bottom = new BasicEventSource<>(1024, OverflowStrategy.DROP_NEWEST);
+    final BasicFanInEventProcessor<Integer> fanIn = new BasicFanInEventProcessor<>(top, bottom,
+        Optional.of((t, b) -> t * 1000 + b), 16);
+    final BasicEventSink<Integer> sink = new BasicEventSink<>();
+    fanIn.subscribe(sink);
+
+    emit(top, 0, 100);
+    assertEquals(16, fanIn.getPending());
+    assertEquals(84, top.getBuffered());
+
+    emit(bottom, 0, 100);
+    assertEquals(0, fanIn.getPending());
+    assertEquals(0, top.getBuffered());
+    assertEquals(100, sink.getData().size());
+    assertEquals(Integer.valueOf(99099), sink.getData().get(99));
+  }
+
+  @Test
+  public void pairsEventsEmittedConcurrently() throws Exception {
+    final int n = 100000;
+    final BasicEventSource<Integer> top = new BasicEventSource<>(64, OverflowStrategy.BLOCK);
+    final BasicEventSource<Integer> bottom = new BasicEventSource<>(64, OverflowStrategy.BLOCK);
+    final BasicFanInEventProcessor<Integer> fanIn = new BasicFanInEventProcessor<>(top, bottom,
+        Optional.of((t, b) -> t - b), 32);
+    final CountingEventSink sink = new CountingEventSink(n);
+    fanIn.subscribe(sink);
+
+    final Thread t1 = new Thread(() -> emit(top, 0, n));
+    final Thread t2 = new Thread(() -> emit(bottom, 0, n));
+    t1.start();
+    t2.start();
+
+    assertEquals(true, sink.done.await(30, TimeUnit.SECONDS));
+    t1.join();
+    t2.join();
+    assertArrayEquals(new Object[0], sink.mismatched.toArray());
+  }
+
+  private static void emit(final BasicEventSource<Integer> source, final int from, final int to) {
+    for (int i = from; i < to; i++) {
+      source.notifySubscribers(new BasicEvent<>(i));
+    }
+  }
+
+  private static class CountingEventSink implements EventSink<Integer> {
+
+    private final ConcurrentLinkedQueue<Integer> mismatched = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch done;
+
+    CountingEventSink(final int expected) {
+      this.done = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void onSubscribe(final Subscription s) {
+      s.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(final Event<Integer> event) {
+      if (event.get() != 0) {
+        mismatched.add(event.get());
+      }
+      done.countDown();
+    }
+
+  }
+
+}
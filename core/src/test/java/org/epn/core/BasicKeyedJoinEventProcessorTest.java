@@ -0,0 +1,110 @@
+package org.epn.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.epn.api.Event;
+import org.junit.Test;
+
+public class BasicKeyedJoinEventProcessorTest {
+
+  @Test
+  public void joinsEqualKeysWithinWindow() {
+    final BasicEventSource<Integer> top = new BasicEventSource<>();
+    final BasicEventSource<Integer> bottom = new BasicEventSource<>();
+    final BasicKeyedJoinEventProcessor<Integer> join = new BasicKeyedJoinEventProcessor<>(top, bottom, i -> i % 10,
+        i -> i % 10, 5, Optional.of((t, b) -> t * 1000 + b));
+    final BasicEventSink<Integer> sink = new BasicEventSink<>();
+    join.subscribe(sink);
+
+    emit(top, 1, 0);
+    emit(bottom, 11, 3);
+    emit(bottom, 2, 4);
+    emit(top, 21, 7);
+    emit(bottom, 31, 20);
+
+    assertArrayEquals(new Integer[] { 1011, 21011 }, sink.getData().toArray());
+  }
+
+  @Test
+  public void indexStaysBoundedByWindow() {
+    final BasicEventSource<Integer> top = new BasicEventSource<>();
+    final BasicEventSource<Integer> bottom = new BasicEventSource<>();
+    final BasicKeyedJoinEventProcessor<Integer> join = new BasicKeyedJoinEventProcessor<>(top, bottom, i -> i,
+        i -> i, 10, Optional.empty());
+    final BasicEventSink<Integer> sink = new BasicEventSink<>();
+    join.subscribe(sink);
+
+    for (int i = 0; i < 10000; i++) {
+      emit(top, i, i);
+      emit(bottom, -i - 1, i);
+    }
+
+    assertTrue(sink.getData().isEmpty());
+    assertTrue(join.getIndexed() <= 2 * 11);
+  }
+
+  @Test
+  public void joinsInputThatLagsByMoreThanTheWindow() {
+    final BasicEventSource<Integer> top = new BasicEventSource<>();
+    final BasicEventSource<Integer> bottom = new BasicEventSource<>();
+    final BasicKeyedJoinEventProcessor<Integer> join = new BasicKeyedJoinEventProcessor<>(top, bottom, i -> i % 100,
+        i -> i % 100, 5, Optional.of((t, b) -> t * 1000 + b));
+    final BasicEventSink<Integer> sink = new BasicEventSink<>();
+    join.subscribe(sink);
+
+    for (int i = 0; i < 20; i++) {
+      emit(top, i, i * 10);
+    }
+    for (int i = 0; i < 20; i++) {
+      emit(bottom, 100 + i, i * 10);
+    }
+
+    assertEquals(20, sink.getData().size());
+    assertEquals(Integer.valueOf(19119), sink.getData().get(19));
+  }
+
+  @Test
+  public void idleInputDoesNotKeepTheOthersEvents() {
+    final AtomicLong clock = new AtomicLong();
+    final BasicEventSource<Integer> top = new BasicEventSource<>();
+    final BasicEventSource<Integer> bottom = new BasicEventSource<>();
+    final BasicKeyedJoinEventProcessor<Integer> join = new BasicKeyedJoinEventProcessor<>(top, bottom, i -> i,
+        i -> i, 10, Optional.empty(), clock::get, 100, BasicDemand.DEFAULT_BATCH_SIZE);
+    join.subscribe(new BasicEventSink<>());
+
+    for (int i = 0; i < 10000; i++) {
+      clock.set(i);
+      emit(top, i, i);
+    }
+    assertTrue(join.getIndexed() <= 11);
+  }
+
+  @Test
+  public void completedInputDoesNotKeepTheOthersEvents() {
+    final BasicEventSource<Integer> top = new BasicEventSource<>();
+    final BasicEventSource<Integer> bottom = new BasicEventSource<>();
+    final BasicKeyedJoinEventProcessor<Integer> join = new BasicKeyedJoinEventProcessor<>(top, bottom, i -> i,
+        i -> i, 10, Optional.empty());
+    join.subscribe(new BasicEventSink<>());
+
+    for (int i = 0; i < 100; i++) {
+      emit(top, i, i);
+    }
+    assertEquals(100, join.getIndexed());
+
+    bottom.notifyComplete();
+    assertEquals(0, join.getIndexed());
+    emit(top, 100, 100);
+    assertEquals(0, join.getIndexed());
+  }
+
+  private static void emit(final BasicEventSource<Integer> source, final int value, final long timestamp) {
+    source.notifySubscribers(new BasicEvent<Integer>(value, timestamp, Event.NO_SEQUENCE));
+  }
+
+}
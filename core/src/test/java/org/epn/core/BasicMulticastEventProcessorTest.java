@@ -0,0 +1,224 @@
+package org.epn.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+
+public class BasicMulticastEventProcessorTest {
+
+  @Test
+  public void eachBranchReceivesAllEventsInOrderOnItsOwnThread() throws Exception {
+    final int n = 10000;
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      final BasicEventSource<Integer> source = new BasicEventSource<>();
+      final BasicMulticastEventProcessor<Integer> multicast = new BasicMulticastEventProcessor<>(executor, 3, 64, 16);
+      final List<RecordingEventSink> sinks = new ArrayList<>();
+      multicast.getBranches().forEach(b -> {
+        final RecordingEventSink sink = new RecordingEventSink(n + 1);
+        b.subscribe(sink);
+        sinks.add(sink);
+      });
+      source.subscribe(multicast);
+
+      for (int i = 0; i < n; i++) {
+        source.notifySubscribers(new BasicEvent<>(i));
+      }
+      source.onWatermark(n);
+
+      for (final RecordingEventSink sink : sinks) {
+        assertTrue(sink.done.await(10, TimeUnit.SECONDS));
+        assertEquals(n, sink.received.get());
+        assertEquals(n, sink.watermark);
+        assertEquals(0, sink.outOfOrder.get());
+        assertNotEquals(Thread.currentThread(), sink.thread);
+      }
+      assertNotEquals(sinks.get(0).thread, sinks.get(1).thread);
+      assertNotEquals(sinks.get(1).thread, sinks.get(2).thread);
+      assertEquals(n + 1, multicast.getPublished());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void slowBranchHoldsUpProducerOnlyOnceRingIsFull() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final BasicEventSource<Integer> source = new BasicEventSource<>();
+      final BasicMulticastEventProcessor<Integer> multicast = new BasicMulticastEventProcessor<>(executor, 2, 8, 1);
+      final CountDownLatch resume = new CountDownLatch(1);
+      final RecordingEventSink slow = new RecordingEventSink(100) {
+        @Override
+        public void onNext(final Event<Integer> e) {
+          try {
+            resume.await();
+          } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+          super.onNext(e);
+        }
+      };
+      final RecordingEventSink fast = new RecordingEventSink(100);
+      multicast.getBranches().get(0).subscribe(slow);
+      multicast.getBranches().get(1).subscribe(fast);
+      source.subscribe(multicast);
+
+      final Thread producer = new Thread(() -> {
+        for (int i = 0; i < 100; i++) {
+          source.notifySubscribers(new BasicEvent<>(i));
+        }
+      });
+      producer.start();
+
+      while (fast.received.get() < 8) {
+        Thread.sleep(1);
+      }
+      Thread.sleep(50);
+      assertEquals(8, fast.received.get());
+      assertEquals(8, multicast.getPublished());
+
+      resume.countDown();
+      assertTrue(slow.done.await(10, TimeUnit.SECONDS));
+      assertTrue(fast.done.await(10, TimeUnit.SECONDS));
+      producer.join();
+      // a branch moves its cursor only after its subscribers have returned
+      while (!multicast.isIdle()) {
+        Thread.sleep(1);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void branchWithoutDemandHoldsUpProducerInsteadOfDropping() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final BasicEventSource<Integer> source = new BasicEventSource<>();
+      final BasicMulticastEventProcessor<Integer> multicast = new BasicMulticastEventProcessor<>(executor, 2, 8, 4);
+      final RecordingEventSink limited = new RecordingEventSink(100) {
+        @Override
+        public void onSubscribe(final Subscription s) {
+          subscription = s;
+          s.request(10);
+        }
+      };
+      final RecordingEventSink unlimited = new RecordingEventSink(100);
+      multicast.getBranches().get(0).subscribe(limited);
+      multicast.getBranches().get(1).subscribe(unlimited);
+      source.subscribe(multicast);
+
+      final Thread producer = new Thread(() -> {
+        for (int i = 0; i < 100; i++) {
+          source.notifySubscribers(new BasicEvent<>(i));
+        }
+      });
+      producer.start();
+
+      while (unlimited.received.get() < 18) {
+        Thread.sleep(1);
+      }
+      Thread.sleep(50);
+      assertEquals(10, limited.received.get());
+      assertEquals(18, unlimited.received.get());
+      assertEquals(18, multicast.getPublished());
+
+      limited.subscription.request(90);
+      assertTrue(limited.done.await(10, TimeUnit.SECONDS));
+      assertTrue(unlimited.done.await(10, TimeUnit.SECONDS));
+      producer.join();
+      assertEquals(0, limited.outOfOrder.get());
+      while (!multicast.isIdle()) {
+        Thread.sleep(1);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void stopReleasesProducerWaitingForRoom() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(1);
+    try {
+      final BasicEventSource<Integer> source = new BasicEventSource<>();
+      final BasicMulticastEventProcessor<Integer> multicast = new BasicMulticastEventProcessor<>(executor, 1, 8, 4);
+      final RecordingEventSink stuck = new RecordingEventSink(100) {
+        @Override
+        public void onSubscribe(final Subscription s) {
+          subscription = s;
+        }
+      };
+      multicast.getBranches().get(0).subscribe(stuck);
+      source.subscribe(multicast);
+
+      final Thread producer = new Thread(() -> {
+        for (int i = 0; i < 100; i++) {
+          source.notifySubscribers(new BasicEvent<>(i));
+        }
+      });
+      producer.start();
+      while (multicast.getPublished() < 8) {
+        Thread.sleep(1);
+      }
+      assertTrue(producer.isAlive());
+
+      multicast.stop();
+      producer.join();
+      assertEquals(0, stuck.received.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static class RecordingEventSink implements EventSink<Integer> {
+
+    private final AtomicInteger received = new AtomicInteger();
+    private final AtomicInteger outOfOrder = new AtomicInteger();
+    private final CountDownLatch done;
+    Subscription subscription;
+    private volatile Thread thread;
+    private volatile long watermark;
+    private int last = -1;
+
+    RecordingEventSink(final int expected) {
+      this.done = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void onSubscribe(final Subscription s) {
+      s.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(final Event<Integer> e) {
+      thread = Thread.currentThread();
+      if (e.get() != last + 1) {
+        outOfOrder.incrementAndGet();
+      }
+      last = e.get();
+      received.incrementAndGet();
+      done.countDown();
+    }
+
+    @Override
+    public void onWatermark(final long watermark) {
+      this.watermark = watermark;
+      done.countDown();
+    }
+  }
+
+}
@@ -1,14 +1,58 @@
 package org.epn.core;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import org.apache.commons.io.IOUtils;
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.epn.api.EventSource;
+import org.epn.core.BasicEventSource.OverflowStrategy;
+import org.epn.core.cep.Pattern;
+import org.epn.core.codec.EventCodec;
+import org.epn.core.metrics.Meter;
+import org.epn.core.metrics.NodeMetrics;
 import org.epn.core.net.Epn;
 import org.epn.core.net.EventNetwork;
+import org.epn.core.net.EventNetwork.EpnNode;
+import org.epn.core.net.EventNetwork.RouteEpnNode;
+import org.epn.core.net.EventNetwork.TerminalEpnNode;
 import org.epn.core.net.EventNetwork.TypedNode;
+import org.epn.core.net.EventNetworkRuntime;
 import org.epn.core.net.HtmlEventNetworkVisualizer;
 import org.epn.core.node.TestEventSink;
 import org.epn.core.node.TestEventSource;
+import org.epn.core.node.TestIntEventSource;
+import org.epn.core.primitive.BasicDoubleEventSink;
+import org.epn.core.primitive.BasicLongEventSink;
+import org.epn.core.window.Aggregator;
+import org.epn.core.window.Window;
 import org.junit.Test;
+import org.reactivestreams.Subscription;
 
 //@formatter:off
 public class EventNetworkTest {
@@ -145,6 +189,53 @@ public class EventNetworkTest {
     assertArrayEquals(new Integer[] { 11, 13, 15, 17, 19 }, sink2.getData().toArray());
   }
   
+  /**
+   *<pre>
+   *                                  ________
+   *                  _______        |        |
+   *                 |       | ----> |  Sink  |
+   *                 |       |       |________|
+   *                 |       |        _____________         ________
+   * ________        |       |       |             |       |        |
+   *|        |       |       | ----> | Transformer | ----> |  Sink  |
+   *| Source | ----> | Route |       |_____________|       |________|
+   *|________|       |       |
+   *                 |       | ----> _______         ________
+   *                 |       |      |       |       |        |
+   *                 |_______| ---->| Merge | ----> |  Sink  |
+   *                                |_______|       |________|
+   *
+   */
+  @Test
+  public void sourceToRouteThenSinksAndMerge() {
+    final TestEventSource source = new TestEventSource();
+    final TestEventSink sink0 = new TestEventSink();
+    final TestEventSink sink1 = new TestEventSink();
+    final TestEventSink merged = new TestEventSink();
+
+    final EventNetwork n = Epn.named("RouteAndMerge");
+    final RouteEpnNode<Integer, TerminalEpnNode<Integer>> route =
+      n
+        .fromSource(source)
+        .route(4, i -> i < 20 ? i % 4 : -1);
+    route
+      .outlet(0)
+        .consumedBy(sink0)
+      .outlet(1)
+        .transform(i -> -i)
+        .consumedBy(sink1);
+    n
+      .merge(route.outlet(2), route.outlet(3))
+      .consumedBy(merged)
+      .start();
+
+    new HtmlEventNetworkVisualizer().visualize(n);
+
+    assertArrayEquals(new Integer[] { 0, 4, 8, 12, 16 }, sink0.getData().toArray());
+    assertArrayEquals(new Integer[] { -1, -5, -9, -13, -17 }, sink1.getData().toArray());
+    assertArrayEquals(new Integer[] { 2, 3, 6, 7, 10, 11, 14, 15, 18, 19 }, merged.getData().toArray());
+  }
+
   /**
    *<pre>
    *                                  
@@ -175,6 +266,44 @@ public class EventNetworkTest {
       
     assertArrayEquals(new Integer[] { 0, 0, 1, 1, 2, 2, 3, 3, 4, 4 }, sink.getData().toArray());
   }
+
+  @Test
+  public void joinPairsMoreEventsThanItsInputsBuffer() throws Exception {
+    final Integer[] expected = IntStream.range(0, 2 * 5000).map(i -> i / 2).boxed().toArray(Integer[]::new);
+
+    final TestEventSink sink = new TestEventSink();
+    Epn
+      .named("FanIn")
+      .join(new TestEventSource(5000), new TestEventSource(5000))
+      .consumedBy(sink)
+      .start();
+    assertArrayEquals(expected, sink.getData().toArray());
+
+    final TestEventSink spilledSink = new TestEventSink();
+    Epn
+      .named("SpillingFanIn")
+      .withJoinOverflow(OverflowStrategy.SPILL)
+      .join(new TestEventSource(5000), new TestEventSource(5000))
+      .consumedBy(spilledSink)
+      .start();
+    assertArrayEquals(expected, spilledSink.getData().toArray());
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final TestEventSink asyncSink = new TestEventSink();
+      final EventNetwork n =
+        Epn
+          .named("AsyncFanIn")
+          .withExecutor(executor, 64)
+          .join(new TestEventSource(5000), new TestEventSource(5000))
+          .consumedBy(asyncSink)
+          .start();
+      assertTrue(n.awaitIdle(10, TimeUnit.SECONDS));
+      assertArrayEquals(expected, asyncSink.getData().toArray());
+    } finally {
+      executor.shutdown();
+    }
+  }
   
   /**
    *<pre>
@@ -206,4 +335,1053 @@ public class EventNetworkTest {
       
     assertArrayEquals(new String[] { "00", "11", "22", "33", "44" }, sink.getData().toArray());
   }
+
+  /**
+   *<pre>
+   * ________         _____________________________________________         ________
+   *|        |       |  ________      _____________      ________  |       |        |
+   *| Source | ----> | | Filter | -> | Transformer | -> | Filter | | ----> |  Sink  |
+   *|________|       | |________|    |_____________|    |________| |       |________|
+   *                 |_____________________________________________|
+   *
+   */
+  @Test
+  public void sourceToFusedFiltersAndTransformersThenSink() {
+    final BasicEventSink<String> fusedSink = new BasicEventSink<String>();
+    final BasicEventSink<String> sink = new BasicEventSink<String>();
+
+    Epn
+      .named("FusedFiltersAndTransformers")
+      .fromSource(new TestEventSource())
+      .filter(i -> (i % 3 == 0))
+      .transform(i -> i * 2)
+      .filter(i -> i < 40)
+      .transform(i -> "#" + i)
+      .consumedBy(fusedSink)
+      .start();
+
+    Epn
+      .named("FiltersAndTransformers")
+      .withOperatorFusion(false)
+      .fromSource(new TestEventSource())
+      .filter(i -> (i % 3 == 0))
+      .transform(i -> i * 2)
+      .filter(i -> i < 40)
+      .transform(i -> "#" + i)
+      .consumedBy(sink)
+      .start();
+
+    assertArrayEquals(new String[] { "#0", "#6", "#12", "#18", "#24", "#30", "#36" }, fusedSink.getData().toArray());
+    assertArrayEquals(sink.getData().toArray(), fusedSink.getData().toArray());
+  }
+
+  /**
+   *<pre>
+   *                                  ________         ________
+   * ________         ________       |        |       |        |
+   *|        |       |        | ---> | Filter | ----> |  Sink  |
+   *| Source | ----> | Filter |      |________|       |________|
+   *|________|       |________|       ________
+   *                            |    |        |
+   *                            ---> |  Sink  |
+   *                                 |________|
+   *
+   */
+  @Test
+  public void sourceToSharedFilterThenBranchesIsNotFusedAcrossBranches() {
+    final TestEventSource source = new TestEventSource(20);
+    final TestEventSink sink1 = new TestEventSink();
+    final TestEventSink sink2 = new TestEventSink();
+
+    final EpnNode<Integer, TerminalEpnNode<Integer>> even =
+        Epn
+          .named("SharedFilter")
+          .fromSource(source)
+          .filter(i -> (i % 2 == 0));
+
+    even.filter(i -> i < 5).consumedBy(sink1);
+    even.consumedBy(sink2).start();
+
+    assertArrayEquals(new Integer[] { 0, 2, 4 }, sink1.getData().toArray());
+    assertArrayEquals(new Integer[] { 0, 2, 4, 6, 8, 10, 12, 14, 16, 18 }, sink2.getData().toArray());
+  }
+
+  /**
+   *<pre>
+   *                                  ________         _____________         ________
+   *                  _______        |        |       |             |       |        |
+   * ________        |       | ----> | Filter | ----> | Transformer | ----> |  Sink  |
+   *|        |       |       |       |________|       |_____________|       |________|
+   *| Source | ----> | Split |        ________                               ________
+   *|________|       |       |       |        |                             |        |
+   *                 |_______| ----> | Filter | --------------------------> |  Sink  |
+   *                                 |________|                             |________|
+   *
+   */
+  @Test
+  public void batchedSourceToFanOutThenFiltersThenSinks() {
+    final TestEventSource source = new TestEventSource(1000, 64);
+    final BasicEventSink<String> sink1 = new BasicEventSink<String>();
+    final TestEventSink sink2 = new TestEventSink();
+
+    Epn
+      .named("BatchedFanOut")
+      .withDemandBatchSize(16)
+      .withOperatorFusion(false)
+      .fromSource(source)
+      .split(i -> (i % 2 == 0))
+      .top()
+        .filter(i -> i < 10)
+        .transform(i -> i.toString())
+        .consumedBy(sink1)
+      .bottom()
+        .filter(i -> i >= 990)
+        .consumedBy(sink2)
+      .start();
+
+    assertArrayEquals(new String[] { "0", "2", "4", "6", "8" }, sink1.getData().toArray());
+    assertArrayEquals(new Integer[] { 991, 993, 995, 997, 999 }, sink2.getData().toArray());
+    assertEquals(0, source.getDropped());
+  }
+
+  /**
+   *<pre>
+   * ________         ________         _____________         ________
+   *|        |       |        |       |             |       |        | 
+   *| Source | ----> | Filter | ----> | Transformer | ----> |  Sink  |
+   *|________|       |________|       |_____________|       |________|
+   *
+   * (int source, int filter, int to long transformer, long sink)
+   */
+  @Test
+  public void primitiveSourceToFilterThenTransformerThenSink() {
+    final TestIntEventSource source = new TestIntEventSource(10);
+    final UnboxedLongEventSink sink = new UnboxedLongEventSink();
+
+    Epn
+      .named("Primitive")
+      .fromIntSource(source)
+      .filterInt(i -> i % 3 == 0)
+      .mapToLong(i -> i * 10000000000L)
+      .consumedBy(sink)
+      .start();
+
+    assertArrayEquals(new long[] { 0L, 30000000000L, 60000000000L, 90000000000L }, sink.getData());
+    assertEquals(0, source.getDropped());
+    assertEquals(0, sink.boxed);
+  }
+
+  /**
+   *<pre>
+   * ________         _____________         ________         _____________         ________
+   *|        |       |             |       |        |       |             |       |        | 
+   *| Source | ----> | Transformer | ----> | Filter | ----> | Transformer | ----> |  Sink  |
+   *|________|       |_____________|       |________|       |_____________|       |________|
+   *
+   * (boxed source, to int transformer, int filter, int to double transformer, double sink)
+   */
+  @Test
+  public void boxedSourceToPrimitiveTransformersThenSink() {
+    final BasicDoubleEventSink sink = new BasicDoubleEventSink();
+
+    Epn
+      .named("BoxedToPrimitive")
+      .fromSource(new TestEventSource(5))
+      .transformToInt(i -> i * 2)
+      .filterInt(i -> i > 2)
+      .mapToDouble(i -> i / 4.0)
+      .consumedBy(sink)
+      .start();
+
+    assertArrayEquals(new double[] { 1.0, 1.5, 2.0 }, sink.getData(), 0.0);
+  }
+
+  /**
+   *<pre>
+   * ________         ________         _____________         ________
+   *|        |       |        |       |             |       |        | 
+   *| Source | ====> | Filter | ====> | Transformer | ====> |  Sink  |
+   *|________|       |________|       |_____________|       |________|
+   *
+   * (====> hand-off to a worker pool)
+   */
+  @Test
+  public void sourceToFilterThenTransformerThenSinkOnExecutor() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    final TestEventSource source = new TestEventSource(10000);
+    final BasicEventSink<String> sink = new BasicEventSink<String>();
+
+    try {
+      final EventNetwork n =
+          Epn
+            .named("FilterAndTransformerOnExecutor")
+            .withExecutor(executor, 16)
+            .fromSource(source)
+            .filter(i -> (i % 1000 == 0))
+            .transform(i -> i.toString())
+            .consumedBy(sink)
+            .start();
+
+      assertTrue(n.awaitIdle(10, TimeUnit.SECONDS));
+      assertArrayEquals(new String[] { "0", "1000", "2000", "3000", "4000", "5000", "6000", "7000", "8000", "9000" },
+          sink.getData().toArray());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   *<pre>
+   *                                  ________         ________
+   *                  _______        |        |       |        |
+   * ________        |       | ====> | Filter | ====> |  Sink  |
+   *|        |       |       |       |________|       |________|
+   *| Source | ====> | Split |        ________         ________
+   *|________|       |       |       |        |       |        |
+   *                 |_______| ====> | Filter | ====> |  Sink  |
+   *                                 |________|       |________|
+   *
+   * (====> hand-off to a worker pool)
+   */
+  @Test
+  public void sourceToFanOutThenFiltersThenSinksOnExecutor() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final TestEventSource source = new TestEventSource();
+    final TestEventSink sink1 = new TestEventSink();
+    final TestEventSink sink2 = new TestEventSink();
+
+    try {
+      final EventNetwork n =
+        Epn
+          .named("FanOutAndFiltersOnExecutor")
+          .withExecutor(executor, 4)
+          .fromSource(source)
+          .split(i -> (i % 2 == 0))
+          .top()
+            .filter(i -> i < 10)
+            .consumedBy(sink1)
+          .bottom()
+            .filter(i -> i >= 10 && i < 20)
+            .consumedBy(sink2)
+          .start();
+
+      assertTrue(n.awaitIdle(10, TimeUnit.SECONDS));
+      assertArrayEquals(new Integer[] { 0, 2, 4, 6, 8 }, sink1.getData().toArray());
+      assertArrayEquals(new Integer[] { 11, 13, 15, 17, 19 }, sink2.getData().toArray());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   *<pre>
+   *                                      ________         ________
+   *                  ___________        |        |       |        |
+   * ________        |           | ====> | Filter | ----> |  Sink  |
+   *|        |       |           |       |________|       |________|
+   *| Source | ----> | Multicast |        ________         ________
+   *|________|       |           |       |        |       |        |
+   *                 |___________| ====> | Filter | ----> |  Sink  |
+   *                                     |________|       |________|
+   *
+   * (====> branch on a thread of its own, reading a shared ring)
+   */
+  @Test
+  public void sourceToMulticastThenFiltersThenSinks() throws Exception {
+    final TestEventSource source = new TestEventSource(5000);
+    final TestEventSink sink1 = new TestEventSink();
+    final TestEventSink sink2 = new TestEventSink();
+
+    final EventNetwork n =
+      Epn
+        .named("MulticastAndFilters")
+        .fromSource(source)
+        .multicast()
+        .top()
+          .filter(i -> i < 10)
+          .consumedBy(sink1)
+        .bottom()
+          .filter(i -> i >= 4990)
+          .consumedBy(sink2)
+        .start();
+
+    try {
+      assertTrue(n.awaitIdle(10, TimeUnit.SECONDS));
+      assertArrayEquals(new Integer[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }, sink1.getData().toArray());
+      assertArrayEquals(new Integer[] { 4990, 4991, 4992, 4993, 4994, 4995, 4996, 4997, 4998, 4999 },
+          sink2.getData().toArray());
+    } finally {
+      n.stop();
+    }
+  }
+  /**
+   *<pre>
+   *                                   _____________
+   *                                  |             |
+   *                            ====> | Transformer | ---->
+   * ________         ________ |      |_____________|       |       ________         ________
+   *|        |       |        ||       _____________        |      |        |       |        |
+   *| Source | ----> | Key by | ====> | Transformer | ----> |----> | Merge  | ----> |  Sink  |
+   *|________|       |________||      |_____________|       |      |________|       |________|
+   *                           |       _____________        |
+   *                           |      |             |       |
+   *                            ====> | Transformer | ---->
+   *                                  |_____________|
+   *
+   * (====> hand-off to a thread per partition)
+   */
+  @Test
+  public void sourceToKeyedParallelTransformersThenMergeThenSink() throws Exception {
+    final TestEventSource source = new TestEventSource(10000);
+    final BasicEventSink<Integer> sink = new BasicEventSink<Integer>();
+    final Map<Integer, Thread> threads = new ConcurrentHashMap<>();
+
+    final EventNetwork n =
+        Epn
+          .named("KeyedParallel")
+          .withDemandBatchSize(16)
+          .fromSource(source)
+          .keyBy(i -> i % 10)
+          .parallel(3)
+          .transform(i -> {
+            final Thread previous = threads.putIfAbsent(i % 10, Thread.currentThread());
+            assertTrue(previous == null || previous == Thread.currentThread());
+            return i;
+          })
+          .merge()
+          .consumedBy(sink)
+          .start();
+
+    try {
+      assertTrue(n.awaitIdle(10, TimeUnit.SECONDS));
+      assertEquals(10000, sink.getData().size());
+      final int[] last = new int[10];
+      Arrays.fill(last, -1);
+      for (final int i : sink.getData()) {
+        assertTrue(last[i % 10] < i);
+        last[i % 10] = i;
+      }
+      assertEquals(10, threads.size());
+      assertEquals(3, threads.values().stream().distinct().count());
+      threads.values().forEach(t -> assertNotEquals(Thread.currentThread(), t));
+    } finally {
+      n.stop();
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void completedPartitionsEndTheirThreadsAndNullKeysArePartitioned() throws Exception {
+    final WatermarkRecordingSink sink = new WatermarkRecordingSink();
+
+    final EventNetwork n =
+        Epn
+          .named("CompletedPartitions")
+          .fromSource(new CompletingEventSource(1, 2, 3, 4, 5, 6))
+          .keyBy(i -> (i % 2 == 0) ? null : i)
+          .parallel(2)
+          .transform(i -> i)
+          .merge()
+          .consumedBy(sink)
+          .start();
+
+    assertTrue(n.awaitIdle(10, TimeUnit.SECONDS));
+    while (!sink.complete || Thread.getAllStackTraces().keySet().stream()
+        .anyMatch(t -> t.getName().startsWith("epn-CompletedPartitions-partition-"))) {
+      Thread.sleep(1);
+    }
+    assertEquals(6, sink.getData().size());
+  }
+
+  @Test
+  public void sourceToKeyedParallelSinks() throws Exception {
+    final TestEventSource source = new TestEventSource(1000);
+    final List<BasicEventSink<Integer>> sinks = new ArrayList<>();
+
+    final EventNetwork n =
+        Epn
+          .named("KeyedParallelSinks")
+          .fromSource(source)
+          .keyBy(i -> i % 4)
+          .parallel(2)
+          .filter(i -> i % 2 == 0)
+          .consumedBy(() -> {
+            final BasicEventSink<Integer> sink = new BasicEventSink<>();
+            sinks.add(sink);
+            return sink;
+          })
+          .start();
+
+    try {
+      assertTrue(n.awaitIdle(10, TimeUnit.SECONDS));
+      assertEquals(2, sinks.size());
+      assertEquals(500, sinks.stream().mapToInt(s -> s.getData().size()).sum());
+      for (int key = 0; key < 4; key += 2) {
+        final int k = key;
+        assertEquals(1, sinks.stream().filter(sink -> sink.getData().contains(k)).count());
+      }
+    } finally {
+      n.stop();
+    }
+  }
+
+  /**
+   *<pre>
+   * ________         ________         ________
+   *|        |       |        |       |        | 
+   *| Source | ----> | Window | ----> |  Sink  |
+   *|________|       |________|       |________|
+   *
+   */
+  @Test
+  public void sourceToSlidingCountWindowThenSink() {
+    final BasicEventSink<Integer> sink = new BasicEventSink<Integer>();
+
+    Epn
+      .named("Window")
+      .fromSource(new TestEventSource(10))
+      .window(Window.sliding(4, 2))
+      .aggregate(Aggregator.of(() -> 0, (sum, i) -> sum + i, Integer::sum, sum -> sum))
+      .consumedBy(sink)
+      .start();
+
+    assertArrayEquals(new Integer[] { 0 + 1 + 2 + 3, 2 + 3 + 4 + 5, 4 + 5 + 6 + 7, 6 + 7 + 8 + 9 },
+        sink.getData().toArray());
+  }
+
+  /**
+   *<pre>
+   * ________         ____________         ________         ________
+   *|        |       |            |       |        |       |        |
+   *| Source | ----> | Timestamps | ----> | Window | ----> |  Sink  |
+   *|________|       |____________|       |________|       |________|
+   *
+   */
+  @Test
+  public void completionClosesLastTimeWindow() {
+    final WatermarkRecordingSink sink = new WatermarkRecordingSink();
+
+    Epn
+      .named("Completion")
+      .fromSource(new CompletingEventSource(1, 2, 3))
+      .assignTimestamps(i -> i, Duration.ZERO, Duration.ZERO)
+      .window(Window.tumbling(Duration.ofMillis(10)).withClock(() -> 0))
+      .aggregate(Aggregator.of(() -> 0, (sum, i) -> sum + i, Integer::sum, sum -> sum))
+      .consumedBy(sink)
+      .start();
+
+    assertArrayEquals(new Integer[] { 1 + 2 + 3 }, sink.getData().toArray());
+    assertEquals(Long.MAX_VALUE, (long) sink.watermarks.get(sink.watermarks.size() - 1));
+    assertTrue(sink.complete);
+  }
+
+  /**
+   *<pre>
+   * ________         _____________
+   *|        |       |             |        ________         ________
+   *| Source | ----> | Transformer |       |        |       |        |
+   *|________|       |_____________| ----> |        |       |        |
+   *                                       |  Join  | ----> |  Sink  |
+   * ________         _____________  ----> |        |       |        |
+   *|        |       |             |       |________|       |________|
+   *| Source | ----> | Transformer |
+   *|________|       |_____________|
+   *
+   */
+  @Test
+  public void metadataIsKeptByTransformersAndJoin() {
+    final EventCollectingSink<String> sink = new EventCollectingSink<>();
+    final TypedNode<String> node1 = Epn.create().fromSource(new StampedEventSource("top", 3, 0))
+        .transform(e -> e.toString());
+    final TypedNode<String> node2 = Epn.create().fromSource(new StampedEventSource("bottom", 3, 10))
+        .filter(e -> true)
+        .transform(e -> e.toString());
+
+    Epn
+      .named("Metadata")
+      .join(node1, node2, (e1, e2) -> e1 + e2)
+      .consumedBy(sink)
+      .start();
+
+    assertEquals(3, sink.events.size());
+    for (int i = 0; i < 3; i++) {
+      final Event<String> e = sink.events.get(i);
+      assertEquals("" + i + i, e.get());
+      assertEquals(1010 + i, e.getTimestamp());
+      assertEquals(i, e.getSequence());
+      assertEquals("bottom", e.getHeader("origin"));
+    }
+  }
+
+  /**
+   *<pre>
+   * ________         ____________         ________         _________         ________
+   *|        |       |            |       |        |       |         |       |        |
+   *| Source | ----> | Timestamps | ----> | Filter | ----> | Reorder | ----> |  Sink  |
+   *|________|       |____________|       |________|       |_________|       |________|
+   *                                                            |             ________
+   *                                                            |            |        |
+   *                                                             ----------> |  Late  |
+   *                                                                         |________|
+   */
+  @Test
+  public void outOfOrderSourceToReorderThenSinkAndLateSink() {
+    final BasicEventSink<Integer> sink = new BasicEventSink<Integer>();
+    final BasicEventSink<Integer> late = new BasicEventSink<Integer>();
+    final ValuesEventSource source = new ValuesEventSource(2, 1, 4, 3, 6, 5, 9, 2, 8, 7, 20);
+
+    Epn
+      .named("Reorder")
+      .fromSource(source)
+      .assignTimestamps(i -> i, Duration.ofMillis(2), Duration.ZERO)
+      .filter(i -> i < 100)
+      .reorder(late)
+      .consumedBy(sink)
+      .start();
+
+    assertArrayEquals(new Integer[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 }, sink.getData().toArray());
+    assertArrayEquals(new Integer[] { 2 }, late.getData().toArray());
+  }
+
+  /**
+   *<pre>
+   * ________         ____________
+   *|        |       |            |        ________         ________
+   *| Source | ----> | Timestamps | ====> |        |       |        |
+   *|________|       |____________|       |        |       |        |
+   *                                      |  Join  | ----> |  Sink  |
+   * ________         ____________  ====> |        |       |        |
+   *|        |       |            |       |________|       |________|
+   *| Source | ----> | Timestamps |
+   *|________|       |____________|
+   *
+   * (====> hand-off to a worker pool)
+   */
+  @Test
+  public void joinForwardsMinimumWatermarkOfInputs() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final WatermarkRecordingSink sink = new WatermarkRecordingSink();
+    final TypedNode<Integer> top = Epn.create().fromSource(new ValuesEventSource(10, 20, 30))
+        .assignTimestamps(i -> i, Duration.ZERO, Duration.ZERO);
+    final TypedNode<Integer> bottom = Epn.create().fromSource(new ValuesEventSource(15, 16, 17))
+        .assignTimestamps(i -> i, Duration.ZERO, Duration.ZERO);
+
+    try {
+      final EventNetwork n =
+          Epn
+            .named("JoinWatermarks")
+            .withExecutor(executor)
+            .join(top, bottom, Integer::sum)
+            .consumedBy(sink)
+            .start();
+
+      assertTrue(n.awaitIdle(10, TimeUnit.SECONDS));
+      assertEquals(3, sink.getData().size());
+      assertEquals(16L, (long) sink.watermarks.get(sink.watermarks.size() - 1));
+      for (int i = 1; i < sink.watermarks.size(); i++) {
+        assertTrue(sink.watermarks.get(i - 1) < sink.watermarks.get(i));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+  @Test
+  public void joinCompletesOnceBothInputsHave() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final WatermarkRecordingSink sink = new WatermarkRecordingSink();
+    final TypedNode<Integer> top = Epn.create().fromSource(new CompletingEventSource(10, 20, 30))
+        .assignTimestamps(i -> i, Duration.ZERO, Duration.ZERO);
+    final TypedNode<Integer> bottom = Epn.create().fromSource(new CompletingEventSource(15, 16))
+        .assignTimestamps(i -> i, Duration.ZERO, Duration.ZERO);
+
+    try {
+      final EventNetwork n =
+          Epn
+            .named("JoinCompletion")
+            .withExecutor(executor)
+            .join(top, bottom, Integer::sum)
+            .consumedBy(sink)
+            .start();
+
+      assertTrue(n.awaitIdle(10, TimeUnit.SECONDS));
+      assertArrayEquals(new Integer[] { 25, 36 }, sink.getData().toArray());
+      assertEquals(Long.MAX_VALUE, (long) sink.watermarks.get(sink.watermarks.size() - 1));
+      assertTrue(sink.complete);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /**
+   *<pre>
+   * ________         ____________
+   *|        |       |            |        ____________         ________
+   *| Source | ----> | Timestamps | ----> |            |       |        |
+   *|________|       |____________|       |            |       |        |
+   *                                      | Keyed join | ----> |  Sink  |
+   * ________         ____________  ----> |            |       |        |
+   *|        |       |            |       |____________|       |________|
+   *| Source | ----> | Timestamps |
+   *|________|       |____________|
+   *
+   */
+  @Test
+  public void sourcesToKeyedJoinWithinWindowThenSink() {
+    final BasicEventSink<Integer> sink = new BasicEventSink<Integer>();
+    final TypedNode<Integer> top = Epn.create().fromSource(new ValuesEventSource(10, 21, 32, 43))
+        .assignTimestamps(i -> i, Duration.ZERO);
+    final TypedNode<Integer> bottom = Epn.create().fromSource(new ValuesEventSource(11, 25, 40, 47))
+        .assignTimestamps(i -> i, Duration.ZERO);
+
+    Epn
+      .named("KeyedJoin")
+      .join(top, bottom, (t, b) -> t * 100 + b)
+      .on(t -> t / 10, b -> b / 10)
+      .within(Duration.ofMillis(3))
+      .consumedBy(sink)
+      .start();
+
+    // 21/25 and 43/47 have equal keys but are more than 3 ms apart
+    assertArrayEquals(new Integer[] { 1011, 4340 }, sink.getData().toArray());
+  }
+
+  /**
+   *<pre>
+   *            part 0                 |               part 1
+   * ________         ________         |         _____________         ________
+   *|        |       |        |       TCP       |             |       |        |
+   *| Source | ----> | Filter | -------|------> | Transformer | ----> |  Sink  |
+   *|________|       |________|        |        |_____________|       |________|
+   *
+   */
+  @Test
+  public void remoteEdgeSplitsNetworkIntoParts() throws Exception {
+    final InetSocketAddress address;
+    try (ServerSocket s = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      address = new InetSocketAddress(InetAddress.getLoopbackAddress(), s.getLocalPort());
+    }
+    final Integer[] expected = IntStream.range(0, 50).map(i -> i * 20).boxed().toArray(Integer[]::new);
+
+    final BasicEventSink<Integer> local = new BasicEventSink<>();
+    remoteEdge(Epn.named("RemoteEdgeLocal"), local, address).start();
+    assertArrayEquals(expected, local.getData().toArray());
+
+    final LatchedEventSink remote = new LatchedEventSink(expected.length);
+    final EventNetwork part1 = remoteEdge(Epn.named("RemoteEdgePart1").withPart(1), remote, address).start();
+    final EventNetwork part0 = remoteEdge(Epn.named("RemoteEdgePart0").withPart(0), new BasicEventSink<>(), address)
+        .start();
+
+    assertTrue(remote.done.await(10, TimeUnit.SECONDS));
+    assertArrayEquals(expected, remote.getData().toArray());
+    part0.stop();
+    part1.stop();
+  }
+
+  /**
+   * The same definition for every part.
+   */
+  private static TerminalEpnNode<Integer> remoteEdge(final EventNetwork n, final EventSink<Integer> sink,
+      final InetSocketAddress address) {
+    return n
+        .fromSource(new BlockingEventSource(100))
+        .filter(i -> i % 2 == 0)
+        .remote(address, EventCodec.ints())
+        .transform(i -> i * 10)
+        .consumedBy(sink);
+  }
+
+  /**
+   *<pre>
+   * ________         ________         _____________         ________
+   *|        |       |        |       |             |       |        |
+   *| Source | ----> | Filter | ----> | Transformer | ----> |  Sink  |
+   *|________|       |________|       |_____________|       |________|
+   *
+   */
+  @Test
+  public void metricsCountEventsPerNode() {
+    final TestEventSource source = new TestEventSource();
+    final BasicEventSink<Integer> sink = new BasicEventSink<>();
+
+    final EventNetwork n =
+        Epn
+          .named("Metrics")
+          .withMetrics(true)
+          .withOperatorFusion(false)
+          .fromSource(source)
+          .filter(i -> i % 2 == 0)
+          .transform(i -> i * 10)
+          .consumedBy(sink)
+          .start();
+
+    final List<NodeMetrics> metrics = new ArrayList<>(n.metrics().values());
+    assertEquals(4, metrics.size());
+    final NodeMetrics src = metrics.get(0);
+    final NodeMetrics filter = metrics.get(1);
+    final NodeMetrics transformer = metrics.get(2);
+    final NodeMetrics snk = metrics.get(3);
+    assertEquals(100, src.getOut());
+    assertEquals(100, filter.getIn());
+    assertEquals(50, filter.getOut());
+    assertEquals(50, filter.getFiltered());
+    assertEquals(100 / Meter.SAMPLE_INTERVAL + 1, filter.getLatency().getCount());
+    assertEquals(50, transformer.getIn());
+    assertEquals(50, transformer.getOut());
+    assertEquals(50, snk.getIn());
+    assertEquals(50 / Meter.SAMPLE_INTERVAL + 1, snk.getLatency().getCount());
+    assertEquals(0, Epn.named("NoMetrics").metrics().size());
+  }
+
+  @Test
+  public void visualizerServesMetricsOfRunningNetwork() throws Exception {
+    final EventNetwork n =
+        Epn
+          .named("ServedMetrics")
+          .withMetrics(true)
+          .fromSource(new TestEventSource())
+          .filter(i -> i < 10)
+          .consumedBy(new TestEventSink())
+          .start();
+
+    try (HtmlEventNetworkVisualizer.Server server = new HtmlEventNetworkVisualizer().serve(n, 0, 1000)) {
+      final String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+      assertTrue(get(url + "/").contains("var refresh = 1000;"));
+
+      final String counts = get(url + "/epn.json");
+      assertTrue(counts, counts.contains("BasicEventFilter\\nin 100 out 10"));
+      assertTrue(counts, counts.contains("label: '10'"));
+      final String rates = get(url + "/epn.json");
+      assertTrue(rates, rates.contains("BasicEventFilter\\nin 0/s out 0/s"));
+    }
+  }
+
+  private static String get(final String url) throws IOException {
+    try (InputStream in = new URL(url).openStream()) {
+      return IOUtils.toString(in, StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   *<pre>
+   * ________         _________         _____________         ________
+   *|        |       |         |       |             |       |        |
+   *| Source | ----> | Pattern | ----> | Transformer | ----> |  Sink  |
+   *|________|       |_________|       |_____________|       |________|
+   *
+   */
+  @Test
+  public void sourceToPatternThenSink() {
+    final TestEventSource source = new TestEventSource();
+    final BasicEventSink<String> sink = new BasicEventSink<>();
+
+    final EventNetwork n =
+        Epn
+          .named("Pattern")
+          .fromSource(source)
+          .pattern(Pattern
+              .<Integer> begin("a", i -> i % 30 == 0)
+              .followedBy("b", (m, i) -> i == m.get("a") + 5)
+              .next("c", i -> i % 2 == 0))
+          .transform(m -> m.get("a") + "-" + m.get("c"))
+          .consumedBy(sink)
+          .start();
+
+    new HtmlEventNetworkVisualizer().visualize(n);
+
+    assertArrayEquals(new String[] { "0-6", "30-36", "60-66", "90-96" }, sink.getData().toArray());
+  }
+
+  /**
+   *<pre>
+   * ________         ________         ________
+   *|        |       |        | ----> |  Sink  |
+   *| Source | ----> |  Even  |       |________|
+   *|________|       |________|        ________         ________
+   *                            |     |        |       |        |
+   *                            ----> | Split  | ----> |  Sink  |
+   *                                  |________|  top  |________|
+   *
+   * as built, each branch had a root and an even filter of its own
+   */
+  @Test
+  public void optimizerSharesChainsOfSameSourceAndRemovesUnusedOutlets() {
+    final TestEventSource source = new TestEventSource(20);
+    final TestEventSink sink1 = new TestEventSink();
+    final TestEventSink sink2 = new TestEventSink();
+    final AtomicInteger tested = new AtomicInteger();
+    final Predicate<Integer> even = i -> tested.incrementAndGet() > 0 && i % 2 == 0;
+
+    final EventNetwork n = Epn.named("SharedChains").withMetrics(true);
+    n.fromSource(source).filter(even).sideEffectFree().consumedBy(sink1);
+    n.fromSource(source).filter(even).sideEffectFree()
+      .split(i -> i < 10)
+      .top()
+        .consumedBy(sink2)
+      .bottom()
+        .done()
+      .start();
+
+    new HtmlEventNetworkVisualizer(false).visualize(n);
+    new HtmlEventNetworkVisualizer().visualize(n);
+
+    assertArrayEquals(new Integer[] { 0, 2, 4, 6, 8, 10, 12, 14, 16, 18 }, sink1.getData().toArray());
+    assertArrayEquals(new Integer[] { 0, 2, 4, 6, 8 }, sink2.getData().toArray());
+    assertEquals(20, tested.get());
+    // source, even, the filter left of the split and both sinks
+    assertEquals(5, n.metrics().size());
+  }
+
+  /**
+   *<pre>
+   *            part 0                                                          |    part 1
+   * ________         _____________         _____________         ________      |     ________
+   *|        |       |             |       |             |       |        |    TCP   |        |
+   *| Source | ----> | Transformer | ----> | Transformer | ----> | Filter | ---|---> |  Sink  |
+   *|________|       |   (i * 3)   |       |   (i + 1)   |       |________|     |    |________|
+   *                 |_____________|       |_____________|                      |
+   *
+   * as built, the second transformer and the filter ran behind the remote edge
+   */
+  @Test
+  public void optimizerPushesFiltersAheadOfRemoteEdges() throws Exception {
+    final InetSocketAddress address;
+    try (ServerSocket s = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      address = new InetSocketAddress(InetAddress.getLoopbackAddress(), s.getLocalPort());
+    }
+    final Integer[] expected = IntStream.range(0, 100).filter(i -> i % 2 == 1).map(i -> i * 3 + 1).boxed()
+        .toArray(Integer[]::new);
+
+    final BasicEventSink<Integer> local = new BasicEventSink<>();
+    final EventNetwork n = pushedFilter(Epn.named("PushedFilterLocal"), local, address).start();
+    new HtmlEventNetworkVisualizer(false).visualize(n);
+    assertArrayEquals(expected, local.getData().toArray());
+
+    final LatchedEventSink remote = new LatchedEventSink(expected.length);
+    final EventNetwork part1 = pushedFilter(Epn.named("PushedFilterPart1").withPart(1).withMetrics(true), remote,
+        address).start();
+    final EventNetwork part0 = pushedFilter(Epn.named("PushedFilterPart0").withPart(0), new BasicEventSink<>(),
+        address).start();
+
+    assertTrue(remote.done.await(10, TimeUnit.SECONDS));
+    assertArrayEquals(expected, remote.getData().toArray());
+    final NodeMetrics received = part1.metrics().values().iterator().next();
+    assertTrue(received.getName().startsWith("Remote"));
+    assertEquals(expected.length, received.getOut());
+    part0.stop();
+    part1.stop();
+  }
+
+  private static TerminalEpnNode<Integer> pushedFilter(final EventNetwork n, final EventSink<Integer> sink,
+      final InetSocketAddress address) {
+    return n
+        .fromSource(new BlockingEventSource(100))
+        .transform(i -> i * 3).sideEffectFree()
+        .remote(address, EventCodec.ints())
+        .transform(i -> i + 1).sideEffectFree()
+        .filter(i -> i % 2 == 0).sideEffectFree()
+        .consumedBy(sink);
+  }
+
+  /**
+   *<pre>
+   *                   ________         ________
+   *                  |        |       |        |
+   *              --> | Filter | ----> |  Sink  |   a, removed while running
+   * ________    |    |________|       |________|
+   *|        |   |     _____________         ________
+   *| Source | --|--> |             |       |        |
+   *|________|   |    | Transformer | ----> |  Sink  |   b
+   *             |    |_____________|       |________|
+   *             |     ________
+   *             |    |        |
+   *              --> |  Sink  |   c, added while running
+   *                  |________|
+   *
+   */
+  @Test
+  public void runtimeStartsSharedSourceOnceForAllNetworks() {
+    final ManualEventSource source = new ManualEventSource();
+    final TestEventSink a = new TestEventSink();
+    final TestEventSink b = new TestEventSink();
+    final TestEventSink c = new TestEventSink();
+    final EventNetworkRuntime runtime = new EventNetworkRuntime();
+
+    final EventNetwork na = Epn.named("A").withRuntime(runtime).fromSource(source).filter(i -> i % 2 == 0)
+        .consumedBy(a).start();
+    Epn.named("B").withRuntime(runtime).withMetrics(true).fromSource(source).transform(i -> i * 10)
+        .consumedBy(b).start();
+    assertEquals(0, source.starts);
+    runtime.start();
+    runtime.start();
+    assertEquals(1, source.starts);
+
+    IntStream.range(0, 4).forEach(source::emit);
+    Epn.named("C").withRuntime(runtime).fromSource(source).consumedBy(c).start();
+    source.emit(4);
+    runtime.remove(na);
+    source.emit(5);
+
+    assertArrayEquals(new Integer[] { 0, 2, 4 }, a.getData().toArray());
+    assertArrayEquals(new Integer[] { 0, 10, 20, 30, 40, 50 }, b.getData().toArray());
+    assertArrayEquals(new Integer[] { 4, 5 }, c.getData().toArray());
+    assertEquals(1, source.starts);
+    assertEquals(2, source.getSubscriptions().length);
+    assertEquals(2, runtime.getNetworks().size());
+    runtime.stop();
+    assertEquals(0, source.getSubscriptions().length);
+  }
+
+  @Test
+  public void runtimeRejectsSourcesItCannotUnsubscribeFrom() {
+    final EventNetworkRuntime runtime = new EventNetworkRuntime();
+    final EventSource<Integer> source = s -> {
+    };
+    try {
+      Epn.named("A").withRuntime(runtime).fromSource(source).consumedBy(new TestEventSink()).start();
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertTrue(runtime.getNetworks().isEmpty());
+    }
+  }
+
+  private static class ManualEventSource extends BasicEventSource<Integer> {
+
+    private int starts;
+
+    @Override
+    public void start() {
+      starts++;
+    }
+
+    void emit(final int i) {
+      notifySubscribers(new BasicEvent<Integer>(i));
+    }
+  }
+
+  private static class BlockingEventSource extends BasicEventSource<Integer> {
+
+    private final int limit;
+
+    BlockingEventSource(final int limit) {
+      super(16, OverflowStrategy.BLOCK);
+      this.limit = limit;
+    }
+
+    @Override
+    public void start() {
+      for (int i = 0; i < limit; i++) {
+        notifySubscribers(new BasicEvent<Integer>(i));
+      }
+    }
+  }
+
+  private static class LatchedEventSink extends BasicEventSink<Integer> {
+
+    private final CountDownLatch done;
+
+    LatchedEventSink(final int expected) {
+      this.done = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void onNext(final Event<Integer> e) {
+      super.onNext(e);
+      done.countDown();
+    }
+  }
+
+  private static class ValuesEventSource extends BasicEventSource<Integer> {
+
+    private final int[] values;
+
+    ValuesEventSource(final int... values) {
+      this.values = values;
+    }
+
+    @Override
+    public void start() {
+      for (final int v : values) {
+        notifySubscribers(new BasicEvent<Integer>(v));
+      }
+    }
+  }
+
+  private static class CompletingEventSource extends ValuesEventSource {
+
+    CompletingEventSource(final int... values) {
+      super(values);
+    }
+
+    @Override
+    public void start() {
+      super.start();
+      notifyComplete();
+    }
+  }
+
+  private static class WatermarkRecordingSink extends BasicEventSink<Integer> {
+
+    private final List<Long> watermarks = new ArrayList<>();
+    private volatile boolean complete;
+
+    @Override
+    public void onWatermark(final long watermark) {
+      watermarks.add(watermark);
+    }
+
+    @Override
+    public void onComplete() {
+      complete = true;
+    }
+  }
+
+  private static class StampedEventSource extends BasicEventSource<Integer> {
+
+    private final String origin;
+    private final int limit;
+    private final long offset;
+
+    StampedEventSource(final String origin, final int limit, final long offset) {
+      this.origin = origin;
+      this.limit = limit;
+      this.offset = offset;
+    }
+
+    @Override
+    public void start() {
+      for (int i = 0; i < limit; i++) {
+        notifySubscribers(new BasicEvent<Integer>(i, 1000 + offset + i, i).withHeader("origin", origin));
+      }
+    }
+  }
+
+  private static class EventCollectingSink<T> implements EventSink<T> {
+
+    private final List<Event<T>> events = new ArrayList<>();
+
+    @Override
+    public void onSubscribe(final Subscription s) {
+      s.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(final Event<T> e) {
+      events.add(e);
+    }
+  }
+
+  /**
+   * Counts values that arrive boxed instead of through onNextLong.
+   */
+  private static class UnboxedLongEventSink extends BasicLongEventSink {
+
+    private int boxed;
+
+    @Override
+    public void onNext(final Event<Long> e) {
+      boxed++;
+      super.onNext(e);
+    }
+  }
+
 }
@@ -0,0 +1,101 @@
+package org.epn.core.cep;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.epn.api.Event;
+import org.epn.core.BasicDemand;
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSink;
+import org.epn.core.BasicEventSource;
+import org.junit.Test;
+
+public class BasicPatternEventProcessorTest {
+
+  @Test
+  public void matchesRiseWithinWindowPerKey() {
+    // prices as key * 1000 + price
+    final Pattern<Integer> rise = Pattern
+        .<Integer> begin("a", p -> true)
+        .followedBy("b", (m, p) -> p % 1000 > m.get("a") % 1000)
+        .within(Duration.ofMillis(5))
+        .keyedBy(p -> p / 1000);
+
+    final List<String> matches = run(rise, 1010, 0, 2005, 1, 1008, 2, 2007, 3, 1012, 4, 1003, 5, 1004, 9, 1099, 20);
+
+    assertEquals("[Match [2005, 2007], Match [1010, 1012], Match [1008, 1012], Match [1003, 1004]]",
+        matches.toString());
+  }
+
+  @Test
+  public void contiguityDecidesWhichEventsMayLieBetweenStages() {
+    final int[] events = { 1, 0, 2, 2, 1, 2 };
+
+    assertEquals("[Match [1, 2]]", run(Pattern.<Integer> begin("a", i -> i == 1).next("b", i -> i == 2),
+        0, events).toString());
+    assertEquals("[Match [1, 2], Match [1, 2]]", run(Pattern.<Integer> begin("a", i -> i == 1)
+        .followedBy("b", i -> i == 2), 0, events).toString());
+    assertEquals("[Match [1, 2], Match [1, 2], Match [1, 2], Match [1, 2]]", run(Pattern
+        .<Integer> begin("a", i -> i == 1).followedByAny("b", i -> i == 2), 0, events).toString());
+  }
+
+  @Test
+  public void partialMatchesStayBoundedByWindowAndLimit() {
+    final Pattern<Integer> never = Pattern
+        .<Integer> begin("a", i -> true)
+        .followedByAny("b", i -> true)
+        .followedBy("c", i -> false)
+        .within(Duration.ofMillis(10));
+    final BasicPatternEventProcessor<Integer> processor = processor(never);
+    for (int i = 0; i < 100000; i++) {
+      processor.onNext(new BasicEvent<>(i % 7, i, Event.NO_SEQUENCE));
+    }
+    // a starts at each of the last 11 timestamps, b branches off for each later event
+    assertTrue(processor.getPartialMatches() <= 11 + 11 * 10 / 2);
+
+    final BasicPatternEventProcessor<Integer> limited = processor(Pattern
+        .<Integer> begin("a", i -> true)
+        .followedBy("b", i -> false)
+        .withMaxPartialMatches(100));
+    for (int i = 0; i < 100000; i++) {
+      limited.onNext(new BasicEvent<>(i, i, Event.NO_SEQUENCE));
+    }
+    assertEquals(100, limited.getPartialMatches());
+
+    limited.onWatermark(Long.MAX_VALUE);
+    assertEquals(100, limited.getPartialMatches());
+    processor.onWatermark(Long.MAX_VALUE);
+    assertEquals(0, processor.getPartialMatches());
+  }
+
+  private static List<String> run(final Pattern<Integer> pattern, final int... valuesAndTimestamps) {
+    final BasicPatternEventProcessor<Integer> processor = processor(pattern);
+    final BasicEventSink<Match<Integer>> sink = new BasicEventSink<>();
+    processor.subscribe(sink);
+    for (int i = 0; i < valuesAndTimestamps.length; i += 2) {
+      processor.onNext(new BasicEvent<>(valuesAndTimestamps[i], valuesAndTimestamps[i + 1], Event.NO_SEQUENCE));
+    }
+    return sink.getData().stream().map(Match::toString).collect(Collectors.toList());
+  }
+
+  private static List<String> run(final Pattern<Integer> pattern, final long timestamp, final int... values) {
+    final int[] valuesAndTimestamps = new int[2 * values.length];
+    for (int i = 0; i < values.length; i++) {
+      valuesAndTimestamps[2 * i] = values[i];
+      valuesAndTimestamps[2 * i + 1] = (int) timestamp + i;
+    }
+    return run(pattern, valuesAndTimestamps);
+  }
+
+  private static BasicPatternEventProcessor<Integer> processor(final Pattern<Integer> pattern) {
+    final BasicPatternEventProcessor<Integer> processor = new BasicPatternEventProcessor<>(pattern, () -> 0,
+        BasicDemand.DEFAULT_BATCH_SIZE);
+    new BasicEventSource<Integer>().subscribe(processor);
+    return processor;
+  }
+
+}
@@ -0,0 +1,110 @@
+package org.epn.core.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class RecordCodecTest {
+
+  private static final RecordCodec<Trade> CODEC = RecordCodec
+      .of(r -> new Trade(r.getString(0), r.getDouble(1), r.getLong(2)))
+      .withString(t -> t.symbol)
+      .withDouble(t -> t.price)
+      .withLong(t -> t.quantity);
+
+  @Test
+  public void roundTripsHeapAndDirectBuffers() {
+    for (final ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(256), ByteBuffer.allocateDirect(256) }) {
+      final Trade[] trades = { new Trade("ACME", 12.5, 100), new Trade("Zürich €😀", -1, Long.MAX_VALUE),
+          new Trade("", 0, 0) };
+      for (final Trade t : trades) {
+        CODEC.encode(t, buffer);
+      }
+      buffer.flip();
+      for (final Trade t : trades) {
+        assertEquals(t, CODEC.decode(buffer));
+      }
+      assertFalse(buffer.hasRemaining());
+    }
+  }
+
+  @Test
+  public void viewReadsSingleFields() {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+    buffer.position(7);
+    CODEC.encode(new Trade("Zürich", 99.5, 3), buffer);
+
+    final RecordView view = CODEC.view().wrap(buffer, 7);
+    assertEquals(99.5, view.getDouble(1), 0);
+    assertEquals(3, view.getLong(2));
+    assertTrue(view.stringEquals(0, "Zürich"));
+    assertFalse(view.stringEquals(0, "Zurich"));
+    assertFalse(view.stringEquals(0, "Züric"));
+    assertEquals(buffer.position() - 7, view.length());
+  }
+
+  @Test(expected = BufferOverflowException.class)
+  public void overflowsSmallBuffer() {
+    CODEC.encode(new Trade("ACME", 1, 1), ByteBuffer.allocate(16));
+  }
+
+  @Test
+  public void stringsRoundTrip() {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+    EventCodec.strings().encode("a€😀", buffer);
+    buffer.flip();
+    assertEquals("a€😀", EventCodec.strings().decode(buffer));
+  }
+
+  @Test
+  public void stringsOverflowBeforeTheLength() {
+    final ByteBuffer buffer = ByteBuffer.allocate(10);
+    EventCodec.strings().encode("abc", buffer);
+    try {
+      EventCodec.strings().encode("abc", buffer);
+      fail();
+    } catch (final BufferOverflowException e) {
+      assertEquals(7, buffer.position());
+    }
+  }
+
+  @Test
+  public void unpairedSurrogatesRoundTripInHeapAndDirectBuffers() {
+    final String s = "a\uD800b\uDC00";
+    for (final ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(32), ByteBuffer.allocateDirect(32) }) {
+      EventCodec.strings().encode(s, buffer);
+      buffer.flip();
+      assertEquals(s, EventCodec.strings().decode(buffer));
+    }
+  }
+
+  private static class Trade {
+    final String symbol;
+    final double price;
+    final long quantity;
+
+    Trade(final String symbol, final double price, final long quantity) {
+      this.symbol = symbol;
+      this.price = price;
+      this.quantity = quantity;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      final Trade other = (Trade) obj;
+      return symbol.equals(other.symbol) && price == other.price && quantity == other.quantity;
+    }
+
+    @Override
+    public int hashCode() {
+      return symbol.hashCode();
+    }
+  }
+
+}
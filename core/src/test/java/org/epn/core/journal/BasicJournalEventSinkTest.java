@@ -0,0 +1,141 @@
+package org.epn.core.journal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSource;
+import org.epn.core.codec.RecordCodec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.reactivestreams.Subscription;
+
+public class BasicJournalEventSinkTest {
+
+  private static final BiConsumer<Integer, ByteBuffer> ENCODER = (i, b) -> b.putInt(i);
+  private static final Function<ByteBuffer, Integer> DECODER = ByteBuffer::getInt;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void replaysEventsAcrossSegments() throws IOException {
+    final Path dir = folder.newFolder().toPath();
+    write(dir, 0, 100);
+
+    assertTrue(Journal.segments(dir).size() > 1);
+    final EventCollectingSink sink = replay(dir, 0);
+    assertEquals(100, sink.data.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(Integer.valueOf(i), sink.data.get(i));
+      assertEquals(i, sink.sequences.get(i).longValue());
+      assertEquals(1000L + i, sink.timestamps.get(i).longValue());
+    }
+  }
+
+  @Test
+  public void replaysFromOffset() throws IOException {
+    final Path dir = folder.newFolder().toPath();
+    write(dir, 0, 100);
+
+    final BasicJournalEventSource<Integer> source = new BasicJournalEventSource<>(dir, DECODER, 97);
+    final EventCollectingSink sink = new EventCollectingSink();
+    source.subscribe(sink);
+    source.start();
+
+    assertArrayEquals(new Integer[] { 97, 98, 99 }, sink.data.toArray());
+    assertEquals(100, source.getNextOffset());
+  }
+
+  @Test
+  public void reopenedJournalContinuesAfterLastEvent() throws IOException {
+    final Path dir = folder.newFolder().toPath();
+    write(dir, 0, 10);
+    final BasicJournalEventSink<Integer> reopened = write(dir, 10, 20);
+
+    assertEquals(20, reopened.getNextOffset());
+    assertEquals(20, replay(dir, 0).data.size());
+  }
+
+  @Test
+  public void filtersBeforeDecoding() throws IOException {
+    final Path dir = folder.newFolder().toPath();
+    final RecordCodec<Integer> codec = RecordCodec.of(r -> r.getInt(0)).withInt(i -> i);
+    final StampedEventSource source = new StampedEventSource();
+    try (BasicJournalEventSink<Integer> sink = new BasicJournalEventSink<>(dir, codec)) {
+      source.subscribe(sink);
+      for (int i = 0; i < 10; i++) {
+        source.emit(i);
+      }
+    }
+
+    final BasicJournalEventSource<Integer> replay = new BasicJournalEventSource<>(dir, codec, 0)
+        .withFilter(codec.where(r -> r.getInt(0) % 3 == 0));
+    final EventCollectingSink sink = new EventCollectingSink();
+    replay.subscribe(sink);
+    replay.start();
+
+    assertArrayEquals(new Integer[] { 0, 3, 6, 9 }, sink.data.toArray());
+    assertEquals(10, replay.getNextOffset());
+  }
+
+  private static BasicJournalEventSink<Integer> write(final Path dir, final int from, final int to) {
+    final StampedEventSource source = new StampedEventSource();
+    try (BasicJournalEventSink<Integer> sink = new BasicJournalEventSink<>(dir, ENCODER, 256, 8)) {
+      source.subscribe(sink);
+      for (int i = from; i < to; i++) {
+        source.emit(i);
+      }
+      return sink;
+    }
+  }
+
+  private static EventCollectingSink replay(final Path dir, final long from) {
+    final BasicJournalEventSource<Integer> source = new BasicJournalEventSource<>(dir, DECODER, from);
+    final EventCollectingSink sink = new EventCollectingSink();
+    source.subscribe(sink);
+    source.start();
+    return sink;
+  }
+
+  private static class StampedEventSource extends BasicEventSource<Integer> {
+
+    void emit(final int i) {
+      notifySubscribers(new BasicEvent<>(i, 1000L + i, Event.NO_SEQUENCE));
+    }
+
+  }
+
+  private static class EventCollectingSink implements EventSink<Integer> {
+
+    private final List<Integer> data = new ArrayList<>();
+    private final List<Long> timestamps = new ArrayList<>();
+    private final List<Long> sequences = new ArrayList<>();
+
+    @Override
+    public void onSubscribe(final Subscription s) {
+      s.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(final Event<Integer> event) {
+      data.add(event.get());
+      timestamps.add(event.getTimestamp());
+      sequences.add(event.getSequence());
+    }
+
+  }
+
+}
@@ -0,0 +1,40 @@
+package org.epn.core.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void bucketsCoverAllValuesInOrder() {
+    long previous = -1;
+    for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+      final long lowest = LatencyHistogram.lowestOf(i);
+      assertTrue(lowest > previous);
+      assertEquals(i, LatencyHistogram.bucketOf(lowest));
+      assertEquals(i, LatencyHistogram.bucketOf(LatencyHistogram.valueOf(i)));
+      previous = lowest;
+    }
+    assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void percentilesAreWithinBucketPrecision() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (long nanos = 1; nanos <= 100_000; nanos++) {
+      histogram.record(nanos);
+    }
+    histogram.record(1_000_000, 100);
+
+    final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertEquals(100_100, snapshot.getCount());
+    assertEquals(1_000_000, snapshot.getMax());
+    assertEquals(50_000, snapshot.getValueAtPercentile(50), 50_000 * 0.07);
+    assertEquals(99_000, snapshot.getValueAtPercentile(99), 99_000 * 0.07);
+    assertEquals(1_000_000, snapshot.getValueAtPercentile(100));
+    assertEquals(0, new LatencyHistogram().snapshot().getValueAtPercentile(99));
+  }
+
+}
@@ -2,22 +2,41 @@ package org.epn.core.node;
 
 import java.util.stream.IntStream;
 
+import org.epn.api.Event;
 import org.epn.core.BasicEventSource;
 import org.epn.core.BasicEvent;
 
 public class TestEventSource extends BasicEventSource<Integer> {
 
   private int limit = 100;
+  private int batchSize = 0;
   
   public TestEventSource() {}
   
   public TestEventSource(int limit) {
     this.limit = limit;
   }
+
+  public TestEventSource(int limit, int batchSize) {
+    this.limit = limit;
+    this.batchSize = batchSize;
+  }
   
   @Override
   public void start() {
-    IntStream.iterate(0, i -> i + 1).limit(limit).forEach( i -> notifySubscribers(new BasicEvent<Integer>(i)));    
+    if (batchSize == 0) {
+      IntStream.iterate(0, i -> i + 1).limit(limit).forEach( i -> notifySubscribers(new BasicEvent<Integer>(i)));
+      return;
+    }
+
+    final Event<Integer>[] batch = newBatch(batchSize);
+    for (int i = 0; i < limit; i += batchSize) {
+      final int n = Math.min(batchSize, limit - i);
+      for (int j = 0; j < n; j++) {
+        batch[j] = new BasicEvent<Integer>(i + j);
+      }
+      notifySubscribers(batch, n);
+    }
   }
 
 }
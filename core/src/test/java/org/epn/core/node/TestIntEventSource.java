@@ -0,0 +1,22 @@
+package org.epn.core.node;
+
+import org.epn.core.primitive.BasicIntEventSource;
+
+public class TestIntEventSource extends BasicIntEventSource {
+
+  private int limit = 100;
+
+  public TestIntEventSource() {}
+
+  public TestIntEventSource(int limit) {
+    this.limit = limit;
+  }
+
+  @Override
+  public void start() {
+    for (int i = 0; i < limit; i++) {
+      notifySubscribers(i);
+    }
+  }
+
+}
@@ -0,0 +1,148 @@
+package org.epn.core.pool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.epn.api.Event;
+import org.epn.core.BasicEventSource;
+import org.epn.core.BasicEventTransformer;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class EventPoolTest {
+
+  @Test
+  public void transformationsChangeExclusiveEventsInPlace() {
+    final PooledEventSource source = new PooledEventSource(new EventPool<>(4), 0);
+    final BasicEventTransformer<Integer, Integer> doubled = new BasicEventTransformer<>(
+        BasicEventTransformer.mapping(i -> i * 2));
+    source.subscribe(doubled);
+    final RecordingSink sink = new RecordingSink(Long.MAX_VALUE);
+    doubled.subscribe(sink);
+
+    source.emit(10);
+
+    assertArrayEquals(new Integer[] { 0, 2, 4, 6, 8, 10, 12, 14, 16, 18 }, sink.data.toArray());
+    assertEquals(4, sink.events.size());
+    assertEquals(0, source.pool.getMisses());
+  }
+
+  @Test
+  public void sharedEventsAreNotChanged() {
+    final PooledEventSource source = new PooledEventSource(new EventPool<>(4), 0);
+    final BasicEventTransformer<Integer, Integer> doubled = new BasicEventTransformer<>(
+        BasicEventTransformer.mapping(i -> i * 2));
+    source.subscribe(doubled);
+    final RecordingSink doubledSink = new RecordingSink(Long.MAX_VALUE);
+    doubled.subscribe(doubledSink);
+    final RecordingSink sink = new RecordingSink(Long.MAX_VALUE);
+    source.subscribe(sink);
+
+    source.emit(3);
+
+    assertArrayEquals(new Integer[] { 0, 2, 4 }, doubledSink.data.toArray());
+    assertArrayEquals(new Integer[] { 0, 1, 2 }, sink.data.toArray());
+    assertTrue(Collections.disjoint(doubledSink.events, sink.events));
+  }
+
+  @Test
+  public void bufferedEventsAreNotReused() {
+    final PooledEventSource source = new PooledEventSource(new EventPool<>(4), 16);
+    final RecordingSink sink = new RecordingSink(0);
+    source.subscribe(sink);
+
+    source.emit(8);
+    assertEquals(4, source.pool.getMisses());
+
+    sink.subscription.request(8);
+    assertArrayEquals(new Integer[] { 0, 1, 2, 3, 4, 5, 6, 7 }, sink.data.toArray());
+
+    sink.subscription.request(4);
+    source.emit(4);
+    assertEquals(4, source.pool.getMisses());
+  }
+
+  @Test
+  public void debugModeDetectsUseAfterRelease() {
+    final PooledEventSource source = new PooledEventSource(new EventPool<>(4, true), 0);
+    final RecordingSink sink = new RecordingSink(Long.MAX_VALUE);
+    source.subscribe(sink);
+
+    source.emit(1);
+
+    try {
+      sink.last.get();
+      fail();
+    } catch (final IllegalStateException e) {
+      assertEquals("Released here", e.getCause().getMessage());
+    }
+    try {
+      ((PooledEvent<?>) sink.last).release();
+      fail();
+    } catch (final IllegalStateException e) {
+      assertEquals("Event released more often than retained", e.getMessage());
+    }
+  }
+
+  private static final class PooledEventSource extends BasicEventSource<Integer> {
+    final EventPool<Integer> pool;
+
+    PooledEventSource(final EventPool<Integer> pool, final int bufferSize) {
+      super(bufferSize, OverflowStrategy.DROP_NEWEST);
+      this.pool = pool;
+    }
+
+    void emit(final int n) {
+      for (int i = 0; i < n; i++) {
+        final PooledEvent<Integer> e = pool.claim(i, i, i);
+        notifySubscribers(e);
+        e.release();
+      }
+    }
+  }
+
+  private static final class RecordingSink implements Subscriber<Event<Integer>> {
+    final List<Integer> data = new ArrayList<>();
+    final Set<Event<Integer>> events = Collections.newSetFromMap(new IdentityHashMap<>());
+    final long initialDemand;
+    Subscription subscription;
+    Event<Integer> last;
+
+    RecordingSink(final long initialDemand) {
+      this.initialDemand = initialDemand;
+    }
+
+    @Override
+    public void onSubscribe(final Subscription s) {
+      subscription = s;
+      if (initialDemand > 0) {
+        s.request(initialDemand);
+      }
+    }
+
+    @Override
+    public void onNext(final Event<Integer> e) {
+      data.add(e.get());
+      events.add(e);
+      last = e;
+    }
+
+    @Override
+    public void onError(final Throwable t) {
+    }
+
+    @Override
+    public void onComplete() {
+    }
+  }
+
+}
@@ -0,0 +1,180 @@
+package org.epn.core.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSource;
+import org.epn.core.codec.EventCodec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+
+public class RemoteEventSourceTest {
+
+  private RemoteEventSource<Integer> source;
+  private RemoteEventSink<Integer> sink;
+  private CollectingEventSink collected;
+  private RangeEventSource upstream;
+
+  @Before
+  public void connect() {
+    source = new RemoteEventSource<>(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), EventCodec.ints());
+    collected = new CollectingEventSink();
+    source.subscribe(collected);
+    sink = new RemoteEventSink<>(source.getAddress(), EventCodec.ints());
+    upstream = new RangeEventSource();
+    upstream.subscribe(sink);
+  }
+
+  @After
+  public void close() {
+    sink.close();
+    source.close();
+  }
+
+  @Test
+  public void shipsWhatIsRequestedDownstream() throws Exception {
+    collected.subscription.request(10);
+    upstream.emit(0, 1000);
+
+    assertTrue(await(() -> collected.size() == 10));
+    Thread.sleep(100);
+    assertEquals(10, collected.size());
+    assertEquals(990, upstream.getBuffered());
+
+    collected.subscription.request(Long.MAX_VALUE);
+    assertTrue(await(() -> collected.size() == 1000));
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(Integer.valueOf(i), collected.data.get(i));
+    }
+    assertEquals(1000L, collected.timestamps.get(999).longValue());
+  }
+
+  @Test
+  public void shipsSequenceAndHeaders() throws Exception {
+    collected.subscription.request(Long.MAX_VALUE);
+    upstream.emit(new BasicEvent<>(1, 2, 3).withHeader("a", "b").withHeader("c", "d"));
+    upstream.emit(new BasicEvent<>(4, 5, 6));
+    assertTrue(await(() -> collected.size() == 2));
+
+    final Event<Integer> first = collected.events.get(0);
+    assertEquals(3, first.getSequence());
+    assertEquals("b", first.getHeader("a"));
+    assertEquals("d", first.getHeader("c"));
+    assertEquals(6, collected.events.get(1).getSequence());
+    assertTrue(collected.events.get(1).getHeaders().isEmpty());
+  }
+
+  @Test
+  public void reconnectsAfterConnectionLoss() throws Exception {
+    collected.subscription.request(Long.MAX_VALUE);
+    upstream.emit(0, 100);
+    assertTrue(await(() -> collected.size() == 100));
+
+    final SocketConnection lost = source.getConnection();
+    lost.close();
+    assertTrue(await(() -> source.getConnection() != lost && sink.isConnected()));
+    assertNotSame(lost, source.getConnection());
+
+    upstream.emit(100, 200);
+    assertTrue(await(() -> collected.size() == 200));
+    assertEquals(Integer.valueOf(199), collected.data.get(199));
+  }
+
+  @Test
+  public void shipsWatermarksAndCompletionInOrder() throws Exception {
+    collected.subscription.request(10);
+    upstream.emit(0, 100);
+    upstream.onWatermark(100);
+    upstream.onComplete();
+    assertTrue(await(() -> collected.size() == 10));
+    assertTrue(collected.watermarks.isEmpty());
+
+    collected.subscription.request(Long.MAX_VALUE);
+    assertTrue(await(() -> collected.complete));
+    assertEquals(100, collected.size());
+    assertEquals(Long.valueOf(100), collected.watermarks.get(collected.watermarks.size() - 1));
+    assertEquals(100, collected.sizeAtWatermark);
+  }
+
+  private static boolean await(final BooleanSupplier condition) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        return false;
+      }
+      Thread.sleep(1);
+    }
+    return true;
+  }
+
+  private static class RangeEventSource extends BasicEventSource<Integer> {
+
+    RangeEventSource() {
+      super(100000, OverflowStrategy.DROP_NEWEST);
+    }
+
+    void emit(final int from, final int to) {
+      for (int i = from; i < to; i++) {
+        notifySubscribers(new BasicEvent<>(i, i + 1, Event.NO_SEQUENCE));
+      }
+    }
+
+    void emit(final Event<Integer> e) {
+      notifySubscribers(e);
+    }
+
+  }
+
+  private static class CollectingEventSink implements EventSink<Integer> {
+
+    private final List<Integer> data = new ArrayList<>();
+    private final List<Long> timestamps = new ArrayList<>();
+    private final List<Event<Integer>> events = new ArrayList<>();
+    private final List<Long> watermarks = new ArrayList<>();
+    private int sizeAtWatermark;
+    private volatile boolean complete;
+    private Subscription subscription;
+
+    @Override
+    public void onSubscribe(final Subscription s) {
+      this.subscription = s;
+    }
+
+    @Override
+    public synchronized void onNext(final Event<Integer> event) {
+      data.add(event.get());
+      timestamps.add(event.getTimestamp());
+      events.add(event);
+    }
+
+    @Override
+    public synchronized void onWatermark(final long watermark) {
+      watermarks.add(watermark);
+      sizeAtWatermark = data.size();
+    }
+
+    @Override
+    public void onComplete() {
+      complete = true;
+    }
+
+    synchronized int size() {
+      return data.size();
+    }
+
+  }
+
+}
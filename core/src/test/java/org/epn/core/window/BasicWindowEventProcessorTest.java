@@ -0,0 +1,84 @@
+package org.epn.core.window;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSink;
+import org.junit.Test;
+
+public class BasicWindowEventProcessorTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  public void tumblingCount() {
+    final BasicEventSink<Long> sink = run(Window.tumbling(3), Aggregator.count(), 0, 0, 0, 0, 0, 0, 0, 0);
+    assertArrayEquals(new Long[] { 3L, 3L }, sink.getData().toArray());
+  }
+
+  @Test
+  public void slidingCount() {
+    final BasicEventSink<Integer> sink = run(Window.sliding(4, 2), Aggregator.reduce(Integer::sum), 1, 2, 3, 4, 5,
+        6, 7);
+    assertArrayEquals(new Integer[] { 1 + 2 + 3 + 4, 3 + 4 + 5 + 6 }, sink.getData().toArray());
+  }
+
+  @Test
+  public void tumblingTime() {
+    final BasicEventSink<Long> sink = run(Window.tumbling(Duration.ofMillis(10)).withClock(clock::get),
+        Aggregator.count(), 1, 5, 9, 12, 35, 39);
+    assertArrayEquals(new Long[] { 3L, 1L, 2L }, sink.getData().toArray());
+  }
+
+  @Test
+  public void slidingTimeSkipsEmptyWindows() {
+    final BasicEventSink<Integer> sink = run(Window.sliding(Duration.ofMillis(10), Duration.ofMillis(5))
+        .withClock(clock::get), Aggregator.reduce(Integer::sum), 1, 6, 11, 100);
+    // windows [-5,5) [0,10) [5,15) [10,20) [95,105) [100,110)
+    assertArrayEquals(new Integer[] { 1, 1 + 6, 6 + 11, 11, 100, 100 }, sink.getData().toArray());
+  }
+
+  @Test
+  public void mergeMayChangeItsFirstArgument() {
+    final Aggregator<Integer, List<Integer>, String> collect = Aggregator.of(ArrayList::new, (a, e) -> {
+      a.add(e);
+      return a;
+    }, (a, b) -> {
+      a.addAll(b);
+      return a;
+    }, List::toString);
+    final BasicEventSink<String> sink = run(Window.sliding(Duration.ofMillis(15), Duration.ofMillis(5))
+        .withClock(clock::get), collect, 6, 11, 16);
+    assertArrayEquals(new String[] { "[6]", "[6, 11]", "[6, 11, 16]", "[11, 16]", "[16]" }, sink.getData().toArray());
+  }
+
+  @Test
+  public void session() {
+    final BasicEventSink<Long> sink = run(Window.session(Duration.ofMillis(10)).withClock(clock::get),
+        Aggregator.count(), 0, 5, 14, 30, 31, 50);
+    assertArrayEquals(new Long[] { 3L, 2L, 1L }, sink.getData().toArray());
+  }
+
+  /**
+   * Emits each value at the time given by its value, then completes.
+   */
+  private <A, R> BasicEventSink<R> run(final Window window, final Aggregator<Integer, A, R> aggregator,
+      final int... values) {
+
+    final BasicWindowEventProcessor<Integer, A, R> processor = new BasicWindowEventProcessor<>(window, aggregator);
+    final BasicEventSink<R> sink = new BasicEventSink<>();
+    processor.subscribe(sink);
+    for (final int v : values) {
+      clock.set(v);
+      processor.onNext(new BasicEvent<>(v));
+    }
+    processor.onComplete();
+    return sink;
+  }
+
+}
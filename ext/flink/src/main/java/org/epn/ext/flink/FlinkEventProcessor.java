@@ -1,36 +1,56 @@
 package org.epn.ext.flink;
 
+import java.net.SocketAddress;
+
 import org.epn.api.Event;
 import org.epn.api.EventProcessor;
+import org.epn.core.codec.EventCodec;
+import org.epn.core.transport.SocketConnection;
 import org.reactivestreams.Subscription;
 
-// https://ci.apache.org/projects/flink/flink-docs-master/api/java/org/apache/flink/streaming/api/functions/source/SocketTextStreamFunction.html
+/**
+ * Offloads a stage to Flink: writes events to a socket, where the remote job
+ * observes and processes them, and publishes the results it sends back on the
+ * same connection into the local network. Both directions are subject to
+ * demand, see {@link FlinkEventSink} and {@link FlinkEventSource}.
+ */
+public class FlinkEventProcessor<I, O> extends FlinkEventSource<O> implements EventProcessor<I, O> {
 
-// https://ci.apache.org/projects/flink/flink-docs-master/api/java/org/apache/flink/streaming/api/functions/sink/SocketClientSink.html
+  private final FlinkEventSink<I> sink;
 
-// as a sink, writes events to a socket, where a "remote" system can observe and process them before sending them back
-// as a source, listens to events on a socket returned from the "remote" system and forwards them into the local network
+  public FlinkEventProcessor(final SocketAddress flink, final EventCodec<I> out, final EventCodec<O> in) {
+    this(new SocketConnection(flink), out, in);
+  }
 
-public class FlinkEventProcessor<I, O> extends FlinkEventSource<O> implements EventProcessor<I, O> {
+  public FlinkEventProcessor(final SocketConnection connection, final EventCodec<I> out, final EventCodec<O> in) {
+    super(connection, in);
+    this.sink = new FlinkEventSink<>(connection, out);
+  }
 
   @Override
   public void onSubscribe(final Subscription s) {
-
+    sink.onSubscribe(s);
   }
 
   @Override
   public void onNext(final Event<I> t) {
-
+    sink.onNext(t);
   }
 
   @Override
   public void onError(final Throwable t) {
-
+    sink.onError(t);
   }
 
+  /**
+   * Keeps the connection open, as results may still be on their way back.
+   */
   @Override
   public void onComplete() {
+  }
 
+  public void close() {
+    getConnection().close();
   }
 
 }
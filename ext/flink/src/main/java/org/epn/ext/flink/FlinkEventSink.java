@@ -1,13 +1,26 @@
 package org.epn.ext.flink;
 
-import org.apache.flink.streaming.api.functions.sink.SocketClientSink;
+import java.net.SocketAddress;
+
+import org.apache.flink.streaming.api.functions.source.SocketTextStreamFunction;
 import org.epn.api.EventSink;
-import org.epn.core.BasicEventSink;
+import org.epn.core.codec.EventCodec;
+import org.epn.core.transport.SocketConnection;
+import org.epn.core.transport.SocketEventSink;
 
 /**
- * {@link EventSink} that forwards events to a socket using a
- * {@link SocketClientSink}.
+ * {@link EventSink} that forwards events to a Flink job listening on a
+ * socket, e.g. with a {@link SocketTextStreamFunction}-like source reading
+ * length-prefixed frames.
  */
-public class FlinkEventSink<T> extends BasicEventSink<T> {
+public class FlinkEventSink<T> extends SocketEventSink<T> {
+
+  public FlinkEventSink(final SocketAddress flink, final EventCodec<T> codec) {
+    super(flink, codec);
+  }
+
+  public FlinkEventSink(final SocketConnection connection, final EventCodec<T> codec) {
+    super(connection, codec);
+  }
 
 }
@@ -1,14 +1,26 @@
 package org.epn.ext.flink;
 
-import org.apache.commons.configuration.event.EventSource;
-import org.apache.flink.streaming.api.functions.source.SocketTextStreamFunction;
-import org.epn.core.BasicEventSource;
+import java.net.SocketAddress;
+
+import org.apache.flink.streaming.api.functions.sink.SocketClientSink;
+import org.epn.api.EventSource;
+import org.epn.core.codec.EventCodec;
+import org.epn.core.transport.SocketConnection;
+import org.epn.core.transport.SocketEventSource;
 
 /**
- * {@link EventSource} that reads events from a socket using
- * {@link SocketTextStreamFunction} and publishes them into the local event
- * network.
+ * {@link EventSource} that reads events a Flink job writes to a socket, e.g.
+ * with a {@link SocketClientSink} writing length-prefixed frames, and
+ * publishes them into the local event network.
  */
-public class FlinkEventSource<T> extends BasicEventSource<T> {
+public class FlinkEventSource<T> extends SocketEventSource<T> {
+
+  public FlinkEventSource(final SocketAddress flink, final EventCodec<T> codec) {
+    super(flink, codec);
+  }
+
+  public FlinkEventSource(final SocketConnection connection, final EventCodec<T> codec) {
+    super(connection, codec);
+  }
 
 }
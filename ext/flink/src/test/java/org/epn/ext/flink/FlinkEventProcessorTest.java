@@ -0,0 +1,182 @@
+package org.epn.ext.flink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.epn.api.Event;
+import org.epn.api.EventSink;
+import org.epn.core.BasicEvent;
+import org.epn.core.BasicEventSource;
+import org.epn.core.codec.EventCodec;
+import org.epn.core.net.Epn;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+
+public class FlinkEventProcessorTest {
+
+  private ServerSocketChannel server;
+
+  @Before
+  public void bind() throws IOException {
+    server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+  }
+
+  @After
+  public void close() throws IOException {
+    server.close();
+  }
+
+  @Test
+  public void roundTripsThroughEchoServer() throws Exception {
+    final int n = 100000;
+    serve(c -> {
+      final ByteBuffer b = ByteBuffer.allocate(8192);
+      while (c.read(b) >= 0) {
+        b.flip();
+        while (b.hasRemaining()) {
+          c.write(b);
+        }
+        b.clear();
+      }
+    });
+
+    final RangeEventSource source = new RangeEventSource(n);
+    final FlinkEventProcessor<Integer, Integer> flink = new FlinkEventProcessor<>(server.getLocalAddress(),
+        EventCodec.ints(), EventCodec.ints());
+    final CollectingEventSink sink = new CollectingEventSink(n, Long.MAX_VALUE);
+
+    Epn.named("Flink").fromSource(source).processedBy(flink).consumedBy(sink).start();
+
+    assertTrue(sink.done.await(30, TimeUnit.SECONDS));
+    for (int i = 0; i < n; i++) {
+      assertEquals(Integer.valueOf(i), sink.data.get(i));
+    }
+    flink.close();
+  }
+
+  @Test
+  public void readsOnlyWhatIsRequested() throws Exception {
+    final int n = 100000;
+    serve(c -> {
+      final ByteBuffer b = ByteBuffer.allocate(8 * n);
+      for (int i = 0; i < n; i++) {
+        b.putInt(4).putInt(i);
+      }
+      b.flip();
+      while (b.hasRemaining()) {
+        c.write(b);
+      }
+    });
+
+    final FlinkEventSource<Integer> source = new FlinkEventSource<>(server.getLocalAddress(), EventCodec.ints());
+    final CollectingEventSink sink = new CollectingEventSink(n, 10);
+    source.subscribe(sink);
+
+    Thread.sleep(200);
+    assertEquals(10, sink.data.size());
+    assertEquals(0, source.getDropped());
+
+    sink.subscription.request(Long.MAX_VALUE);
+    assertTrue(sink.done.await(30, TimeUnit.SECONDS));
+    assertEquals(n, sink.data.size());
+    source.getConnection().close();
+  }
+
+  @Test
+  public void stopsRequestingWhileRemoteDoesNotRead() throws Exception {
+    final CountDownLatch read = new CountDownLatch(1);
+    serve(c -> read.await());
+
+    final FlinkEventSink<Integer> sink = new FlinkEventSink<>(server.getLocalAddress(), EventCodec.ints());
+    final RangeEventSource upstream = new RangeEventSource(1000000, 0);
+    upstream.subscribe(sink);
+    upstream.start();
+
+    assertTrue(upstream.getDropped() > 0);
+    assertTrue(sink.getConnection().getPending() < 1024 * 1024);
+    read.countDown();
+    sink.close();
+  }
+
+  private interface Connection {
+    void serve(SocketChannel c) throws Exception;
+  }
+
+  private void serve(final Connection connection) {
+    final Thread thread = new Thread(() -> {
+      try (SocketChannel c = server.accept()) {
+        connection.serve(c);
+      } catch (final Exception e) {
+        // test ends
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private static class RangeEventSource extends BasicEventSource<Integer> {
+
+    private final int n;
+
+    RangeEventSource(final int n) {
+      super(1024, OverflowStrategy.BLOCK);
+      this.n = n;
+    }
+
+    RangeEventSource(final int n, final int bufferSize) {
+      super(bufferSize, OverflowStrategy.DROP_NEWEST);
+      this.n = n;
+    }
+
+    @Override
+    public void start() {
+      for (int i = 0; i < n; i++) {
+        notifySubscribers(new BasicEvent<>(i));
+      }
+    }
+
+  }
+
+  private static class CollectingEventSink implements EventSink<Integer> {
+
+    private final List<Integer> data = new ArrayList<>();
+    private final CountDownLatch done;
+    private final long initialRequest;
+    private Subscription subscription;
+
+    CollectingEventSink(final int expected, final long initialRequest) {
+      this.done = new CountDownLatch(expected);
+      this.initialRequest = initialRequest;
+    }
+
+    @Override
+    public void onSubscribe(final Subscription s) {
+      this.subscription = s;
+      s.request(initialRequest);
+    }
+
+    @Override
+    public void onNext(final Event<Integer> event) {
+      synchronized (data) {
+        data.add(event.get());
+      }
+      done.countDown();
+    }
+
+  }
+
+}